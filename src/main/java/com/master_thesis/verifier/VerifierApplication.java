@@ -1,26 +1,52 @@
 package com.master_thesis.verifier;
 
 import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.capture.TrafficCapture;
+import com.master_thesis.verifier.cluster.ClusterRouter;
+import com.master_thesis.verifier.cluster.ForwardedSubmission;
+import com.master_thesis.verifier.core.Round;
+import com.master_thesis.verifier.core.Verifier;
 import com.master_thesis.verifier.data.*;
+import com.master_thesis.verifier.pipeline.VerificationPipeline;
+import com.master_thesis.verifier.utils.AuditLog;
+import com.master_thesis.verifier.utils.OverloadSampler;
 import com.master_thesis.verifier.utils.PublicParameters;
+import com.master_thesis.verifier.utils.ResultPublisher;
+import com.master_thesis.verifier.utils.RoundParameters;
+import com.master_thesis.verifier.utils.VerificationScheduler;
+import com.master_thesis.verifier.utils.VerifierExecutors;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.math.BigInteger;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 @SpringBootApplication
 @RestController
@@ -31,22 +57,55 @@ public class VerifierApplication {
     private DataBuffer serverBuffer;
     private DataBuffer clientBuffer;
     private Lock bufferLock;
+    private Map<Long, RSAProofAccumulator> rsaProofs;
+    private Map<Long, RoundParameters> roundParameters;
+    private RoundStates roundStates;
+    private Map<Long, ParkedRound> parkedRounds;
+    private Queue<ParkedRound> deferredRounds;
     private RSAThreshold rsaThresholdVerifier;
-    private HomomorphicHash homomorphicHashVerifier;
-    private LinearSignature linearSignature;
-    private DifferentialPrivacy differentialPrivacy;
+    private Map<Construction, Verifier> verifiers;
     private PublicParameters publicParameters;
+    private ResultPublisher resultPublisher;
+    private VerifierExecutors executors;
+    private VerificationPipeline pipeline;
+    private VerificationScheduler scheduler;
+    private OverloadSampler sampler;
+    private ClusterRouter cluster;
+    private BufferBudget budget;
+    private TrafficCapture capture;
+    private long retryAfterSeconds;
+    private int maxDeferred;
 
     @Autowired
-    public VerifierApplication(RSAThreshold rsaThresholdVerifier, @Qualifier("homomorphicHash") HomomorphicHash homomorphicHashVerifier, LinearSignature linearSignature, DifferentialPrivacy differentialPrivacy, PublicParameters publicParameters) {
-        this.differentialPrivacy = differentialPrivacy;
-        this.serverBuffer = new DataBuffer();
-        this.clientBuffer = new DataBuffer();
+    public VerifierApplication(RSAThreshold rsaThresholdVerifier, @Qualifier("homomorphicHash") HomomorphicHash homomorphicHashVerifier, DifferentialPrivacy differentialPrivacy, List<Verifier> verifiers, PublicParameters publicParameters, ResultPublisher resultPublisher, VerifierExecutors executors, VerificationPipeline pipeline, VerificationScheduler scheduler, OverloadSampler sampler, ClusterRouter cluster, SpillStore spillStore, BufferBudget budget, TrafficCapture capture, @Value("${verifier.budget.retry-after-s:1}") long retryAfterSeconds, @Value("${verifier.rounds.retained:1024}") int retainedRounds, @Value("${verifier.overload.max-deferred:10000}") int maxDeferred) {
+        this.serverBuffer = new DataBuffer(spillStore, budget);
+        this.clientBuffer = new DataBuffer(spillStore, budget);
+        this.budget = budget;
+        this.capture = capture;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.maxDeferred = maxDeferred;
         this.bufferLock = new ReentrantLock();
+        this.rsaProofs = new ConcurrentHashMap<>();
+        this.roundParameters = new ConcurrentHashMap<>();
+        this.roundStates = new RoundStates(retainedRounds);
+        this.parkedRounds = new ConcurrentHashMap<>();
+        this.deferredRounds = new ConcurrentLinkedQueue<>();
         this.rsaThresholdVerifier = rsaThresholdVerifier;
-        this.homomorphicHashVerifier = homomorphicHashVerifier;
-        this.linearSignature = linearSignature;
+        this.verifiers = new EnumMap<>(Construction.class);
+        verifiers.forEach(verifier -> this.verifiers.put(verifier.getConstruction(), verifier));
         this.publicParameters = publicParameters;
+        this.resultPublisher = resultPublisher;
+        this.executors = executors;
+        this.pipeline = pipeline;
+        this.scheduler = scheduler;
+        this.sampler = sampler;
+        this.cluster = cluster;
+        cluster.onRingChange(this::handOffRounds);
+        spillStore.every(this::spillIdleRounds);
+        publicParameters.whenAvailable(this::redriveParkedRounds);
+        scheduler.whenVerified(this::redriveDeferredRounds);
+        homomorphicHashVerifier.onWindowClosed(window -> publishWindow(Construction.HASH, window));
+        differentialPrivacy.onWindowClosed(window -> publishWindow(Construction.DP, window));
     }
 
     /****
@@ -55,246 +114,630 @@ public class VerifierApplication {
 
     @PostMapping(value = "/server/hash-data")
     public void receiveHashServerData(@RequestBody HashServerData serverData) throws InterruptedException {
-        boolean isAllDataAvailable = putData(serverData, serverBuffer);
-        if (isAllDataAvailable)
-            new Thread(() -> performComputations(serverData.getSubstationID(), serverData.getFid())).start();
+        receive(serverData, true, 0);
     }
 
     @PostMapping(value = "/client/hash-data")
     public void receiveHashClientData(@RequestBody HashClientData clientData) throws InterruptedException {
-        boolean isAllDataAvailable = putData(clientData, clientBuffer);
-        if (isAllDataAvailable)
-            new Thread(() -> performComputations(clientData.getSubstationID(), clientData.getFid())).start();
+        receive(clientData, false, 0);
     }
 
     @PostMapping(value = "/server/rsa-data")
     public void receiveRSAServerData(@RequestBody RSAServerData serverData) throws InterruptedException {
-        boolean isAllDataAvailable = putData(serverData, serverBuffer);
-        if (isAllDataAvailable)
-            new Thread(() -> performComputations(serverData.getSubstationID(), serverData.getFid())).start();
+        receive(serverData, true, 0);
     }
 
     @PostMapping(value = "/client/rsa-data")
     public void receiveRSAClientData(@RequestBody RSAClientData clientData) throws InterruptedException {
-        boolean isAllDataAvailable = putData(clientData, clientBuffer);
-        if (isAllDataAvailable)
-            new Thread(() -> performComputations(clientData.getSubstationID(), clientData.getFid())).start();
+        receive(clientData, false, 0);
     }
 
     @PostMapping(value = "/server/linear-data")
     public void receiveLinearServerData(@RequestBody LinearServerData serverData) throws InterruptedException {
-        boolean isAllDataAvailable = putData(serverData, serverBuffer);
-        if (isAllDataAvailable)
-            new Thread(() -> performComputations(serverData.getSubstationID(), serverData.getFid())).start();
+        receive(serverData, true, 0);
     }
 
     @PostMapping(value = "/client/linear-data")
     public void receiveLinearClientData(@RequestBody LinearClientData clientData) throws InterruptedException {
-        boolean isAllDataAvailable = putData(clientData, clientBuffer);
-        if (isAllDataAvailable)
-            new Thread(() -> performComputations(clientData.getSubstationID(), clientData.getFid())).start();
+        receive(clientData, false, 0);
     }
 
 
     @PostMapping(value = "/server/dp-data")
     public void receiveHashServerData(@RequestBody DPServerData serverData) throws InterruptedException {
-        boolean isAllDataAvailable = putData(serverData, serverBuffer);
-        if (isAllDataAvailable)
-            new Thread(() -> performComputations(serverData.getSubstationID(), serverData.getFid())).start();
+        receive(serverData, true, 0);
     }
 
     @PostMapping(value = "/client/dp-data")
     public void receiveHashClientData(@RequestBody DPClientData clientData) throws InterruptedException {
-        boolean isAllDataAvailable = putData(clientData, clientBuffer);
-        if (isAllDataAvailable)
-            new Thread(() -> performComputations(clientData.getSubstationID(), clientData.getFid())).start();
+        receive(clientData, false, 0);
     }
 
 
+    /**
+     * Receives the submissions other nodes of the cluster forwarded to this node.
+     * A batch that failed part way is sent again as a whole, which is safe: a participant that is buffered again
+     * replaces its earlier data, and the submissions of rounds that were completed in the meantime are dropped.
+     * @param submissions for the substations this node owns
+     * @throws InterruptedException
+     */
+    @PostMapping(value = "/cluster/forward")
+    public void receiveForwardedData(@RequestBody List<ForwardedSubmission> submissions) throws InterruptedException {
+        for (ForwardedSubmission submission : submissions) {
+            ComputationData data;
+            try {
+                data = cluster.read(submission);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            }
+            try {
+                receive(data, submission.isServer(), submission.getHops());
+            } catch (ResponseStatusException e) {
+//                A late, duplicate or mismatched submission must not fail the rest of the batch, the sender would retry it
+                if (e.getStatus() != HttpStatus.CONFLICT && e.getStatus() != HttpStatus.BAD_REQUEST)
+                    throw e;
+                log.debug("Dropped forwarded {}: {}", data, e.getReason());
+            }
+        }
+    }
+
+    /**
+     * @return the memory the buffered rounds use against their budget, and how many participants are buffered
+     */
+    @GetMapping(value = "/buffers")
+    public Map<String, Object> getBuffers() {
+        Map<String, Object> statistics = budget.statistics();
+        bufferLock.lock();
+        try {
+            statistics.put("serverParticipants", serverBuffer.size());
+            statistics.put("clientParticipants", clientBuffer.size());
+            statistics.put("parkedRounds", parkedRounds.size());
+            statistics.put("deferredRounds", deferredRounds.size());
+            statistics.put("roundStates", roundStates.size());
+        } finally {
+            bufferLock.unlock();
+        }
+        return statistics;
+    }
+
+    /**
+     * @return the state of the trusted third-party's circuit and the calls each of its replicas got
+     */
+    @GetMapping(value = "/trusted-party")
+    public Map<String, Object> getTrustedParty() {
+        return publicParameters.statistics();
+    }
+
+    /**
+     * @return the backlog of the verifications against the overload capacity, and how many rounds were deferred
+     */
+    @GetMapping(value = "/overload")
+    public Map<String, Object> getOverload() {
+        Map<String, Object> statistics = sampler.statistics();
+        statistics.put("waiting", deferredRounds.size());
+        return statistics;
+    }
+
+    /**
+     * Answers a submission that does not fit the buffer budget, or that arrives while the most rounds are deferred,
+     * with 429, the sender should retry after a while
+     */
+    @ExceptionHandler(BufferBudget.ExceededException.class)
+    public ResponseEntity<String> handleBudgetExceeded(BufferBudget.ExceededException e) {
+        return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(e.getMessage());
+    }
+
     /****
      * END OF API END POINTS
      ****/
 
     /**
-     * Adds the incoming data in the correct buffer
-     * @param data to add
-     * @param buffer is the place to put the data
-     * @return true if the buffers are full and can verify the fid and substation computation
+     * Buffers the data if this node verifies its substation, and schedules the verification once the round is complete.
+     * Otherwise the data is forwarded to the node of the cluster that owns the substation.
+     * Buffered data is captured as well when the traffic capture is enabled.
+     * @param data to receive
+     * @param fromServer true if the data came from a server, false if it came from a client
+     * @param hops the number of times the data has been forwarded between the nodes of the cluster
      * @throws InterruptedException
+     * @throws ResponseStatusException with 409 if the round is already being verified or has been verified
+     * @throws BufferBudget.ExceededException if the data does not fit the buffer budget or too many rounds are deferred
      */
-    private boolean putData(ComputationData data, DataBuffer buffer) throws InterruptedException {
-        boolean isUnlocked = bufferLock.tryLock(1, TimeUnit.SECONDS);
-        boolean canCompute = false;
-        if (isUnlocked) {
+    private void receive(ComputationData data, boolean fromServer, int hops) throws InterruptedException {
+        if (cluster.forwardIfRemote(data, fromServer, hops))
+            return;
+//        Late and duplicate submissions are rejected before they wait for the buffer lock
+        rejectIfComplete(data);
+        rejectIfBacklogged(data);
+        boolean isAllDataAvailable = putData(data, fromServer ? serverBuffer : clientBuffer);
+        capture.capture(data);
+        if (isAllDataAvailable) {
+            long completed = System.nanoTime();
+            if (sampler.verifyNow(data.getConstruction(), data.getSubstationID()))
+                schedule(data.getConstruction(), data.getSubstationID(), data.getFid(), () -> verifyOnce(data.getSubstationID(), data.getFid(), completed));
+            else
+                defer(data.getConstruction(), data.getSubstationID(), data.getFid(), completed);
+        } else if (data.getConstruction() == Construction.RSA && rsaThresholdVerifier.getQuorum() > 0) {
+            RSAProofAccumulator proof = rsaProofs.get(roundKey(data.getSubstationID(), data.getFid()));
+            RoundParameters parameters = parameters(data.getSubstationID(), data.getFid());
+            if (proof != null && parameters != null && proof.claimQuorum(rsaThresholdVerifier.getQuorum(), parameters.getClients()))
+                schedule(Construction.RSA, data.getSubstationID(), data.getFid(), () -> checkRSAProofEarly(data.getSubstationID(), data.getFid()));
+        }
+    }
+
+    /**
+     * Hands a round to the scheduler once the parameters its construction reads have arrived, so that a round waiting
+     * on the trusted third-party holds neither a thread nor a scheduler slot
+     */
+    private void schedule(Construction construction, int substationID, int fid, Runnable verification) {
+        RoundParameters parameters = parameters(substationID, fid);
+        CompletableFuture<Void> resolved = parameters == null ? CompletableFuture.completedFuture(null) : parameters.whenResolved(construction);
+        pipeline.resolve(resolved).thenRun(() -> scheduler.submit(construction, substationID, fid, verification));
+    }
+
+    /**
+     * Deferred rounds keep their data buffered until the load drops, so while the most of them are waiting no more
+     * data is taken in. Concurrent submissions may still defer a few rounds past the limit.
+     * @throws BufferBudget.ExceededException if maxDeferred rounds are deferred
+     */
+    private void rejectIfBacklogged(ComputationData data) {
+        if (maxDeferred > 0 && deferredRounds.size() >= maxDeferred) {
+            log.debug("Refused {}, {} rounds are deferred", data, deferredRounds.size());
+            throw new BufferBudget.ExceededException("The node is overloaded, " + deferredRounds.size() + " of at most " + maxDeferred + " rounds are deferred");
+        }
+    }
+
+    /**
+     * @throws ResponseStatusException with 409 if the data's round no longer accepts data
+     */
+    private void rejectIfComplete(ComputationData data) {
+        RoundState state = roundStates.get(data.getSubstationID(), data.getFid());
+        if (state != null) {
+            log.debug("Rejected {}, the round is {}", data, state);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "Round " + data.getFid() + " of substation " + data.getSubstationID() + " is " + state.name().toLowerCase());
+        }
+    }
+
+    /**
+     * Verifies a round that putData moved to VERIFYING, then releases the round's buffered data.
+     * Only the round's state is kept, so that later submissions for it are still rejected. A round whose verification
+     * failed for another reason than the trusted third-party being unavailable is published as failed, so that no
+     * consumer waits for it.
+     * @param completedNanos the System.nanoTime() at which the round became complete
+     */
+    private void verifyOnce(int substationID, int fid, long completedNanos) {
+        boolean parked = false;
+        try {
+            performComputations(substationID, fid, completedNanos);
+        } catch (PublicParameters.UnavailableException e) {
+//            The round keeps its data and stays VERIFYING until the trusted third-party answers again
+            park(substationID, fid, completedNanos, e);
+            parked = true;
+        } finally {
+            if (!parked)
+                release(substationID, fid);
+        }
+    }
+
+    /**
+     * Holds a round back until the trusted third-party can be asked again, without a thread waiting for it
+     * @param completedNanos the System.nanoTime() at which the round became complete, or ParkedRound.UNCHECKED if
+     *                       whether it is complete could not be checked
+     */
+    private void park(int substationID, int fid, long completedNanos, PublicParameters.UnavailableException cause) {
+        log.debug("[FID {}] Parked the round of substation {}: {}", fid, substationID, cause.getMessage());
+        parkedRounds.put(roundKey(substationID, fid), new ParkedRound(substationID, fid, completedNanos));
+    }
+
+    /**
+     * Hands the parked rounds back to the scheduler, called whenever the trusted third-party may be asked again: after
+     * a backoff when a failed call left its circuit closed, once a call succeeds again, and when an open circuit lets a
+     * trial call through. While it only lets a trial call through, most of them are parked again at once.
+     */
+    private void redriveParkedRounds() {
+        if (parkedRounds.isEmpty())
+            return;
+        log.info("Re-driving {} rounds parked while the trusted third-party was unavailable", parkedRounds.size());
+        for (Long key : List.copyOf(parkedRounds.keySet())) {
+            ParkedRound round = parkedRounds.remove(key);
+            if (round == null)
+                continue;
+            long completed = round.completedNanos;
+            if (completed == ParkedRound.UNCHECKED) {
+                if (!claimIfComplete(round.substationID, round.fid))
+                    continue;
+                completed = System.nanoTime();
+            }
+            long completedNanos = completed;
+            Construction construction;
+            bufferLock.lock();
             try {
-                log.debug("Got {}", data);
-                buffer.put(data);
-                canCompute = canCompute(data.getSubstationID(), data.getFid());
+                DataBuffer.Fid buffered = serverBuffer.getFid(round.substationID, round.fid);
+//                The round was released, abandoned or handed off while it was parked
+                if (buffered == null) {
+                    log.debug("[FID {}] The parked round of substation {} is no longer buffered", round.fid, round.substationID);
+                    continue;
+                }
+                construction = buffered.getConstruction();
             } finally {
                 bufferLock.unlock();
             }
+            schedule(construction, round.substationID, round.fid, () -> verifyOnce(round.substationID, round.fid, completedNanos));
         }
-        return canCompute;
     }
 
     /**
-     * Check if the buffers contain the required information to compute the verification
-     * @param substationID an identifier for the substation in use
-     * @param fid and identifier for the computation
-     * @return true: if all clients and servers have sent there information and is put into the buffers
+     * Holds a complete round back while the node is overloaded, its data stays buffered and may be spilled off-heap
+     * @param completedNanos the System.nanoTime() at which the round became complete
      */
-    private boolean canCompute(int substationID, int fid) {
-        List<Integer> servers = publicParameters.getServers(); // TODO: 16/04/2020 Add substationID, fid
-        List<Integer> clients = publicParameters.getClients(substationID, fid);
-        if (serverBuffer.contains(substationID, fid) && clientBuffer.contains(substationID, fid)) {
-            boolean serverDataAvailable = serverBuffer.getFid(substationID, fid).keySet().containsAll(servers);
-            boolean clientDataAvailable = clientBuffer.getFid(substationID, fid).keySet().containsAll(clients);
-            return serverDataAvailable && clientDataAvailable;
+    private void defer(Construction construction, int substationID, int fid, long completedNanos) {
+        roundStates.replace(substationID, fid, RoundState.VERIFYING, RoundState.DEFERRED);
+        AuditLog.deferred(construction, substationID, fid, sampler.getRate(substationID));
+        deferredRounds.add(new ParkedRound(substationID, fid, completedNanos));
+//        The verifications that were running may all have finished before the round was queued
+        redriveDeferredRounds();
+    }
+
+    /**
+     * Hands the deferred rounds back to the scheduler, oldest first, as long as the backlog leaves room for them.
+     * Called after every verification, so the deferred rounds are caught up with as soon as the load drops.
+     */
+    private void redriveDeferredRounds() {
+        while (!deferredRounds.isEmpty() && sampler.hasHeadroom()) {
+            ParkedRound round = deferredRounds.poll();
+            if (round == null)
+                return;
+            Construction construction;
+            bufferLock.lock();
+            try {
+                DataBuffer.Fid buffered = serverBuffer.getFid(round.substationID, round.fid);
+//                The round was abandoned or handed off while it was deferred, its state is left as it was
+                if (buffered == null) {
+                    log.debug("[FID {}] The deferred round of substation {} is no longer buffered", round.fid, round.substationID);
+                    continue;
+                }
+//                Claimed under the lock, so that the round is not spilled off-heap while it is being verified
+                if (!roundStates.replace(round.substationID, round.fid, RoundState.DEFERRED, RoundState.VERIFYING))
+                    continue;
+                construction = buffered.getConstruction();
+            } finally {
+                bufferLock.unlock();
+            }
+            AuditLog.redriven(construction, round.substationID, round.fid);
+            schedule(construction, round.substationID, round.fid, () -> verifyOnce(round.substationID, round.fid, round.completedNanos));
         }
-        return false;
     }
 
+    /**
+     * Moves a round whose completeness could not be checked to VERIFYING if it is complete now
+     * @return true if the round was claimed for verification
+     */
+    private boolean claimIfComplete(int substationID, int fid) {
+        bufferLock.lock();
+        try {
+            if (roundStates.contains(substationID, fid))
+                return false;
+            return canCompute(substationID, fid) && roundStates.claim(substationID, fid);
+        } catch (PublicParameters.UnavailableException e) {
+            park(substationID, fid, ParkedRound.UNCHECKED, e);
+            return false;
+        } finally {
+            bufferLock.unlock();
+        }
+    }
 
     /**
-     * This function is internal and map the construction in use to the correct function
-     * @param substationID an identifier for the substation in use
-     * @param fid and identifier for the computation
+     * Releases the buffered data of a verified round, only its state is kept until the substation's watermark passes it
      */
-    private void performComputations(int substationID, int fid) {
+    private void release(int substationID, int fid) {
+        bufferLock.lock();
+        try {
+            discard(substationID, fid);
+            int watermark = roundStates.verified(substationID, fid);
+            if (watermark != RoundStates.UNCHANGED)
+                abandonUpTo(substationID, watermark);
+        } finally {
+            bufferLock.unlock();
+        }
+    }
 
-        DataBuffer.Fid bufferServerData = serverBuffer.getFid(substationID, fid);
-        DataBuffer.Fid bufferClientData = clientBuffer.getFid(substationID, fid);
+    /**
+     * Releases the rounds of a substation that are still collecting at or below its watermark, they have fallen so far
+     * behind its verified rounds that they are taken to be abandoned. Called with the buffer lock held.
+     */
+    private void abandonUpTo(int substationID, int watermark) {
+        Set<RoundKey> abandoned = new HashSet<>(serverBuffer.rounds());
+        abandoned.addAll(clientBuffer.rounds());
+        abandoned.removeIf(round -> round.getSubstationID() != substationID || round.getFid() > watermark);
+        abandoned.forEach(round -> {
+            discard(substationID, round.getFid());
+            parkedRounds.remove(roundKey(substationID, round.getFid()));
+        });
+        if (!abandoned.isEmpty())
+            log.info("Abandoned {} incomplete rounds of substation {} at or below fid {}", abandoned.size(), substationID, watermark);
+    }
 
-        log.info("### Perform computation fid: {} Substation: {} Construction {}", fid, substationID, bufferServerData.getConstruction());
+    private void discard(int substationID, int fid) {
+        serverBuffer.remove(substationID, fid);
+        clientBuffer.remove(substationID, fid);
+        rsaProofs.remove(roundKey(substationID, fid));
+        roundParameters.remove(roundKey(substationID, fid));
+    }
 
-        // Homomorphic Hash verification
-        if (bufferServerData.getConstruction().equals(Construction.HASH)) {
-            List<HashServerData> serverData = bufferServerData.values().stream().map(val -> (HashServerData) val).collect(Collectors.toList());
-            List<HashClientData> clientData = bufferClientData.values().stream().map(val -> (HashClientData) val).collect(Collectors.toList());
-            performHomomorphicHashComputation(serverData, clientData, substationID, fid);
+    /**
+     * Checks the proof of an RSA round once a quorum of servers reported, before the stragglers did.
+     * The result is the sum of every server's partial result, so a round with a valid proof still waits for the rest of
+     * the servers, whose proof data is compared with the quorum's. A round with an invalid proof is settled right away
+     * and the late servers' submissions are rejected.
+     */
+    private void checkRSAProofEarly(int substationID, int fid) {
+        RSAProofAccumulator proof;
+        RoundParameters prefetched;
+        List<BigInteger> clientProofs;
+        bufferLock.lock();
+        try {
+            if (roundStates.contains(substationID, fid))
+                return;
+            proof = rsaProofs.get(roundKey(substationID, fid));
+            prefetched = parameters(substationID, fid);
+            DataBuffer.Fid clients = clientBuffer.getFid(substationID, fid);
+//            The round may have been abandoned, handed off or released since the quorum was claimed
+            if (proof == null || prefetched == null || clients == null)
+                return;
+            clientProofs = clients.values().stream()
+                    .map(data -> ((RSAClientData) data).getProofComponent()).collect(Collectors.toList());
+        } finally {
+            bufferLock.unlock();
         }
+        RoundParameters parameters = prefetched.resolve(Construction.RSA);
+        clientProofs.add(parameters.getLastClientProof());
+        BigInteger serverProof = pipeline.aggregate(() -> proof.finish(parameters.getLastClientProof()));
+        boolean proofValid = proof.getDisagreeing().isEmpty()
+                && pipeline.verify(() -> rsaThresholdVerifier.verifyProof(parameters.getFieldBase(), serverProof, clientProofs));
+        if (proofValid) {
+            log.debug("[FID {}] RSA: proof of substation {} holds for the quorum", fid, substationID);
+            return;
+        }
+//        A complete round may have been claimed for verification in the meantime, it will find the proof invalid too
+        if (!roundStates.claim(substationID, fid))
+            return;
+        try {
+            log.info("[FID {}] RSA: proof of substation {} is invalid before every server reported, disagreeing servers:{}", fid, substationID, proof.getDisagreeing());
+            VerificationResult result = new VerificationResult(Construction.RSA, substationID, fid, null, false);
+            pipeline.publish(() -> resultPublisher.publish(result));
+        } finally {
+            release(substationID, fid);
+        }
+    }
 
-        // RSA verification
-        if (bufferServerData.getConstruction().equals(Construction.RSA)) {
-            List<RSAServerData> serverData = bufferServerData.values().stream().map(val -> (RSAServerData) val).collect(Collectors.toList());
-            List<RSAClientData> clientData = bufferClientData.values().stream().map(val -> (RSAClientData) val).collect(Collectors.toList());
-            performRSAThresholdComputation(serverData, clientData, substationID, fid);
+    /**
+     * Hands the incomplete rounds of the substations this node no longer owns to their new owner, after a node
+     * joined or left the cluster. Complete rounds are verified where they are.
+     */
+    private void handOffRounds() {
+        int handedOff = 0;
+        bufferLock.lock();
+        try {
+            Set<RoundKey> rounds = new HashSet<>(serverBuffer.rounds());
+            rounds.addAll(clientBuffer.rounds());
+            for (RoundKey round : rounds) {
+                int substationID = round.getSubstationID(), fid = round.getFid();
+                if (cluster.isLocal(substationID) || roundStates.contains(substationID, fid))
+                    continue;
+                handOff(serverBuffer.remove(substationID, fid), true);
+                handOff(clientBuffer.remove(substationID, fid), false);
+                rsaProofs.remove(roundKey(substationID, fid));
+                roundParameters.remove(roundKey(substationID, fid));
+                parkedRounds.remove(roundKey(substationID, fid));
+                handedOff++;
+            }
+        } finally {
+            bufferLock.unlock();
         }
+        if (handedOff > 0)
+            log.info("Handed {} incomplete rounds to their new owner", handedOff);
+    }
 
-        // Linear verification
-        if (bufferServerData.getConstruction().equals(Construction.LINEAR)) {
-            List<LinearServerData> serverData = bufferServerData.values().stream().map(val -> (LinearServerData) val).collect(Collectors.toList());
-            List<LinearClientData> clientData = bufferClientData.values().stream().map(val -> (LinearClientData) val).collect(Collectors.toList());
-            performLinearSignatureComputation(serverData, clientData, substationID, fid);
+    /**
+     * Moves the payloads of the rounds that are still collecting or are deferred, and have been idle for a while,
+     * off-heap. Skipped when the buffers are busy, the next run will catch up.
+     */
+    private void spillIdleRounds() {
+        if (!bufferLock.tryLock())
+            return;
+        int spilled;
+        try {
+            DataBuffer.RoundFilter waiting = (substationID, fid) -> {
+                RoundState state = roundStates.get(substationID, fid);
+                return state == null || state == RoundState.DEFERRED;
+            };
+            spilled = serverBuffer.spillIdle(waiting) + clientBuffer.spillIdle(waiting);
+        } finally {
+            bufferLock.unlock();
         }
+        if (spilled > 0)
+            log.debug("Spilled {} idle round buffers off-heap", spilled);
+    }
+
+    private void handOff(DataBuffer.Fid buffered, boolean fromServer) {
+        if (buffered != null)
+            buffered.values().forEach(data -> cluster.forwardIfRemote(data, fromServer, 0));
+    }
 
-        // Differential Privacy verification
-        if (bufferServerData.getConstruction().equals(Construction.DP)) {
-            List<DPServerData> serverData = bufferServerData.values().stream().map(val -> (DPServerData) val).collect(Collectors.toList());
-            List<DPClientData> clientData = bufferClientData.values().stream().map(val -> (DPClientData) val).collect(Collectors.toList());
-            performDifferentialPrivacyComputation(serverData, clientData, substationID, fid);
+    /**
+     * Adds the incoming data in the correct buffer
+     * @param data to add
+     * @param buffer is the place to put the data
+     * @return true if this data completed the round, which then moves to VERIFYING. This happens once per round.
+     * @throws InterruptedException
+     * @throws ResponseStatusException with 503 if the buffers could not be locked, so that the sender knows the data was dropped
+     * @throws ResponseStatusException with 409 if the round was completed while waiting for the lock, or if an RSA
+     * client sends another public key after its proof was started
+     * @throws ResponseStatusException with 400 if the data's type does not match the round's buffered data
+     * @throws BufferBudget.ExceededException if the data does not fit the buffer budget
+     */
+    private boolean putData(ComputationData data, DataBuffer buffer) throws InterruptedException {
+        boolean isUnlocked = bufferLock.tryLock(1, TimeUnit.SECONDS);
+        if (!isUnlocked) {
+            log.warn("Dropped {}, the buffers are busy", data);
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "The buffers are busy, the data was dropped");
         }
+        try {
+            rejectIfComplete(data);
+            rejectChangedPublicKey(data);
+            log.debug("Got {}", data);
+            try {
+                buffer.put(data);
+            } catch (IllegalArgumentException e) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+            } catch (BufferBudget.ExceededException e) {
+                log.debug("Refused {}: {}", data, e.getMessage());
+                throw e;
+            }
+//            The first buffered submission of a round starts fetching the parameters the round will need. A refused
+//            submission fetches nothing, so that no parameters are left behind for a round that holds no data.
+            roundParameters.computeIfAbsent(roundKey(data.getSubstationID(), data.getFid()),
+                    key -> publicParameters.prefetch(data.getConstruction(), data.getSubstationID(), data.getFid(), executors.io()));
+            if (data.getConstruction() == Construction.RSA)
+                addToRSAProof(data);
+            return canCompute(data.getSubstationID(), data.getFid()) && roundStates.claim(data.getSubstationID(), data.getFid());
+        } catch (PublicParameters.UnavailableException e) {
+//            The data is buffered, whether it completed the round is checked again once the trusted third-party answers
+            park(data.getSubstationID(), data.getFid(), ParkedRound.UNCHECKED, e);
+            return false;
+        } finally {
+            bufferLock.unlock();
+        }
+    }
 
+    /**
+     * @throws ResponseStatusException with 409 if an RSA client sends another public key after its proof was started
+     */
+    private void rejectChangedPublicKey(ComputationData data) {
+        if (!(data instanceof RSAClientData))
+            return;
+        RSAProofAccumulator proof = rsaProofs.get(roundKey(data.getSubstationID(), data.getFid()));
+        if (proof != null && !proof.accepts((RSAClientData) data)) {
+            log.debug("Rejected {}, its proof was started with another public key", data);
+            throw new ResponseStatusException(HttpStatus.CONFLICT, "The proof of client " + data.getId() + " in round " + data.getFid() + " of substation " + data.getSubstationID() + " was started with another public key");
+        }
     }
 
     /**
-     * This function handles all the computations for the Homomorphic Hash based construction
-     * @param serverData a list of all the data from the servers for the given fid and substation
-     * @param clientData a list of all the data from the clients for the given fid and substation
-     * @param substationID id for the substation
-     * @param fid id for the computation
+     * Starts reconstructing the RSA proof of every client that now has both its public key and its proof data buffered
+     * @param data the RSA data that was just buffered
      */
-    private void performHomomorphicHashComputation(List<HashServerData> serverData, List<HashClientData> clientData, int substationID, int fid) {
-//        Collect the clients' proof (tau) from the data object
-        List<BigInteger> clientProofs = clientData.stream().map(HashClientData::getProofComponent).collect(Collectors.toList());
-//        Query the trusted third-party to receive Rn and add it to the list of client proofs
-        BigInteger lastClientProof = publicParameters.getLastClientProof(substationID, fid);
-        clientProofs.add(lastClientProof);
-//        Compute the final evaluation, i.e., compute the final sum of the servers partial sum
-        BigInteger hashResult = homomorphicHashVerifier.finalEval(serverData.stream().map(HashServerData::getPartialResult));
-//        Compute the final proof, i.e., compute the product of the servers' partial proofs
-        BigInteger hashServerProof = homomorphicHashVerifier.finalProof(serverData.stream().map(HashServerData::getPartialProof), substationID);
-//        Verify that the computations are correct.
-        boolean hashValidResult = homomorphicHashVerifier.verify(substationID, hashResult, hashServerProof, clientProofs);
-        log.info("[FID {}] Hash: result:{} server proof:{} valid:{}", fid, hashResult, hashServerProof, hashValidResult);
+    private void addToRSAProof(ComputationData data) {
+        RSAProofAccumulator proof = rsaProofs.computeIfAbsent(roundKey(data.getSubstationID(), data.getFid()),
+                key -> rsaThresholdVerifier.newProofAccumulator(data.getSubstationID(), parameters(data.getSubstationID(), data.getFid())::getFieldBase));
+        if (data instanceof RSAServerData)
+            proof.add((RSAServerData) data);
+        else
+            proof.add((RSAClientData) data);
     }
 
+    private static long roundKey(int substationID, int fid) {
+        return ((long) substationID << 32) | (fid & 0xffffffffL);
+    }
+
+    private RoundParameters parameters(int substationID, int fid) {
+        return roundParameters.get(roundKey(substationID, fid));
+    }
 
     /**
-     * This function handles all the computations for the RSA threshold based construction
-     * @param serverData a list of all the data from the servers for the given fid and substation
-     * @param clientData a list of all the data from the clients for the given fid and substation
-     * @param substationID id for the substation
-     * @param fid id for the computation
+     * Check if the buffers contain the required information to compute the verification
+     * @param substationID an identifier for the substation in use
+     * @param fid and identifier for the computation
+     * @return true: if all clients and servers have sent there information and is put into the buffers
      */
-    private void performRSAThresholdComputation(List<RSAServerData> serverData, List<RSAClientData> clientData, int substationID, int fid) {
-//        Collect the clients' proof (tau) from the data object
-        List<BigInteger> clientProofs = clientData.stream().map(RSAClientData::getProofComponent).collect(Collectors.toList());
-//        Query the trusted third-party to receive Rn and add it to the list of client proofs
-        BigInteger lastClientProof = publicParameters.getLastClientProof(substationID, fid);
-        clientProofs.add(lastClientProof);
-//        Collect the servers' partial results from the data object
-        Stream<BigInteger> partialResults = serverData.stream().map(RSAServerData::getPartialResult);
-//        Collect the servers' partial proofs from the data obejct
-        Map<Integer, RSAServerData.ProofData> serverProofInfo = serverData.get(0).getPartialProofs();
-
-//        Add the public key to each proof component computation.
-        clientData.forEach(client -> serverProofInfo.get(client.getId()).setPublicKey(client.getPublicKey()));
-
-//        Compute the final evaluation, i.e., compute the final sum of the servers partial sum
-        BigInteger rsaResult = rsaThresholdVerifier.finalEval(partialResults);
-//        Compute the final proof, i.e, the product of all servers' proof to the power of the proofs public key
-        BigInteger rsaServerProof = rsaThresholdVerifier.finalProof(serverProofInfo.values(), substationID, lastClientProof);
-//        Verify that the computations are correct
-        boolean rsaValidResult = rsaThresholdVerifier.verify(substationID, rsaResult, rsaServerProof, clientProofs);
-
-        log.info("[FID {}] RSA: result:{} server proof:{} valid:{}", fid, rsaResult, rsaServerProof, rsaValidResult);
+    private boolean canCompute(int substationID, int fid) {
+        if (serverBuffer.contains(substationID, fid) && clientBuffer.contains(substationID, fid)) {
+            RoundParameters parameters = parameters(substationID, fid);
+            List<Integer> servers = parameters.getServers(); // TODO: 16/04/2020 Add substationID, fid
+            List<Integer> clients = parameters.getClients();
+            boolean serverDataAvailable = serverBuffer.getFid(substationID, fid).containsAll(servers);
+            boolean clientDataAvailable = clientBuffer.getFid(substationID, fid).containsAll(clients);
+            return serverDataAvailable && clientDataAvailable;
+        }
+        return false;
     }
 
+
     /**
-     * This function handles all the computations for the Linear Signature based construction
-     * @param serverData a list of all the data from the servers for the given fid and substation
-     * @param clientData a list of all the data from the clients for the given fid and substation
-     * @param substationID id for the substation
-     * @param fid id for the computation
+     * Hands the round to the verifier of its construction and publishes the outcome
+     * @param substationID an identifier for the substation in use
+     * @param fid and identifier for the computation
+     * @param completedNanos the System.nanoTime() at which the round became complete, for the result's timings
      */
-    private void performLinearSignatureComputation(List<LinearServerData> serverData, List<LinearClientData> clientData, int substationID, int fid) {
-//        Compute the final evaluation, i.e., compute the final sum of the servers partial sum
-        BigInteger linearResult = linearSignature.finalEval(serverData.stream().map(LinearServerData::getPartialResult));
-//        Collects the public available data
-        LinearPublicData publicData = publicParameters.getLinearPublicData(substationID, fid);
-//        Query the trusted third-party to receive Rn
-        BigInteger rn = publicParameters.getRn(substationID, fid);
-//        Computes the final proof
-        LinearProofData proofData = linearSignature.finalProof(clientData, publicData);
-//        Verify that the computations are correct
-        boolean validResult = linearSignature.verify(linearResult, proofData, publicData, rn);
-        log.info("[FID {}] Linear: result:{} valid:{}", fid, linearResult, validResult);
+    private void performComputations(int substationID, int fid, long completedNanos) {
+        Construction construction;
+        List<ComputationData> serverData, clientData;
+        RoundParameters prefetched;
+//        The buffers are not thread safe, the round's data is copied under the lock and verified outside of it
+        bufferLock.lock();
+        try {
+            DataBuffer.Fid bufferServerData = serverBuffer.getFid(substationID, fid);
+            construction = bufferServerData.getConstruction();
+            serverData = bufferServerData.values();
+            clientData = clientBuffer.getFid(substationID, fid).values();
+            prefetched = parameters(substationID, fid);
+        } finally {
+            bufferLock.unlock();
+        }
+
+        log.debug("### Perform computation fid: {} Substation: {} Construction {}", fid, substationID, construction);
+        long started = System.nanoTime();
+//        The round was scheduled once its parameters arrived, only a failed prefetch is looked up again here
+        VerificationResult result;
+        try {
+            RoundParameters parameters = prefetched.resolve(construction);
+            Round round = new Round(substationID, fid, construction, serverData, clientData,
+                    parameters, rsaProofs.get(roundKey(substationID, fid)));
+            result = verifiers.get(construction).verify(round, pipeline);
+        } catch (PublicParameters.UnavailableException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof PublicParameters.UnavailableException)
+                throw (PublicParameters.UnavailableException) cause;
+            log.error("[FID {}] {}: verification of substation {} failed", fid, construction, substationID, cause);
+            result = VerificationResult.failed(construction, substationID, fid, cause.toString());
+        }
+
+//        A deferred round is not checked yet, its outcome is published with its window
+        if (result.isDeferred())
+            return;
+        VerificationResult timed = result.withTimings(started - completedNanos, System.nanoTime() - started);
+        pipeline.publish(() -> resultPublisher.publish(timed));
     }
 
     /**
-     * This function handles all the computations for the Differential Privacy based construction
-     * @param serverData a list of all the data from the servers for the given fid and substation
-     * @param clientData a list of all the data from the clients for the given fid and substation
-     * @param substationID id for the substation
-     * @param fid id for the computation
+     * Publishes the outcome of every deferred round of a closed window
      */
-    private void performDifferentialPrivacyComputation(List<DPServerData> serverData, List<DPClientData> clientData, int substationID, int fid) {
-//        Collect the clients' proof (tau) from the data object
-        List<BigInteger> clientProofs = clientData.stream().map(DPClientData::getProofComponent).collect(Collectors.toList());
-//        Query the trusted third-party to receive Rn and add it to the list of client proofs
-        BigInteger lastClientProof = publicParameters.getLastClientProof(substationID, fid);
-        clientProofs.add(lastClientProof);
-//        Compute the final evaluation, i.e., compute the final sum of the servers partial sum
-        BigInteger DPResult = differentialPrivacy.finalEval(serverData.stream().map(DPServerData::getPartialResult));
-//        Compute the final proof, i.e., compute the product of the servers' partial proofs
-        BigInteger DPServerProof = differentialPrivacy.finalProof(serverData.stream().map(DPServerData::getPartialProof), substationID);
-//        Verify that the computations are correct.
-        boolean DPValidResult = differentialPrivacy.verify(substationID, DPResult, DPServerProof, clientProofs);
-        log.info("[FID {}] DP: result:{} server proof:{} valid:{}", fid, DPResult, DPServerProof, DPValidResult);
+    private void publishWindow(Construction construction, HashWindow window) {
+        log.info("[Window {}] {}: substation:{} rounds:{} valid:{}", window.getIndex(), construction, window.getSubstationID(), window.size(), window.isValid());
+        pipeline.publish(() -> window.getRounds().forEach(round -> resultPublisher.publish(
+                new VerificationResult(construction, window.getSubstationID(), round.getFid(), round.getResult(), round.isValid()))));
     }
 
 
+    /**
+     * A round held back while the trusted third-party was unavailable, or while the node was overloaded
+     */
+    private static class ParkedRound {
+        private static final long UNCHECKED = Long.MIN_VALUE;
+
+        private final int substationID, fid;
+        private final long completedNanos;
+
+        private ParkedRound(int substationID, int fid, long completedNanos) {
+            this.substationID = substationID;
+            this.fid = fid;
+            this.completedNanos = completedNanos;
+        }
+    }
+
     public static void main(String[] args) {
         SpringApplication.run(VerifierApplication.class, args);
     }
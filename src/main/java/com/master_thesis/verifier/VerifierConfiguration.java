@@ -0,0 +1,139 @@
+package com.master_thesis.verifier;
+
+import com.master_thesis.verifier.core.HomomorphicHashVerifier;
+import com.master_thesis.verifier.core.LinearSignatureVerifier;
+import com.master_thesis.verifier.core.RSAThresholdVerifier;
+import com.master_thesis.verifier.core.Verifier;
+import com.master_thesis.verifier.data.BufferBudget;
+import com.master_thesis.verifier.data.SpillStore;
+import com.master_thesis.verifier.pipeline.VerificationPipeline;
+import com.master_thesis.verifier.utils.AuditLog;
+import com.master_thesis.verifier.utils.CircuitBreaker;
+import com.master_thesis.verifier.utils.PublicParameters;
+import com.master_thesis.verifier.utils.ReplicaBalancer;
+import com.master_thesis.verifier.utils.ResultPublisher;
+import com.master_thesis.verifier.utils.VerifierExecutors;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Wires the classes of verifier-core, which know nothing of Spring, with the application's properties.
+ * Their shutdown methods are picked up as destroy methods.
+ */
+@Configuration
+public class VerifierConfiguration {
+
+    public VerifierConfiguration(@Value("${verifier.audit.sample-rate:0.01}") double auditSampleRate) {
+        AuditLog.setSampleRate(auditSampleRate);
+    }
+
+    @Bean
+    public PublicParameters publicParameters(ReplicaBalancer trustedPartyReplicas,
+                                             @Value("${verifier.trusted-party.bulk.enabled:false}") boolean bulk,
+                                             @Value("${verifier.trusted-party.bulk.window-ms:2}") long bulkWindow,
+                                             @Value("${verifier.trusted-party.bulk.max-size:256}") int bulkMaxSize,
+                                             @Value("${verifier.trusted-party.timeout-ms:5000}") long timeoutMs,
+                                             @Value("${verifier.trusted-party.hedge-ms:0}") long hedgeMs,
+                                             @Value("${verifier.trusted-party.health-check-ms:5000}") long healthCheckMs,
+                                             CircuitBreaker trustedPartyBreaker,
+                                             VerifierExecutors executors) {
+        return new PublicParameters(trustedPartyReplicas, bulk, bulkWindow, bulkMaxSize, executors.io(),
+                Duration.ofMillis(timeoutMs), Duration.ofMillis(hedgeMs), trustedPartyBreaker, Duration.ofMillis(healthCheckMs));
+    }
+
+    /**
+     * verifier.trusted-party.url is a comma separated list of the trusted third-party's replicas
+     */
+    @Bean
+    public ReplicaBalancer trustedPartyReplicas(@Value("${verifier.trusted-party.url:http://localhost:4000}") String urls,
+                                                @Value("${verifier.trusted-party.eject.failures:3}") int ejectAfterFailures,
+                                                @Value("${verifier.trusted-party.eject.ms:10000}") long ejectMs) {
+        List<String> replicas = Arrays.stream(urls.split(",")).map(String::trim).filter(url -> !url.isEmpty()).collect(Collectors.toList());
+        return new ReplicaBalancer(replicas, ejectAfterFailures, Duration.ofMillis(ejectMs));
+    }
+
+    @Bean
+    public CircuitBreaker trustedPartyBreaker(@Value("${verifier.trusted-party.breaker.failures:5}") int failures,
+                                              @Value("${verifier.trusted-party.breaker.open-ms:2000}") long openMs,
+                                              @Value("${verifier.trusted-party.breaker.retry-ms:100}") long retryMs) {
+        return new CircuitBreaker("the trusted third-party", failures, Duration.ofMillis(openMs), Duration.ofMillis(retryMs));
+    }
+
+    @Bean
+    public HomomorphicHash homomorphicHash(PublicParameters publicParameters,
+                                           @Value("${verifier.window.fids:0}") int windowFids,
+                                           @Value("${verifier.window.sample-rate:0.05}") double sampleRate,
+                                           @Value("${verifier.window.substations:}") String windowedSubstations,
+                                           @Value("${verifier.window.idle-ms:5000}") long idleMs) {
+        return new HomomorphicHash(publicParameters, windowFids, sampleRate, windowedSubstations, Duration.ofMillis(idleMs));
+    }
+
+    @Bean
+    public DifferentialPrivacy differentialPrivacy(PublicParameters publicParameters,
+                                                   @Value("${verifier.window.fids:0}") int windowFids,
+                                                   @Value("${verifier.window.sample-rate:0.05}") double sampleRate,
+                                                   @Value("${verifier.window.substations:}") String windowedSubstations,
+                                                   @Value("${verifier.window.idle-ms:5000}") long idleMs) {
+        return new DifferentialPrivacy(publicParameters, windowFids, sampleRate, windowedSubstations, Duration.ofMillis(idleMs));
+    }
+
+    @Bean
+    public RSAThreshold rsaThreshold(PublicParameters publicParameters,
+                                     @Value("${verifier.rsa.parallelism:0}") int parallelism,
+                                     @Value("${verifier.rsa.quorum:0}") int quorum) {
+        return new RSAThreshold(publicParameters, parallelism, quorum);
+    }
+
+    @Bean
+    public LinearSignature linearSignature() {
+        return new LinearSignature();
+    }
+
+    @Bean
+    public SpillStore spillStore(@Value("${verifier.buffer.spill.idle-ms:0}") long idleMs,
+                                 @Value("${verifier.buffer.spill.max-mb:256}") long maxMb) {
+        return new SpillStore(idleMs, maxMb);
+    }
+
+    @Bean
+    public BufferBudget bufferBudget(@Value("${verifier.budget.max-mb:512}") long maxMb,
+                                     @Value("${verifier.budget.substation-max-mb:0}") long substationMaxMb) {
+        return new BufferBudget(maxMb * 1024 * 1024, substationMaxMb * 1024 * 1024);
+    }
+
+    @Bean
+    public ResultPublisher resultPublisher() {
+        return new ResultPublisher();
+    }
+
+    @Bean
+    public Verifier hashVerifier(@Qualifier("homomorphicHash") HomomorphicHash homomorphicHash) {
+        return HomomorphicHashVerifier.forHash(homomorphicHash);
+    }
+
+    @Bean
+    public Verifier dpVerifier(DifferentialPrivacy differentialPrivacy) {
+        return HomomorphicHashVerifier.forDifferentialPrivacy(differentialPrivacy);
+    }
+
+    @Bean
+    public Verifier rsaVerifier(RSAThreshold rsaThreshold) {
+        return new RSAThresholdVerifier(rsaThreshold);
+    }
+
+    @Bean
+    public Verifier linearVerifier(LinearSignature linearSignature, VerificationPipeline pipeline, VerifierExecutors executors,
+                                   @Value("${verifier.linear.batch.window-ms:0}") long windowMs,
+                                   @Value("${verifier.linear.batch.max-size:64}") int maxSize) {
+        if (windowMs <= 0)
+            return new LinearSignatureVerifier(linearSignature);
+        return new LinearSignatureVerifier(linearSignature, pipeline, executors.io(), Duration.ofMillis(windowMs), maxSize);
+    }
+}
@@ -0,0 +1,167 @@
+package com.master_thesis.verifier.capture;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.data.ComputationData;
+import com.master_thesis.verifier.data.RecordFile;
+import com.master_thesis.verifier.data.SubmissionRecord;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records every accepted submission, with its endpoint and the time it was accepted, to gzip compressed
+ * {@link RecordFile}s, for replaying real traffic against the verifier later.
+ * The ingestion threads only offer the submission to a bounded queue, a single thread writes the files. A submission
+ * that finds the queue full is not recorded rather than slowing the ingestion down. A file is closed and the next
+ * one started once it holds maxBytes of uncompressed records, the oldest files are deleted beyond maxFiles.
+ * <p>
+ * Disabled unless verifier.capture.enabled=true.
+ */
+@Component
+public class TrafficCapture {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(TrafficCapture.class);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final long maxBytes;
+    private final int maxFiles;
+    private final BlockingQueue<SubmissionRecord> queue;
+    private final Deque<Path> files = new ArrayDeque<>();
+    private final AtomicLong captured = new AtomicLong(), dropped = new AtomicLong();
+    private final Thread writer;
+    private volatile boolean running = true;
+    private DataOutputStream out;
+
+    @Autowired
+    public TrafficCapture(@Value("${verifier.capture.enabled:false}") boolean enabled,
+                          @Value("${verifier.capture.directory:capture}") String directory,
+                          @Value("${verifier.capture.file-mb:256}") long fileMb,
+                          @Value("${verifier.capture.max-files:10}") int maxFiles,
+                          @Value("${verifier.capture.queue-size:65536}") int queueSize) throws IOException {
+        this(enabled, Path.of(directory), fileMb * 1024 * 1024, maxFiles, queueSize);
+    }
+
+    /**
+     * @param directory where the capture files are written
+     * @param maxBytes the uncompressed size after which a file is rotated
+     * @param maxFiles the number of files that are kept, zero keeps all of them
+     * @param queueSize the number of submissions that can wait for the writer
+     */
+    public TrafficCapture(boolean enabled, Path directory, long maxBytes, int maxFiles, int queueSize) throws IOException {
+        if (enabled && (maxBytes < 1 || maxFiles < 0 || queueSize < 1))
+            throw new IllegalArgumentException("A capture needs room in its files and queue, got " + maxBytes + " bytes, " + maxFiles + " files and a queue of " + queueSize);
+        this.enabled = enabled;
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        this.maxFiles = maxFiles;
+        this.queue = enabled ? new ArrayBlockingQueue<>(queueSize) : null;
+        if (!enabled) {
+            this.writer = null;
+            return;
+        }
+        Files.createDirectories(directory);
+        this.writer = new Thread(this::write, "verifier-capture");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("Capturing the accepted submissions to {}", directory.toAbsolutePath());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queues an accepted submission for the capture, without waiting
+     */
+    public void capture(ComputationData data) {
+        if (!enabled)
+            return;
+        if (!queue.offer(new SubmissionRecord(System.currentTimeMillis(), data)))
+            dropped.incrementAndGet();
+    }
+
+    public long getCaptured() {
+        return captured.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Writes the queued submissions until the capture is closed and the queue is drained. The file is flushed whenever
+     * the queue runs empty, so a capture that is not closed properly loses at most what was still queued.
+     */
+    private void write() {
+        try {
+            while (running || !queue.isEmpty()) {
+                SubmissionRecord record = queue.poll(200, TimeUnit.MILLISECONDS);
+                if (record == null) {
+                    if (out != null)
+                        out.flush();
+                    continue;
+                }
+                if (out == null || out.size() >= maxBytes)
+                    rotate();
+                RecordFile.write(out, record);
+                captured.incrementAndGet();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | RuntimeException e) {
+            log.error("Capturing submissions failed, the capture stops", e);
+        } finally {
+            closeFile();
+        }
+    }
+
+    private void rotate() throws IOException {
+        closeFile();
+        Path file = directory.resolve("capture-" + System.currentTimeMillis() + "-" + captured.get() + ".rec.gz");
+        out = new DataOutputStream(new GZIPOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16), 1 << 16, true));
+        RecordFile.writeHeader(out);
+        files.addLast(file);
+        while (maxFiles > 0 && files.size() > maxFiles)
+            Files.deleteIfExists(files.removeFirst());
+        log.debug("Capturing to {}", file);
+    }
+
+    private void closeFile() {
+        if (out == null)
+            return;
+        try {
+            out.close();
+        } catch (IOException e) {
+            log.warn("Closing the capture file failed: {}", e.toString());
+        }
+        out = null;
+    }
+
+    /**
+     * Writes what is still queued and closes the current file
+     */
+    @PreDestroy
+    public void close() throws InterruptedException {
+        if (!enabled)
+            return;
+        running = false;
+        writer.join();
+        log.info("Captured {} submissions, {} did not fit the queue", captured.get(), dropped.get());
+    }
+}
@@ -0,0 +1,58 @@
+package com.master_thesis.verifier.cluster;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The membership end points of the cluster, forwarded submissions are received by the VerifierApplication
+ */
+@RestController
+@RequestMapping(value = "/api/cluster")
+public class ClusterController {
+
+    private ClusterRouter router;
+
+    @Autowired
+    public ClusterController(ClusterRouter router) {
+        this.router = router;
+    }
+
+    @GetMapping(value = "/nodes")
+    public Map<String, Object> getNodes() {
+        Map<String, Object> view = new LinkedHashMap<>();
+        view.put("enabled", router.isEnabled());
+        view.put("self", router.getSelf());
+        view.put("nodes", router.getRing().getNodes());
+        view.put("virtualNodes", router.getRing().getVirtualNodes());
+        view.put("forwards", router.getForwardCounts());
+        return view;
+    }
+
+    @GetMapping(value = "/owner/{substationID}")
+    public String getOwner(@PathVariable int substationID) {
+        requireEnabled();
+        return router.getRing().ownerOf(substationID);
+    }
+
+    @PostMapping(value = "/nodes")
+    public void join(@RequestParam String node) {
+        requireEnabled();
+        router.join(node);
+    }
+
+    @DeleteMapping(value = "/nodes")
+    public void leave(@RequestParam String node) {
+        requireEnabled();
+        router.leave(node);
+    }
+
+    private void requireEnabled() {
+        if (!router.isEnabled())
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Cluster mode is disabled");
+    }
+}
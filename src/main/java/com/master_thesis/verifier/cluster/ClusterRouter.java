@@ -0,0 +1,247 @@
+package com.master_thesis.verifier.cluster;
+
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.data.*;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Shards the substations over the verifier nodes of a cluster.
+ * Every round of a substation is verified by the node that owns the substation on the consistent hash ring, a node
+ * that receives a submission for a substation it does not own forwards it to the owner in batches.
+ * The nodes are configured with verifier.cluster.nodes, a starting node announces itself to the other nodes and a
+ * stopping node says goodbye, which moves the ownership of the substations on the ring.
+ * <p>
+ * With verifier.cluster.enabled=false, the default, every substation is verified locally.
+ */
+@Component
+public class ClusterRouter {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(ClusterRouter.class);
+    /**
+     * A submission is verified where it is after this many forwards, so that nodes with a different view of the
+     * ring during a membership change cannot pass it around forever
+     */
+    static final int MAX_HOPS = 2;
+
+    private final boolean enabled;
+    private final String self;
+    private final Duration batchWindow;
+    private final int batchMaxSize;
+    private final int retryAttempts;
+    private final Duration retryBackoff;
+    private final ObjectMapper objectMapper;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService timer;
+    private final Map<String, NodeForwarder> forwarders = new ConcurrentHashMap<>();
+    private final List<Runnable> ringListeners = new CopyOnWriteArrayList<>();
+    private volatile ConsistentHashRing ring;
+
+    @Autowired
+    public ClusterRouter(@Value("${verifier.cluster.enabled:false}") boolean enabled,
+                         @Value("${verifier.cluster.self:http://localhost:${server.port:8080}}") String self,
+                         @Value("${verifier.cluster.nodes:}") String nodes,
+                         @Value("${verifier.cluster.virtual-nodes:128}") int virtualNodes,
+                         @Value("${verifier.cluster.batch.window-ms:2}") long batchWindowMs,
+                         @Value("${verifier.cluster.batch.max-size:256}") int batchMaxSize,
+                         @Value("${verifier.cluster.retry.max-attempts:8}") int retryAttempts,
+                         @Value("${verifier.cluster.retry.backoff-ms:100}") long retryBackoffMs,
+                         ObjectMapper objectMapper) {
+        this.enabled = enabled;
+        this.self = self;
+        this.batchWindow = Duration.ofMillis(batchWindowMs);
+        this.batchMaxSize = batchMaxSize;
+        this.retryAttempts = retryAttempts;
+        this.retryBackoff = Duration.ofMillis(retryBackoffMs);
+        this.objectMapper = objectMapper;
+        Set<String> members = Arrays.stream(nodes.split(",")).map(String::trim).filter(node -> !node.isEmpty()).collect(Collectors.toSet());
+        members.add(self);
+        this.ring = new ConsistentHashRing(members, virtualNodes);
+//        HTTP/1.1 so that the connections to the other nodes are kept alive and reused between batches
+        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).connectTimeout(Duration.ofSeconds(2)).build();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "verifier-cluster-forward");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (enabled)
+            log.info("Cluster mode, {} is one of {}", self, ring.getNodes());
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public String getSelf() {
+        return self;
+    }
+
+    public ConsistentHashRing getRing() {
+        return ring;
+    }
+
+    /**
+     * @param substationID the substation to look up
+     * @return true if this node verifies the substation's rounds
+     */
+    public boolean isLocal(int substationID) {
+        return !enabled || self.equals(ring.ownerOf(substationID));
+    }
+
+    /**
+     * Forwards the submission to the owner of its substation, unless this node is the owner
+     * @param data the submission
+     * @param server true if the submission came from a server, false if it came from a client
+     * @param hops the number of times the submission has already been forwarded
+     * @return true if the submission was forwarded, false if it should be verified here
+     */
+    public boolean forwardIfRemote(ComputationData data, boolean server, int hops) {
+        if (!enabled || hops >= MAX_HOPS)
+            return false;
+        String owner = ring.ownerOf(data.getSubstationID());
+        if (self.equals(owner))
+            return false;
+        log.debug("Forwarding {} to {}", data, owner);
+        forwarders.computeIfAbsent(owner, node -> new NodeForwarder(node, httpClient, objectMapper, timer, batchWindow, batchMaxSize, retryAttempts, retryBackoff))
+                .forward(new ForwardedSubmission(server, hops + 1, objectMapper.valueToTree(data)));
+        return true;
+    }
+
+    /**
+     * Reads a forwarded submission back into the data type of its construction
+     * @param submission as received from another node
+     * @return the submission's data
+     * @throws IllegalArgumentException if the submission cannot be read
+     */
+    public ComputationData read(ForwardedSubmission submission) {
+        JsonNode payload = submission.getPayload();
+        if (payload == null || !payload.hasNonNull("construction"))
+            throw new IllegalArgumentException("A forwarded submission needs a payload with a construction");
+        Construction construction = Construction.valueOf(payload.get("construction").asText());
+        try {
+            return objectMapper.treeToValue(payload, dataType(construction, submission.isServer()));
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not read the forwarded " + construction.name() + " submission", e);
+        }
+    }
+
+    /**
+     * Adds a node to the ring, it takes over the substations between it and its neighbour
+     * @param node the address of the node
+     */
+    public void join(String node) {
+        if (updateRing(ring -> ring.with(node)))
+            log.info("{} joined the cluster, the nodes are {}", node, ring.getNodes());
+    }
+
+    /**
+     * Removes a node from the ring, its neighbours take over its substations
+     * @param node the address of the node
+     */
+    public void leave(String node) {
+        if (updateRing(ring -> ring.without(node)))
+            log.info("{} left the cluster, the nodes are {}", node, ring.getNodes());
+    }
+
+    /**
+     * @param listener is called after the ownership of the substations may have moved
+     */
+    public void onRingChange(Runnable listener) {
+        ringListeners.add(listener);
+    }
+
+    /**
+     * @return per node the number of submissions it accepted, the number that were sent again and the number that
+     * could not be delivered
+     */
+    public Map<String, Map<String, Long>> getForwardCounts() {
+        Map<String, Map<String, Long>> counts = new TreeMap<>();
+        forwarders.forEach((node, forwarder) -> counts.put(node, Map.of("forwarded", forwarder.getForwarded(), "retried", forwarder.getRetried(), "failed", forwarder.getFailed())));
+        return counts;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void announceJoin() {
+        if (enabled)
+            announce("POST");
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (enabled)
+            announce("DELETE");
+        timer.shutdown();
+    }
+
+    private boolean updateRing(UnaryOperator<ConsistentHashRing> change) {
+        synchronized (this) {
+            ConsistentHashRing updated = change.apply(ring);
+            if (updated.getNodes().equals(ring.getNodes()))
+                return false;
+            ring = updated;
+        }
+        ringListeners.forEach(Runnable::run);
+        return true;
+    }
+
+    /**
+     * Tells the other nodes that this node joins or leaves. A node that is not up yet learns about this node from
+     * its own configuration, so failures are only logged.
+     */
+    private void announce(String method) {
+        String query = "?node=" + URLEncoder.encode(self, StandardCharsets.UTF_8);
+        for (String node : ring.getNodes()) {
+            if (node.equals(self))
+                continue;
+            HttpRequest request = HttpRequest.newBuilder(URI.create(node + "/api/cluster/nodes" + query))
+                    .timeout(Duration.ofSeconds(2))
+                    .method(method, HttpRequest.BodyPublishers.noBody())
+                    .build();
+            try {
+                httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            } catch (Exception e) {
+                if (e instanceof InterruptedException)
+                    Thread.currentThread().interrupt();
+                log.debug("Could not announce {} {} to {}: {}", method, self, node, e.toString());
+            }
+        }
+    }
+
+    private static Class<? extends ComputationData> dataType(Construction construction, boolean server) {
+        switch (construction) {
+            case HASH:
+                return server ? HashServerData.class : HashClientData.class;
+            case RSA:
+                return server ? RSAServerData.class : RSAClientData.class;
+            case LINEAR:
+                return server ? LinearServerData.class : LinearClientData.class;
+            case DP:
+                return server ? DPServerData.class : DPClientData.class;
+            default:
+                throw new IllegalArgumentException("Unknown construction " + construction);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.master_thesis.verifier.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * Maps substations onto verifier nodes with consistent hashing.
+ * Every node is placed on the ring at a number of virtual positions, a substation is owned by the first node
+ * clockwise of the substation's own position. Adding or removing a node therefore only moves the substations
+ * between that node and its neighbours, every other substation keeps its owner.
+ * <p>
+ * The ring is immutable, {@link #with(String)} and {@link #without(String)} return a new ring.
+ */
+public class ConsistentHashRing {
+
+    private final int virtualNodes;
+    private final Set<String> nodes;
+    private final NavigableMap<Long, String> ring;
+
+    /**
+     * @param nodes the address of every node, e.g. http://localhost:3000
+     * @param virtualNodes the number of positions of each node on the ring, more positions spread the load more evenly
+     */
+    public ConsistentHashRing(Collection<String> nodes, int virtualNodes) {
+        if (virtualNodes < 1)
+            throw new IllegalArgumentException("A node needs at least one virtual node, got " + virtualNodes);
+        this.virtualNodes = virtualNodes;
+        this.nodes = Collections.unmodifiableSet(new TreeSet<>(nodes));
+        this.ring = new TreeMap<>();
+        for (String node : this.nodes)
+            for (int i = 0; i < virtualNodes; i++)
+//                On the rare collision the node that sorts first keeps the position, so every node builds the same ring
+                ring.putIfAbsent(hash(node + "#" + i), node);
+    }
+
+    public ConsistentHashRing with(String node) {
+        Set<String> joined = new TreeSet<>(nodes);
+        joined.add(node);
+        return new ConsistentHashRing(joined, virtualNodes);
+    }
+
+    public ConsistentHashRing without(String node) {
+        Set<String> left = new TreeSet<>(nodes);
+        left.remove(node);
+        return new ConsistentHashRing(left, virtualNodes);
+    }
+
+    /**
+     * @param substationID the substation to look up
+     * @return the node that verifies the substation's rounds
+     * @throws IllegalStateException if the ring has no nodes
+     */
+    public String ownerOf(int substationID) {
+        if (ring.isEmpty())
+            throw new IllegalStateException("The ring has no nodes");
+        Map.Entry<Long, String> owner = ring.ceilingEntry(hash("substation-" + substationID));
+        return owner != null ? owner.getValue() : ring.firstEntry().getValue();
+    }
+
+    public Set<String> getNodes() {
+        return nodes;
+    }
+
+    public int getVirtualNodes() {
+        return virtualNodes;
+    }
+
+    /**
+     * The position on the ring, the first eight bytes of the MD5 digest. MD5 is only used for its spread here,
+     * it has to give the same positions on every node, which rules out String.hashCode.
+     */
+    static long hash(String key) {
+        try {
+            byte[] digest = MessageDigest.getInstance("MD5").digest(key.getBytes(StandardCharsets.UTF_8));
+            long hash = 0;
+            for (int i = 0; i < Long.BYTES; i++)
+                hash = (hash << 8) | (digest[i] & 0xff);
+            return hash;
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("MD5 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.master_thesis.verifier.cluster;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * A submission that a verifier node received for a substation owned by another node, as sent to the owner
+ */
+public class ForwardedSubmission {
+
+    private boolean server;
+    private int hops;
+    private JsonNode payload;
+
+    public ForwardedSubmission() {
+    }
+
+    public ForwardedSubmission(boolean server, int hops, JsonNode payload) {
+        this.server = server;
+        this.hops = hops;
+        this.payload = payload;
+    }
+
+    /**
+     * @return true if the submission came from a server, false if it came from a client
+     */
+    public boolean isServer() {
+        return server;
+    }
+
+    public void setServer(boolean server) {
+        this.server = server;
+    }
+
+    /**
+     * @return the number of times the submission has been forwarded
+     */
+    public int getHops() {
+        return hops;
+    }
+
+    public void setHops(int hops) {
+        this.hops = hops;
+    }
+
+    /**
+     * @return the submission as it was posted to the first node
+     */
+    public JsonNode getPayload() {
+        return payload;
+    }
+
+    public void setPayload(JsonNode payload) {
+        this.payload = payload;
+    }
+}
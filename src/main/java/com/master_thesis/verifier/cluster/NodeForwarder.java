@@ -0,0 +1,178 @@
+package com.master_thesis.verifier.cluster;
+
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Sends the submissions for one other node in batches.
+ * A submission waits at most one window for others to join its batch, a full batch is sent at once.
+ * The batches share the router's HttpClient, which keeps the connection to the node open between batches.
+ * <p>
+ * The sender of a forwarded submission has already been answered, so a batch the node could not take is sent again
+ * after a backoff that doubles with every attempt, or after the node's Retry-After if that is longer. The node may have
+ * buffered part of a batch before it failed, which is harmless: a participant that is buffered again replaces its
+ * earlier data, and the submissions of a round that was completed in the meantime are dropped with 409 by the node.
+ * A batch is only given up after the last attempt, or at once if the node refused it as malformed.
+ */
+class NodeForwarder {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(NodeForwarder.class);
+
+    private final String node;
+    private final URI forwardUri;
+    private final HttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService timer;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final int maxAttempts;
+    private final long backoffNanos;
+    private final LongAdder forwarded = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+
+    private List<ForwardedSubmission> batch = new ArrayList<>();
+    private long generation;
+
+    /**
+     * @param maxAttempts the number of times a batch is sent before it is given up
+     * @param backoff the wait before the first retry of a batch, doubled for every further retry
+     */
+    NodeForwarder(String node, HttpClient httpClient, ObjectMapper objectMapper, ScheduledExecutorService timer, Duration window, int maxBatchSize, int maxAttempts, Duration backoff) {
+        this.node = node;
+        this.forwardUri = URI.create(node + "/api/cluster/forward");
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.timer = timer;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffNanos = backoff.toNanos();
+    }
+
+    void forward(ForwardedSubmission submission) {
+        List<ForwardedSubmission> full = null;
+        synchronized (this) {
+            if (batch.isEmpty()) {
+                long batchGeneration = generation;
+                timer.schedule(() -> flush(batchGeneration), windowNanos, TimeUnit.NANOSECONDS);
+            }
+            batch.add(submission);
+            if (batch.size() >= maxBatchSize)
+                full = take();
+        }
+        if (full != null)
+            send(full, 1);
+    }
+
+    /**
+     * @return the number of submissions the node has accepted
+     */
+    long getForwarded() {
+        return forwarded.sum();
+    }
+
+    /**
+     * @return the number of submissions that were sent again after the node could not take them
+     */
+    long getRetried() {
+        return retried.sum();
+    }
+
+    /**
+     * @return the number of submissions that could not be delivered to the node after every attempt
+     */
+    long getFailed() {
+        return failed.sum();
+    }
+
+    private void flush(long batchGeneration) {
+        List<ForwardedSubmission> expired;
+        synchronized (this) {
+//            The batch this timer was started for has already been sent because it was full
+            if (batchGeneration != generation || batch.isEmpty())
+                return;
+            expired = take();
+        }
+        send(expired, 1);
+    }
+
+    private List<ForwardedSubmission> take() {
+        List<ForwardedSubmission> taken = batch;
+        batch = new ArrayList<>();
+        generation++;
+        return taken;
+    }
+
+    /**
+     * @param attempt the number of times the batch has been sent, including this one
+     */
+    private void send(List<ForwardedSubmission> submissions, int attempt) {
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder(forwardUri)
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(submissions)))
+                    .build();
+        } catch (JsonProcessingException e) {
+            failed(submissions, e.toString());
+            return;
+        }
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, e) -> {
+            if (e != null)
+                retry(submissions, attempt, e.toString(), 0);
+            else if (response.statusCode() == 200)
+                forwarded.add(submissions.size());
+            else if (response.statusCode() == 429 || response.statusCode() >= 500)
+                retry(submissions, attempt, "status " + response.statusCode(), retryAfterNanos(response));
+            else
+                failed(submissions, "status " + response.statusCode());
+        });
+    }
+
+    /**
+     * Sends the batch again after the backoff of its attempt, unless it was the last attempt
+     * @param retryAfterNanos the wait the node asked for, or zero
+     */
+    private void retry(List<ForwardedSubmission> submissions, int attempt, String reason, long retryAfterNanos) {
+        if (attempt >= maxAttempts || timer.isShutdown()) {
+            failed(submissions, reason + ", gave up after " + attempt + " attempts");
+            return;
+        }
+        long delay = Math.max(backoffNanos << Math.min(attempt - 1, 20), retryAfterNanos);
+        retried.add(submissions.size());
+        log.warn("Could not forward {} submissions to {}: {}, retrying in {} ms", submissions.size(), node, reason, TimeUnit.NANOSECONDS.toMillis(delay));
+        try {
+            timer.schedule(() -> send(submissions, attempt + 1), delay, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException shutdown) {
+            failed(submissions, reason + ", the node is shutting down");
+        }
+    }
+
+    private static long retryAfterNanos(HttpResponse<?> response) {
+        try {
+            return response.headers().firstValue("Retry-After").map(seconds -> TimeUnit.SECONDS.toNanos(Long.parseLong(seconds.trim()))).orElse(0L);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private void failed(List<ForwardedSubmission> submissions, String reason) {
+        failed.add(submissions.size());
+        log.error("Could not forward {} submissions to {}: {}", submissions.size(), node, reason);
+    }
+}
@@ -0,0 +1,76 @@
+package com.master_thesis.verifier.pipeline;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * A stage of the {@link VerificationPipeline} that has no threads of its own: work runs on the thread handing it over
+ * and is only measured. Handing a round to another pool would cost two thread hand-offs and, with the scheduler
+ * already bounding the rounds in flight, would add neither parallelism nor backpressure.
+ */
+public class InlineStage {
+
+    private final String name;
+    private final AtomicInteger active = new AtomicInteger();
+    private final LongAdder nanos = new LongAdder();
+    private final Throughput throughput = new Throughput();
+
+    public InlineStage(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Runs the work on the calling thread
+     */
+    public <T> T call(Supplier<T> work) {
+        long start = started();
+        try {
+            return work.get();
+        } finally {
+            finished(start);
+        }
+    }
+
+    /**
+     * Measures work that completes later without a thread waiting for it, e.g. a round waiting for its public
+     * parameters; it counts as active until the returned future completes
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> pending) {
+        long start = started();
+        return pending.whenComplete((value, failure) -> finished(start));
+    }
+
+    /**
+     * @return how much work is in the stage, the work it completed, in total and per second since the previous call,
+     * and the mean time spent in it
+     */
+    public Map<String, Object> statistics() {
+        long done = throughput.getCompleted();
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("active", active.get());
+        statistics.put("completed", done);
+        statistics.put("perSecond", throughput.perSecond());
+        statistics.put("meanMillis", done == 0 ? 0.0 : Math.round(nanos.sum() * 10.0 / done / TimeUnit.MILLISECONDS.toNanos(1)) / 10.0);
+        return statistics;
+    }
+
+    private long started() {
+        active.incrementAndGet();
+        return System.nanoTime();
+    }
+
+    private void finished(long start) {
+        nanos.add(System.nanoTime() - start);
+        active.decrementAndGet();
+        throughput.increment();
+    }
+}
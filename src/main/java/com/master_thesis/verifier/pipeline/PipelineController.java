@@ -0,0 +1,30 @@
+package com.master_thesis.verifier.pipeline;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping(value = "/api/pipeline")
+public class PipelineController {
+
+    private VerificationPipeline pipeline;
+
+    @Autowired
+    public PipelineController(VerificationPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+
+    /**
+     * @return the work in and throughput of every stage, plus the threads and queue depth of publish; the rounds active
+     * in resolve are the ones waiting on the trusted third-party, many of them next to idle aggregate and verify mean
+     * the verifier is bound by the trusted third-party rather than by its cores
+     */
+    @GetMapping
+    public Map<String, Map<String, Object>> getStages() {
+        return pipeline.statistics();
+    }
+}
@@ -0,0 +1,118 @@
+package com.master_thesis.verifier.pipeline;
+
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * One stage of the {@link VerificationPipeline}: a fixed number of threads with a bounded queue.
+ * Handing work to a full stage blocks until there is room, so a slow stage pushes back on the stages before it.
+ */
+public class Stage implements AutoCloseable {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(Stage.class);
+
+    private final String name;
+    private final ThreadGroup group;
+    private final ThreadPoolExecutor executor;
+    private final Throughput throughput = new Throughput();
+
+    /**
+     * @param name identifies the stage in its threads' names and in the statistics
+     * @param threads the number of threads working on the stage
+     * @param queueSize the number of tasks that can wait for a thread
+     */
+    public Stage(String name, int threads, int queueSize) {
+        if (threads < 1 || queueSize < 1)
+            throw new IllegalArgumentException("Stage " + name + " needs at least one thread and room in its queue, got " + threads + " and " + queueSize);
+        this.name = name;
+        this.group = new ThreadGroup("verifier-" + name);
+        AtomicInteger counter = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(queueSize),
+                runnable -> {
+                    Thread thread = new Thread(group, runnable, "verifier-" + name + "-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (task, full) -> {
+                    if (full.isShutdown())
+                        throw new RejectedExecutionException("Stage " + name + " is shut down");
+                    try {
+                        full.getQueue().put(task);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for room in stage " + name);
+                    }
+                });
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Runs the work on the stage and waits for its result.
+     * Work handed over from a thread of the same stage runs directly.
+     */
+    public <T> T call(Supplier<T> work) {
+        if (Thread.currentThread().getThreadGroup() == group)
+            return counted(work);
+        try {
+            return executor.submit(() -> counted(work)).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting for stage " + name);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    /**
+     * Runs the work on the stage without waiting for it, a failure is only logged
+     */
+    public void execute(Runnable work) {
+        executor.execute(() -> counted(() -> {
+            try {
+                work.run();
+            } catch (RuntimeException e) {
+                log.error("Work on stage {} failed", name, e);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * @return the stage's threads, how many are busy, its queue depth and the tasks it completed, in total and per
+     * second since the previous call
+     */
+    public Map<String, Object> statistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("threads", executor.getMaximumPoolSize());
+        statistics.put("active", executor.getActiveCount());
+        statistics.put("queued", executor.getQueue().size());
+        statistics.put("queueCapacity", executor.getQueue().size() + executor.getQueue().remainingCapacity());
+        statistics.put("completed", throughput.getCompleted());
+        statistics.put("perSecond", throughput.perSecond());
+        return statistics;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> T counted(Supplier<T> work) {
+        try {
+            return work.get();
+        } finally {
+            throughput.increment();
+        }
+    }
+}
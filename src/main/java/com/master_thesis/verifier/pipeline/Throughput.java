@@ -0,0 +1,36 @@
+package com.master_thesis.verifier.pipeline;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The work a stage completed, in total and per second
+ */
+class Throughput {
+
+    private final LongAdder completed = new LongAdder();
+    private long lastSampleNanos = System.nanoTime(), lastSampleCompleted;
+    private double perSecond;
+
+    void increment() {
+        completed.increment();
+    }
+
+    long getCompleted() {
+        return completed.sum();
+    }
+
+    /**
+     * @return the work completed per second since the previous sample, rounded to a tenth
+     */
+    synchronized double perSecond() {
+        long now = System.nanoTime(), done = completed.sum();
+//        Rates over less than a second are too noisy, the previous rate is kept until a second has passed
+        if (now - lastSampleNanos >= TimeUnit.SECONDS.toNanos(1)) {
+            perSecond = (done - lastSampleCompleted) * 1e9 / (now - lastSampleNanos);
+            lastSampleNanos = now;
+            lastSampleCompleted = done;
+        }
+        return Math.round(perSecond * 10) / 10.0;
+    }
+}
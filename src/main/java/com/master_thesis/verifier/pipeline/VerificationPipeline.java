@@ -0,0 +1,101 @@
+package com.master_thesis.verifier.pipeline;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.core.Stages;
+import com.master_thesis.verifier.utils.VerificationScheduler;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * The phases of a verification:
+ * <ol>
+ *     <li>resolve: waits for the round's public parameters, without holding a thread or a scheduler slot</li>
+ *     <li>aggregate: finalEval and finalProof</li>
+ *     <li>verify: checks the proof against the result</li>
+ *     <li>publish: hands the outcome to the result listeners</li>
+ * </ol>
+ * Aggregate and verify run on the round's scheduler slot, whose concurrency already matches the compute threads, and
+ * are only measured. Publish has its own thread, so a slow result listener does not hold a slot.
+ */
+@Component
+public class VerificationPipeline implements Stages {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(VerificationPipeline.class);
+
+    private final InlineStage resolve = new InlineStage("resolve"),
+            aggregate = new InlineStage("aggregate"),
+            verify = new InlineStage("verify");
+    private final Stage publish;
+    private final VerificationScheduler scheduler;
+
+    @Autowired
+    public VerificationPipeline(VerificationScheduler scheduler,
+                                @Value("${verifier.pipeline.publish.threads:1}") int publishThreads,
+                                @Value("${verifier.pipeline.queue-size:1024}") int queueSize) {
+        this.scheduler = scheduler;
+        this.publish = new Stage("publish", publishThreads, queueSize);
+        log.info("Pipeline publish stage of {} threads, queue of {}", publishThreads, queueSize);
+    }
+
+    /**
+     * Counts a round as resolving until its public parameters have arrived
+     */
+    public <T> CompletableFuture<T> resolve(CompletableFuture<T> parameters) {
+        return resolve.track(parameters);
+    }
+
+    /**
+     * Runs finalEval or finalProof on the calling thread
+     */
+    @Override
+    public <T> T aggregate(Supplier<T> aggregation) {
+        return aggregate.call(aggregation);
+    }
+
+    /**
+     * Runs a verification on the calling thread
+     */
+    @Override
+    public <T> T verify(Supplier<T> verification) {
+        return verify.call(verification);
+    }
+
+    /**
+     * Waits for work that runs elsewhere, e.g. a batch of checks, without holding the round's scheduler slot
+     */
+    @Override
+    public <T> T await(CompletableFuture<T> pending) {
+        return scheduler.block(pending::join);
+    }
+
+    /**
+     * Publishes on the publish stage without waiting, a single publish thread keeps the outcomes in order
+     */
+    public void publish(Runnable publication) {
+        publish.execute(publication);
+    }
+
+    /**
+     * @return the statistics of every stage, by name
+     */
+    public Map<String, Map<String, Object>> statistics() {
+        Map<String, Map<String, Object>> statistics = new LinkedHashMap<>();
+        List.of(resolve, aggregate, verify).forEach(stage -> statistics.put(stage.getName(), stage.statistics()));
+        statistics.put(publish.getName(), publish.statistics());
+        return statistics;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publish.close();
+    }
+}
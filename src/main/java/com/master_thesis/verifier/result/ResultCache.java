@@ -0,0 +1,133 @@
+package com.master_thesis.verifier.result;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.data.VerificationResult;
+import com.master_thesis.verifier.utils.ResultPublisher;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+
+/**
+ * Keeps the most recent verification outcomes, at most verifier.results.cache-size of them, and evicts the least
+ * recently used. Outcomes that are no longer cached are looked up in the {@link ResultStore}, if one is configured.
+ * <p>
+ * The store is only asked for fids older than the newest cached outcome of a substation, so polling for an interval
+ * that has not been verified yet never reaches it.
+ */
+@Component
+public class ResultCache {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(ResultCache.class);
+
+    private final int capacity;
+    private final ResultStore store;
+    private final LinkedHashMap<Long, VerificationResult> recent;
+    private final Map<Integer, TreeMap<Integer, VerificationResult>> bySubstation = new HashMap<>();
+
+    @Autowired
+    public ResultCache(ResultPublisher resultPublisher,
+                       @Value("${verifier.results.cache-size:10000}") int capacity,
+                       Optional<ResultStore> store) {
+        this(capacity, store.orElse(null));
+        resultPublisher.subscribe(this::put);
+        log.info("Caching the {} most recent results, {}", capacity, store.isPresent() ? "falling back to the result store" : "without a result store");
+    }
+
+    /**
+     * @param capacity the number of outcomes to keep
+     * @param store looks up the outcomes that are not cached, or null if there is none
+     */
+    public ResultCache(int capacity, ResultStore store) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("The result cache needs room for at least one result, got " + capacity);
+        this.capacity = capacity;
+        this.store = store;
+        this.recent = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, VerificationResult> eldest) {
+                if (size() <= ResultCache.this.capacity)
+                    return false;
+                unindex(eldest.getValue());
+                return true;
+            }
+        };
+    }
+
+    public synchronized void put(VerificationResult result) {
+        VerificationResult previous = recent.put(key(result.getSubstationID(), result.getFid()), result);
+        if (previous != null)
+            unindex(previous);
+        bySubstation.computeIfAbsent(result.getSubstationID(), substationID -> new TreeMap<>()).put(result.getFid(), result);
+    }
+
+    public Optional<VerificationResult> get(int substationID, int fid) {
+        synchronized (this) {
+            VerificationResult cached = recent.get(key(substationID, fid));
+            if (cached != null || !mayBeStored(substationID, fid))
+                return Optional.ofNullable(cached);
+        }
+        Optional<VerificationResult> stored = store.find(substationID, fid);
+        stored.ifPresent(this::put);
+        return stored;
+    }
+
+    /**
+     * @return the outcomes of the substation with a fid from fromFid to toFid, both inclusive, ordered by fid
+     */
+    public List<VerificationResult> range(int substationID, int fromFid, int toFid) {
+        TreeMap<Integer, VerificationResult> results;
+        int storedUpTo;
+        synchronized (this) {
+            TreeMap<Integer, VerificationResult> cached = bySubstation.get(substationID);
+            results = cached == null ? new TreeMap<>() : new TreeMap<>(cached.subMap(fromFid, true, toFid, true));
+            storedUpTo = cached == null ? toFid : Math.min(toFid, cached.lastKey() - 1);
+        }
+        long span = (long) toFid - fromFid + 1;
+        if (store != null && results.size() < span && fromFid <= storedUpTo) {
+            for (VerificationResult stored : store.findRange(substationID, fromFid, storedUpTo)) {
+                if (results.putIfAbsent(stored.getFid(), stored) == null)
+                    put(stored);
+            }
+        }
+        return new ArrayList<>(results.values());
+    }
+
+    /**
+     * @return the cached outcome with the highest fid of the substation, the store is never asked
+     */
+    public synchronized Optional<VerificationResult> latest(int substationID) {
+        TreeMap<Integer, VerificationResult> cached = bySubstation.get(substationID);
+        return cached == null ? Optional.empty() : Optional.of(cached.lastEntry().getValue());
+    }
+
+    public synchronized int size() {
+        return recent.size();
+    }
+
+    /**
+     * A fid can only have been stored before if a later one of its substation was verified, or if nothing is known
+     * about the substation, e.g. after a restart
+     */
+    private boolean mayBeStored(int substationID, int fid) {
+        if (store == null)
+            return false;
+        TreeMap<Integer, VerificationResult> cached = bySubstation.get(substationID);
+        return cached == null || fid < cached.lastKey();
+    }
+
+    private void unindex(VerificationResult result) {
+        TreeMap<Integer, VerificationResult> cached = bySubstation.get(result.getSubstationID());
+        if (cached == null)
+            return;
+        cached.remove(result.getFid(), result);
+        if (cached.isEmpty())
+            bySubstation.remove(result.getSubstationID());
+    }
+
+    private static long key(int substationID, int fid) {
+        return ((long) substationID << 32) | (fid & 0xffffffffL);
+    }
+}
@@ -0,0 +1,93 @@
+package com.master_thesis.verifier.result;
+
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.VerificationResult;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Serves the verification outcomes from the {@link ResultCache}, querying never starts a verification.
+ * New outcomes are pushed to subscribers of the {@link ResultStream} as Server-Sent Events.
+ */
+@RestController
+@RequestMapping(value = "/api/result")
+public class ResultController {
+
+    private ResultCache resultCache;
+    private ResultStream resultStream;
+    private int maxRange;
+    private long streamTimeout;
+
+    @Autowired
+    public ResultController(ResultCache resultCache, ResultStream resultStream,
+                            @Value("${verifier.results.max-range:1000}") int maxRange,
+                            @Value("${verifier.results.stream.timeout-ms:0}") long streamTimeout) {
+        this.resultCache = resultCache;
+        this.resultStream = resultStream;
+        this.maxRange = maxRange;
+        this.streamTimeout = streamTimeout;
+    }
+
+    /**
+     * Streams every new outcome as a "result" event, optionally only those of some substations or constructions,
+     * e.g. /api/result/stream?substationID=3&substationID=4&construction=RSA
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamResults(@RequestParam(required = false) Set<Integer> substationID,
+                                    @RequestParam(required = false) Set<Construction> construction) {
+//        A timeout of 0 keeps the connection open until the subscriber leaves
+        SseEmitter emitter = new SseEmitter(streamTimeout);
+        ResultStream.Subscriber subscriber = resultStream.subscribe(
+                substationID == null ? Set.of() : substationID,
+                construction == null ? Set.of() : construction,
+                new ResultStream.Sink() {
+                    @Override
+                    public void send(VerificationResult result) throws IOException {
+                        emitter.send(SseEmitter.event()
+                                .name("result")
+                                .id(result.getSubstationID() + "/" + result.getFid())
+                                .data(result, MediaType.APPLICATION_JSON));
+                    }
+
+                    @Override
+                    public void close() {
+                        emitter.complete();
+                    }
+                });
+        emitter.onCompletion(subscriber::close);
+        emitter.onTimeout(subscriber::close);
+        emitter.onError(e -> subscriber.close());
+        return emitter;
+    }
+
+    @GetMapping(value = "/{substationID}/{fid}")
+    public VerificationResult getResult(@PathVariable int substationID, @PathVariable int fid) {
+        return resultCache.get(substationID, fid)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No result for fid " + fid + " of substation " + substationID));
+    }
+
+    @GetMapping(value = "/{substationID}/latest")
+    public VerificationResult getLatestResult(@PathVariable int substationID) {
+        return resultCache.latest(substationID)
+                .orElseThrow(() -> new ResponseStatusException(HttpStatus.NOT_FOUND, "No recent result for substation " + substationID));
+    }
+
+    /**
+     * @return the outcomes of the substation with a fid from {@code from} to {@code to}, both inclusive, ordered by fid
+     */
+    @GetMapping(value = "/{substationID}")
+    public List<VerificationResult> getResults(@PathVariable int substationID, @RequestParam int from, @RequestParam int to) {
+        if (from > to || (long) to - from >= maxRange)
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "The range has to span 1 to " + maxRange + " fids, got " + from + " to " + to);
+        return resultCache.range(substationID, from, to);
+    }
+}
@@ -0,0 +1,20 @@
+package com.master_thesis.verifier.result;
+
+import com.master_thesis.verifier.data.VerificationResult;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Persistent storage of verification outcomes, which the {@link ResultCache} falls back to for outcomes it no longer
+ * holds. Register an implementation as a bean to enable it, without one only the cached outcomes can be queried.
+ */
+public interface ResultStore {
+
+    Optional<VerificationResult> find(int substationID, int fid);
+
+    /**
+     * @return the stored outcomes of the substation with a fid from fromFid to toFid, both inclusive
+     */
+    List<VerificationResult> findRange(int substationID, int fromFid, int toFid);
+}
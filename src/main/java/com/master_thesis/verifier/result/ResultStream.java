@@ -0,0 +1,177 @@
+package com.master_thesis.verifier.result;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.VerificationResult;
+import com.master_thesis.verifier.utils.ResultPublisher;
+import com.master_thesis.verifier.utils.VerifierExecutors;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes every verification outcome to the subscribers whose filter it matches.
+ * The verification thread only offers the outcome to each subscriber's bounded queue, the outcomes are sent from the
+ * executor. When a queue is full the subscriber is either dropped or conflated, i.e. its oldest outcome is discarded,
+ * so a slow consumer never slows the verification down.
+ */
+@Component
+public class ResultStream {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(ResultStream.class);
+
+    public enum SlowConsumer {
+        /**
+         * A subscriber whose queue is full is disconnected
+         */
+        DROP,
+        /**
+         * A subscriber whose queue is full loses its oldest queued outcome
+         */
+        CONFLATE
+    }
+
+    /**
+     * Where a subscriber's outcomes are sent, e.g. an SSE connection
+     */
+    public interface Sink {
+        void send(VerificationResult result) throws IOException;
+
+        void close();
+    }
+
+    private final Executor executor;
+    private final int capacity;
+    private final SlowConsumer slowConsumer;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public ResultStream(ResultPublisher resultPublisher, VerifierExecutors executors,
+                        @Value("${verifier.results.stream.buffer:256}") int capacity,
+                        @Value("${verifier.results.stream.slow-consumer:CONFLATE}") SlowConsumer slowConsumer) {
+        this(executors.io(), capacity, slowConsumer);
+        resultPublisher.subscribe(this::broadcast);
+    }
+
+    /**
+     * @param executor sends the queued outcomes to the sinks
+     * @param capacity the number of outcomes a subscriber can have queued
+     * @param slowConsumer what happens to a subscriber whose queue is full
+     */
+    public ResultStream(Executor executor, int capacity, SlowConsumer slowConsumer) {
+        if (capacity < 1)
+            throw new IllegalArgumentException("A subscriber needs room for at least one result, got " + capacity);
+        this.executor = executor;
+        this.capacity = capacity;
+        this.slowConsumer = slowConsumer;
+    }
+
+    /**
+     * @param substationIDs the substations to receive outcomes of, all if empty
+     * @param constructions the constructions to receive outcomes of, all if empty
+     * @param sink receives the outcomes
+     * @return the subscription, closing it stops the outcomes
+     */
+    public Subscriber subscribe(Set<Integer> substationIDs, Set<Construction> constructions, Sink sink) {
+        Subscriber subscriber = new Subscriber(Set.copyOf(substationIDs), Set.copyOf(constructions), sink);
+        subscribers.add(subscriber);
+        log.debug("{} subscribers to the result stream", subscribers.size());
+        return subscriber;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Offers the outcome to every matching subscriber, never blocks
+     */
+    public void broadcast(VerificationResult result) {
+        for (Subscriber subscriber : subscribers)
+            if (subscriber.matches(result))
+                subscriber.offer(result);
+    }
+
+    public class Subscriber {
+
+        private final Set<Integer> substationIDs;
+        private final Set<Construction> constructions;
+        private final Sink sink;
+        private final BlockingQueue<VerificationResult> queue = new ArrayBlockingQueue<>(capacity);
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicLong conflated = new AtomicLong();
+        private volatile boolean closed;
+
+        private Subscriber(Set<Integer> substationIDs, Set<Construction> constructions, Sink sink) {
+            this.substationIDs = substationIDs;
+            this.constructions = constructions;
+            this.sink = sink;
+        }
+
+        /**
+         * @return the number of outcomes that were discarded because the subscriber could not keep up
+         */
+        public long getConflated() {
+            return conflated.get();
+        }
+
+        public void close() {
+            if (closed)
+                return;
+            closed = true;
+            subscribers.remove(this);
+            queue.clear();
+            sink.close();
+        }
+
+        private boolean matches(VerificationResult result) {
+            return (substationIDs.isEmpty() || substationIDs.contains(result.getSubstationID()))
+                    && (constructions.isEmpty() || constructions.contains(result.getConstruction()));
+        }
+
+        private void offer(VerificationResult result) {
+            while (!queue.offer(result)) {
+                if (slowConsumer == SlowConsumer.DROP) {
+                    log.warn("Dropped a result stream subscriber that fell {} results behind", capacity);
+                    close();
+                    return;
+                }
+                if (queue.poll() != null)
+                    conflated.incrementAndGet();
+            }
+            if (sending.compareAndSet(false, true)) {
+                try {
+                    executor.execute(this::send);
+                } catch (RejectedExecutionException e) {
+                    close();
+                }
+            }
+        }
+
+        /**
+         * Sends the queued outcomes, only one send runs per subscriber at a time
+         */
+        private void send() {
+            try {
+                VerificationResult result;
+                while (!closed && (result = queue.poll()) != null)
+                    sink.send(result);
+            } catch (IOException | RuntimeException e) {
+                log.debug("Result stream subscriber went away: {}", e.toString());
+                close();
+            } finally {
+                sending.set(false);
+            }
+//            An outcome offered after the last poll but before the flag was cleared would otherwise wait for the next one
+            if (!closed && !queue.isEmpty() && sending.compareAndSet(false, true))
+                executor.execute(this::send);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.master_thesis.verifier.utils;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.data.Construction;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides which complete rounds are verified at once when there is more to verify than the node can keep up with.
+ * The backlog is the summed cost of the rounds queued in the scheduler, so a burst of RSA rounds weighs more than a
+ * burst of HASH rounds. As long as the backlog is under the capacity every round is verified; beyond it the capacity is
+ * shared evenly between the substations with queued rounds, and a round is verified with a probability that falls as
+ * its substation's own backlog and the round's cost grow, down to a minimum rate for each substation. The others are
+ * deferred until the backlog is back under the capacity. So a substation that floods the node is sampled, while the
+ * rounds of a quiet one are still verified at once, as the scheduler's round-robin would verify them first anyway.
+ * The draw is made with a SecureRandom once the round is complete, after the servers sent their data, so they cannot
+ * tell which of their rounds will be checked right away.
+ */
+@Component
+public class OverloadSampler {
+
+    private final static Logger log = (Logger) LoggerFactory.getLogger(OverloadSampler.class);
+
+    private final VerificationScheduler scheduler;
+    private final long capacity;
+    private final double minRate;
+    private final Random random;
+    private final AtomicBoolean overloaded = new AtomicBoolean();
+    private final LongAdder verified = new LongAdder(), deferred = new LongAdder();
+
+    @Autowired
+    public OverloadSampler(VerificationScheduler scheduler,
+                           @Value("${verifier.overload.capacity:0}") long capacity,
+                           @Value("${verifier.overload.min-rate:0.1}") double minRate) {
+        this(scheduler, capacity, minRate, new SecureRandom());
+    }
+
+    /**
+     * @param scheduler whose queued cost is the backlog
+     * @param capacity the backlog, in the scheduler's costs, up to which every round is verified at once, zero never
+     *                 defers a round
+     * @param minRate the share of each substation's rounds that are verified at once however large the backlog,
+     *                between 0 and 1
+     * @param random draws the rounds that are verified at once
+     */
+    public OverloadSampler(VerificationScheduler scheduler, long capacity, double minRate, Random random) {
+        if (capacity < 0 || minRate < 0 || minRate > 1)
+            throw new IllegalArgumentException("The overload capacity must be at least zero and the minimum rate between 0 and 1, got " + capacity + " and " + minRate);
+        this.scheduler = scheduler;
+        this.capacity = capacity;
+        this.minRate = minRate;
+        this.random = random;
+        if (capacity > 0)
+            log.info("Sampling the rounds to verify at once beyond a backlog of {}, at least {} of them", capacity, minRate);
+    }
+
+    /**
+     * Draws whether a complete round is verified at once or deferred
+     * @param construction the construction of the round, which decides its cost
+     * @param substationID the substation of the round, whose own backlog decides its rate
+     * @return true if the round should be verified at once
+     */
+    public boolean verifyNow(Construction construction, int substationID) {
+        if (capacity == 0)
+            return true;
+        boolean over = !hasHeadroom();
+        if (over && overloaded.compareAndSet(false, true))
+            log.warn("Overloaded, the backlog exceeds {} and only a sample of the rounds is verified at once", capacity);
+        else if (!over && overloaded.compareAndSet(true, false))
+            log.info("The backlog is under {} again, every round is verified at once", capacity);
+        double rate = over ? rate(substationID, scheduler.getCost(construction)) : 1;
+        boolean now = rate == 1 || random.nextDouble() < rate;
+        (now ? verified : deferred).increment();
+        return now;
+    }
+
+    /**
+     * @return true if the backlog leaves room to verify a deferred round
+     */
+    public boolean hasHeadroom() {
+        return scheduler.getQueuedCost() < capacity;
+    }
+
+    /**
+     * @return the share of all rounds that would be verified at once with the current backlog
+     */
+    public double getRate() {
+        long backlog = scheduler.getQueuedCost();
+        return capacity == 0 || backlog < capacity ? 1 : Math.max(minRate, (double) capacity / backlog);
+    }
+
+    /**
+     * @return the share of the substation's rounds that would be verified at once with the current backlog
+     */
+    public double getRate(int substationID) {
+        return capacity == 0 || hasHeadroom() ? 1 : rate(substationID, 0);
+    }
+
+    /**
+     * @return the capacity, the backlog, the current rate and how many rounds were verified at once or deferred
+     */
+    public Map<String, Object> statistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("capacity", capacity);
+        statistics.put("minRate", minRate);
+        statistics.put("backlog", scheduler.getQueuedCost());
+        statistics.put("rate", getRate());
+        statistics.put("verifiedAtOnce", verified.sum());
+        statistics.put("deferred", deferred.sum());
+        return statistics;
+    }
+
+    /**
+     * @return the rate of the substation while the node is overloaded, its share of the capacity over its own backlog
+     */
+    private double rate(int substationID, long cost) {
+        long own = scheduler.getQueuedCost(substationID);
+//        A substation without queued rounds is about to join the ones sharing the capacity
+        int substations = scheduler.getQueuedSubstations() + (own == 0 ? 1 : 0);
+        double share = (double) capacity / substations;
+        return own + cost == 0 ? 1 : Math.min(1, Math.max(minRate, share / (own + cost)));
+    }
+}
@@ -0,0 +1,28 @@
+package com.master_thesis.verifier.utils;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.stereotype.Component;
+
+/**
+ * Lets Tomcat handle requests on virtual threads when they are enabled in {@link VerifierExecutors}.
+ * Note that Tomcat 9 processes a socket inside a synchronized block, which pins the virtual thread to its carrier
+ * while the request blocks, so the trusted third-party client must not depend on the same carriers to make progress.
+ */
+@Component
+public class TomcatExecutorCustomizer implements WebServerFactoryCustomizer<TomcatServletWebServerFactory> {
+
+    private final VerifierExecutors executors;
+
+    @Autowired
+    public TomcatExecutorCustomizer(VerifierExecutors executors) {
+        this.executors = executors;
+    }
+
+    @Override
+    public void customize(TomcatServletWebServerFactory factory) {
+        if (executors.isVirtual())
+            factory.addConnectorCustomizers(connector -> connector.getProtocolHandler().setExecutor(executors.io()));
+    }
+}
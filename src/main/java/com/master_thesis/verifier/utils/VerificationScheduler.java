@@ -0,0 +1,287 @@
+package com.master_thesis.verifier.utils;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.data.Construction;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Decides the order in which complete rounds are verified.
+ * Every substation has its own queue, ordered by fid or by deadline. The queues are served with deficit round-robin:
+ * each turn a substation earns the cost of the most expensive construction and spends the cost of the rounds it
+ * verifies, so a burst of RSA rounds on one substation cannot starve the HASH rounds of the others.
+ * At most a fixed number of verifications run at the same time, the rest wait in their queue. By default that is
+ * the number of compute threads: a round is only submitted once its parameters arrived, so a running verification
+ * keeps a core busy rather than waiting on the network.
+ */
+@Component
+public class VerificationScheduler {
+
+    private final static Logger log = (Logger) LoggerFactory.getLogger(VerificationScheduler.class);
+
+    public enum Order {
+        /**
+         * The lowest fid of a substation is verified first
+         */
+        FID,
+        /**
+         * The round that has waited longest relative to its construction's SLO is verified first
+         */
+        DEADLINE
+    }
+
+    private final Executor executor;
+    private final int concurrency;
+    private final Map<Construction, Long> costs;
+    private final long quantum;
+    private final Order order;
+    private final long sloNanos;
+
+    private final Map<Integer, SubstationQueue> queues = new HashMap<>();
+    private final Deque<SubstationQueue> active = new ArrayDeque<>();
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<Boolean> inSlot = ThreadLocal.withInitial(() -> false);
+    private int running;
+    private long queuedCost;
+    private long sequence;
+
+    @Autowired
+    public VerificationScheduler(VerifierExecutors executors,
+                                 @Value("${verifier.scheduler.concurrency:0}") int concurrency,
+                                 @Value("${verifier.scheduler.order:FID}") Order order,
+                                 @Value("${verifier.scheduler.slo-ms:1000}") long sloMs,
+                                 @Value("${verifier.scheduler.cost.hash:1}") long hashCost,
+                                 @Value("${verifier.scheduler.cost.dp:1}") long dpCost,
+                                 @Value("${verifier.scheduler.cost.linear:4}") long linearCost,
+                                 @Value("${verifier.scheduler.cost.rsa:8}") long rsaCost) {
+        this(executors.io(), concurrency > 0 ? concurrency : executors.getComputeThreads(), order, sloMs,
+                Map.of(Construction.HASH, hashCost, Construction.DP, dpCost, Construction.LINEAR, linearCost, Construction.RSA, rsaCost));
+    }
+
+    /**
+     * @param executor runs the verifications
+     * @param concurrency the number of verifications that may run at the same time
+     * @param order how the rounds of one substation are ordered
+     * @param sloMs the time a round should be verified in, scaled by the round's cost when ordering by deadline
+     * @param costs the relative cost of verifying a round of each construction
+     */
+    public VerificationScheduler(Executor executor, int concurrency, Order order, long sloMs, Map<Construction, Long> costs) {
+        if (concurrency < 1)
+            throw new IllegalArgumentException("At least one verification has to run at a time, got " + concurrency);
+        if (costs.values().stream().anyMatch(cost -> cost < 1))
+            throw new IllegalArgumentException("Every construction needs a cost of at least 1, got " + costs);
+        this.executor = executor;
+        this.concurrency = concurrency;
+        this.order = order;
+        this.sloNanos = sloMs * 1_000_000;
+        this.costs = new EnumMap<>(costs);
+        this.quantum = Collections.max(costs.values());
+        log.info("Scheduling at most {} verifications at a time by {}, costs {}", concurrency, order, costs);
+    }
+
+    /**
+     * Queues the verification of a complete round
+     * @param construction the construction of the round, which decides its cost
+     * @param substationID an identifier for the substation
+     * @param fid an identifier for the computation
+     * @param verification verifies the round
+     */
+    public void submit(Construction construction, int substationID, int fid, Runnable verification) {
+        long cost = getCost(construction);
+        synchronized (this) {
+            SubstationQueue queue = queues.computeIfAbsent(substationID, key -> new SubstationQueue());
+            if (queue.rounds.isEmpty())
+                active.addLast(queue);
+            long deadline = System.nanoTime() + sloNanos * cost / quantum;
+            queue.rounds.add(new Round(substationID, fid, deadline, cost, sequence++, verification));
+            queue.cost += cost;
+            queuedCost += cost;
+        }
+        runNext();
+    }
+
+    /**
+     * @return the number of rounds waiting to be verified
+     */
+    public synchronized int getQueued() {
+        return active.stream().mapToInt(queue -> queue.rounds.size()).sum();
+    }
+
+    /**
+     * @return the summed cost of the rounds waiting to be verified
+     */
+    public synchronized long getQueuedCost() {
+        return queuedCost;
+    }
+
+    /**
+     * @return the summed cost of the substation's rounds waiting to be verified
+     */
+    public synchronized long getQueuedCost(int substationID) {
+        SubstationQueue queue = queues.get(substationID);
+        return queue == null ? 0 : queue.cost;
+    }
+
+    /**
+     * @return the number of substations with rounds waiting to be verified
+     */
+    public synchronized int getQueuedSubstations() {
+        return active.size();
+    }
+
+    /**
+     * @return the relative cost of verifying a round of the construction
+     */
+    public long getCost(Construction construction) {
+        return costs.getOrDefault(construction, quantum);
+    }
+
+    /**
+     * Registers a listener that is called after every verification, on the thread that ran it
+     */
+    public void whenVerified(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Waits without holding the slot of the verification that waits, e.g. for the batch its check was handed to, so
+     * that a queued round can start meanwhile. The waiting verification takes its slot back as soon as the wait is
+     * over, so the verifications that return from a wait at the same time may briefly run over the concurrency.
+     * Outside of a verification the wait simply runs.
+     */
+    public <T> T block(Supplier<T> wait) {
+        if (!inSlot.get())
+            return wait.get();
+        synchronized (this) {
+            running--;
+        }
+        runNext();
+        try {
+            return wait.get();
+        } finally {
+            synchronized (this) {
+                running++;
+            }
+        }
+    }
+
+    /**
+     * Starts queued verifications while there are free slots
+     */
+    private void runNext() {
+        while (true) {
+            Round next;
+            synchronized (this) {
+                if (running >= concurrency || active.isEmpty())
+                    return;
+                next = poll();
+                running++;
+            }
+            try {
+                executor.execute(() -> run(next));
+            } catch (RejectedExecutionException e) {
+                log.error("Could not start the verification of fid {} of substation {}, it stays queued: {}", next.fid, next.substationID, e.getMessage());
+                synchronized (this) {
+                    running--;
+                    requeue(next);
+                }
+                return;
+            }
+        }
+    }
+
+    private void run(Round round) {
+        inSlot.set(true);
+        try {
+            round.verification.run();
+        } catch (RuntimeException e) {
+            log.error("Verification of fid {} of substation {} failed: {}", round.fid, round.substationID, e.toString());
+        } finally {
+            inSlot.set(false);
+            synchronized (this) {
+                running--;
+            }
+            runNext();
+            for (Runnable listener : listeners) {
+                try {
+                    listener.run();
+                } catch (RuntimeException e) {
+                    log.error("A listener of the scheduler failed: {}", e.toString());
+                }
+            }
+        }
+    }
+
+    /**
+     * Deficit round-robin over the substations with queued rounds, must hold the lock and have an active substation
+     */
+    private Round poll() {
+        while (true) {
+            SubstationQueue queue = active.peekFirst();
+            Round head = queue.rounds.peek();
+            if (queue.deficit >= head.cost) {
+                queue.deficit -= head.cost;
+                queue.rounds.poll();
+                queue.cost -= head.cost;
+                queuedCost -= head.cost;
+                if (queue.rounds.isEmpty()) {
+//                    An idle substation does not save up credit for its next burst
+                    queue.deficit = 0;
+                    active.pollFirst();
+                }
+                return head;
+            }
+            queue.deficit += quantum;
+            active.addLast(active.pollFirst());
+        }
+    }
+
+    /**
+     * Puts back a polled round that could not be started, ahead of its substation's turn and with the credit it
+     * spent, must hold the lock
+     */
+    private void requeue(Round round) {
+        SubstationQueue queue = queues.get(round.substationID);
+        if (queue.rounds.isEmpty())
+            active.addFirst(queue);
+        queue.rounds.add(round);
+        queue.deficit += round.cost;
+        queue.cost += round.cost;
+        queuedCost += round.cost;
+    }
+
+    private Comparator<Round> comparator() {
+        Comparator<Round> primary = order == Order.DEADLINE
+                ? Comparator.comparingLong(round -> round.deadline)
+                : Comparator.comparingInt(round -> round.fid);
+        return primary.thenComparingLong(round -> round.sequence);
+    }
+
+    private class SubstationQueue {
+        private final PriorityQueue<Round> rounds = new PriorityQueue<>(comparator());
+        private long deficit, cost;
+    }
+
+    private static class Round {
+        private final int substationID, fid;
+        private final long deadline, cost, sequence;
+        private final Runnable verification;
+
+        private Round(int substationID, int fid, long deadline, long cost, long sequence, Runnable verification) {
+            this.substationID = substationID;
+            this.fid = fid;
+            this.deadline = deadline;
+            this.cost = cost;
+            this.sequence = sequence;
+            this.verification = verification;
+        }
+    }
+}
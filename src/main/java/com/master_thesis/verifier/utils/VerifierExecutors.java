@@ -0,0 +1,77 @@
+package com.master_thesis.verifier.utils;
+
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Owns the threads of the verifier.
+ * The io executor runs request handling, trusted third-party calls and verification dispatch. With
+ * verifier.threads.virtual=true and a JDK with virtual threads (21+) it starts one virtual thread per task,
+ * otherwise it falls back to a cached pool of platform threads.
+ * The modPow heavy parts of a verification run on the stages of the VerificationPipeline, which are sized by the
+ * number of compute threads.
+ */
+@Component
+public class VerifierExecutors {
+
+    private final static Logger log = (Logger) LoggerFactory.getLogger(VerifierExecutors.class);
+
+    private final ExecutorService io;
+    private final boolean virtual;
+    private final int computeThreads;
+
+    public VerifierExecutors(@Value("${verifier.threads.virtual:false}") boolean useVirtualThreads,
+                             @Value("${verifier.threads.compute:0}") int computeThreads) {
+        ExecutorService virtualExecutor = useVirtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+        this.virtual = virtualExecutor != null;
+        this.io = virtual ? virtualExecutor : Executors.newCachedThreadPool(threadFactory("verifier-io-"));
+        this.computeThreads = computeThreads > 0 ? computeThreads : Runtime.getRuntime().availableProcessors();
+        log.info("Using {} threads for I/O and {} compute threads", virtual ? "virtual" : "platform", this.computeThreads);
+    }
+
+    public ExecutorService io() {
+        return io;
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    public int getComputeThreads() {
+        return computeThreads;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        io.shutdownNow();
+    }
+
+    /**
+     * Virtual threads are looked up reflectively since the sources still target Java 11
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            log.warn("Virtual threads requested but not supported by Java {}, using platform threads", Runtime.version());
+            return null;
+        }
+    }
+
+    private static ThreadFactory threadFactory(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
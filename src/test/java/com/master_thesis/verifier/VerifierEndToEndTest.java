@@ -0,0 +1,180 @@
+package com.master_thesis.verifier;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.VerificationResult;
+import com.master_thesis.verifier.loadtest.GeneratedRound;
+import com.master_thesis.verifier.loadtest.RoundFactory;
+import com.master_thesis.verifier.loadtest.TrustedThirdPartyStub;
+import com.master_thesis.verifier.utils.ResultPublisher;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// The breaker's threshold is raised so that the failed look-ups of a test never open the circuit
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"verifier.trusted-party.url=http://localhost:${ttp.stub.port}", "verifier.trusted-party.breaker.failures=20"})
+class VerifierEndToEndTest {
+
+    private static final List<Integer> SERVERS = List.of(1, 2);
+    private static final List<Integer> CLIENTS = List.of(11, 12, 13);
+    private static TrustedThirdPartyStub stub;
+    private static RoundFactory roundFactory;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final Map<String, CompletableFuture<VerificationResult>> outcomes = new ConcurrentHashMap<>();
+    private final Map<String, Integer> published = new ConcurrentHashMap<>();
+    private final Consumer<VerificationResult> listener = result -> {
+        published.merge(result.getSubstationID() + "/" + result.getFid(), 1, Integer::sum);
+        CompletableFuture<VerificationResult> outcome = outcomes.get(result.getSubstationID() + "/" + result.getFid());
+        if (outcome != null)
+            outcome.complete(result);
+    };
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ResultPublisher resultPublisher;
+
+    @BeforeAll
+    static void startTrustedThirdParty() throws Exception {
+        stub = new TrustedThirdPartyStub(0, SERVERS, 4);
+        stub.start();
+        System.setProperty("ttp.stub.port", String.valueOf(stub.getPort()));
+        roundFactory = new RoundFactory(SERVERS, 128, 512, 512, 7);
+    }
+
+    @AfterAll
+    static void stopTrustedThirdParty() {
+        stub.close();
+        System.clearProperty("ttp.stub.port");
+    }
+
+    @BeforeEach
+    void subscribe() {
+        resultPublisher.subscribe(listener);
+    }
+
+    @AfterEach
+    void unsubscribe() {
+        resultPublisher.unsubscribe(listener);
+    }
+
+    @Test
+    void verifiesHomomorphicHashRounds() throws Exception {
+        assertOutcome(Construction.HASH, 1, true);
+        assertOutcome(Construction.HASH, 2, false);
+    }
+
+    @Test
+    void verifiesRSAThresholdRounds() throws Exception {
+        assertOutcome(Construction.RSA, 1, true);
+        assertOutcome(Construction.RSA, 2, false);
+    }
+
+    @Test
+    void verifiesLinearSignatureRounds() throws Exception {
+        assertOutcome(Construction.LINEAR, 1, true);
+        assertOutcome(Construction.LINEAR, 2, false);
+    }
+
+    @Test
+    void verifiesDifferentialPrivacyRounds() throws Exception {
+        assertOutcome(Construction.DP, 1, true);
+        assertOutcome(Construction.DP, 2, false);
+    }
+
+    @Test
+    void verifiesARoundOnlyOnceAndRejectsLateSubmissions() throws Exception {
+        GeneratedRound round = assertOutcome(Construction.HASH, 3, true);
+
+        for (GeneratedRound.Submission submission : round.getSubmissions())
+            assertEquals(409, post(submission));
+//        Give a wrongly started second verification the time to publish
+        Thread.sleep(500);
+        assertEquals(1, published.get((10 + Construction.HASH.ordinal()) + "/3"));
+    }
+
+    @Test
+    void verifiesARoundParkedAfterAFailedLookupThatLeftTheCircuitClosed() throws Exception {
+        int substationID = 10 + Construction.HASH.ordinal();
+        GeneratedRound round = roundFactory.create(Construction.HASH, substationID, 4, CLIENTS, true);
+        stub.register(round);
+        CompletableFuture<VerificationResult> outcome = new CompletableFuture<>();
+        outcomes.put(substationID + "/4", outcome);
+
+//        Every look-up of the round's clients fails while it is submitted, fewer times than the breaker's threshold,
+//        so the complete round is parked with the circuit still closed
+        stub.fail("/api/client/list/", true);
+        try {
+            for (GeneratedRound.Submission submission : round.getSubmissions())
+                assertEquals(200, post(submission));
+        } finally {
+            stub.fail("/api/client/list/", false);
+        }
+
+        assertTrue(outcome.get(30, TimeUnit.SECONDS).isValid());
+    }
+
+    @Test
+    void servesTheResultsOfVerifiedRounds() throws Exception {
+        assertOutcome(Construction.DP, 3, true);
+        int substationID = 10 + Construction.DP.ordinal();
+
+        HttpResponse<String> response = get("/api/result/" + substationID + "/3");
+        assertEquals(200, response.statusCode());
+        assertEquals(true, objectMapper.readTree(response.body()).get("valid").asBoolean());
+        assertEquals(200, get("/api/result/" + substationID + "?from=1&to=3").statusCode());
+        assertEquals(404, get("/api/result/" + substationID + "/4").statusCode());
+    }
+
+    private GeneratedRound assertOutcome(Construction construction, int fid, boolean valid) throws Exception {
+        int substationID = 10 + construction.ordinal();
+        GeneratedRound round = roundFactory.create(construction, substationID, fid, CLIENTS, valid);
+        stub.register(round);
+        CompletableFuture<VerificationResult> outcome = new CompletableFuture<>();
+        outcomes.put(substationID + "/" + fid, outcome);
+
+        for (GeneratedRound.Submission submission : round.getSubmissions())
+            assertEquals(200, post(submission));
+
+        VerificationResult result = outcome.get(30, TimeUnit.SECONDS);
+        assertEquals(construction, result.getConstruction());
+        assertEquals(valid, result.isValid(), construction + " round " + fid);
+        return round;
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + path)).GET().build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private int post(GeneratedRound.Submission submission) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + submission.getPath()))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(submission.getBody())))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,105 @@
+package com.master_thesis.verifier.capture;
+
+import com.master_thesis.verifier.data.RSAServerData;
+import com.master_thesis.verifier.data.RecordFile;
+import com.master_thesis.verifier.data.SubmissionRecord;
+import com.master_thesis.verifier.data.SubmissionType;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TrafficCaptureTest {
+
+    @Test
+    void capturedSubmissionsCanBeReadBack() throws Exception {
+        Path directory = Files.createTempDirectory("capture");
+        try {
+            TrafficCapture capture = new TrafficCapture(true, directory, 1024 * 1024, 0, 16);
+            for (int id = 1; id <= 3; id++)
+                capture.capture(rsaServer(id));
+            capture.close();
+
+            List<SubmissionRecord> records = read(files(directory));
+            assertEquals(3, records.size());
+            assertEquals(SubmissionType.RSA_SERVER, records.get(0).getType());
+            assertEquals(BigInteger.valueOf(2), ((RSAServerData) records.get(1).getData()).getPartialResult());
+            assertTrue(records.get(2).getTimestampMillis() > 0);
+            assertEquals(3, capture.getCaptured());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void filesAreRotatedAndOnlyTheNewestKept() throws Exception {
+        Path directory = Files.createTempDirectory("capture");
+        try {
+//            Every record goes to a file of its own
+            TrafficCapture capture = new TrafficCapture(true, directory, 1, 2, 16);
+            for (int id = 1; id <= 5; id++)
+                capture.capture(rsaServer(id));
+            capture.close();
+
+            List<Path> files = files(directory);
+            assertEquals(2, files.size());
+            assertEquals(List.of(4, 5), read(files).stream().map(record -> record.getData().getId()).collect(Collectors.toList()));
+        } finally {
+            delete(directory);
+        }
+    }
+
+    @Test
+    void disabledCaptureWritesNothing() throws Exception {
+        Path directory = Files.createTempDirectory("capture");
+        try {
+            TrafficCapture capture = new TrafficCapture(false, directory, 1, 2, 16);
+            capture.capture(rsaServer(1));
+            capture.close();
+
+            assertTrue(files(directory).isEmpty());
+        } finally {
+            delete(directory);
+        }
+    }
+
+    private static List<SubmissionRecord> read(List<Path> files) throws IOException {
+        List<SubmissionRecord> records = new ArrayList<>();
+        for (Path file : files)
+            try (RecordFile.Reader reader = RecordFile.open(file)) {
+                for (SubmissionRecord record = reader.next(); record != null; record = reader.next())
+                    records.add(record);
+            }
+        return records;
+    }
+
+    private static List<Path> files(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted(Comparator.comparing(file -> file.getFileName().toString())).collect(Collectors.toList());
+        }
+    }
+
+    private static void delete(Path directory) throws IOException {
+        for (Path file : files(directory))
+            Files.delete(file);
+        Files.delete(directory);
+    }
+
+    private static RSAServerData rsaServer(int id) {
+        RSAServerData data = new RSAServerData();
+        data.setSubstationID(1);
+        data.setFid(1);
+        data.setId(id);
+        data.setPartialResult(BigInteger.valueOf(id));
+        return data;
+    }
+}
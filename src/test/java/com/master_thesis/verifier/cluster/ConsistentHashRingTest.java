@@ -0,0 +1,62 @@
+package com.master_thesis.verifier.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConsistentHashRingTest {
+
+    private static final List<String> NODES = List.of("http://localhost:3000", "http://localhost:3001", "http://localhost:3002");
+    private static final int SUBSTATIONS = 3000;
+
+    @Test
+    void everyNodeOwnsAShareOfTheSubstations() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+        Map<String, Long> owned = IntStream.range(0, SUBSTATIONS).mapToObj(ring::ownerOf)
+                .collect(Collectors.groupingBy(node -> node, Collectors.counting()));
+
+        assertEquals(new HashSet<>(NODES), owned.keySet());
+//        With 128 virtual nodes each node should be within a wide margin of a third
+        owned.values().forEach(count -> assertTrue(count > SUBSTATIONS / 6 && count < SUBSTATIONS / 2, owned.toString()));
+    }
+
+    @Test
+    void nodesAgreeOnTheOwnerWhateverTheOrderOfTheirConfiguration() {
+        List<String> reversed = new ArrayList<>(NODES);
+        Collections.reverse(reversed);
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 64);
+        ConsistentHashRing other = new ConsistentHashRing(reversed, 64);
+
+        IntStream.range(0, SUBSTATIONS).forEach(substationID -> assertEquals(ring.ownerOf(substationID), other.ownerOf(substationID)));
+    }
+
+    @Test
+    void joiningNodeOnlyTakesSubstationsOverFromOthers() {
+        ConsistentHashRing ring = new ConsistentHashRing(NODES, 128);
+        String joining = "http://localhost:3003";
+        ConsistentHashRing joined = ring.with(joining);
+
+        int moved = 0;
+        for (int substationID = 0; substationID < SUBSTATIONS; substationID++) {
+            String before = ring.ownerOf(substationID), after = joined.ownerOf(substationID);
+            if (!before.equals(after)) {
+                assertEquals(joining, after);
+                moved++;
+            }
+        }
+        assertTrue(moved > 0 && moved < SUBSTATIONS / 2, "moved " + moved);
+//        Leaving again restores the previous owners
+        ConsistentHashRing left = joined.without(joining);
+        IntStream.range(0, SUBSTATIONS).forEach(substationID -> assertEquals(ring.ownerOf(substationID), left.ownerOf(substationID)));
+    }
+
+    @Test
+    void emptyRingHasNoOwner() {
+        ConsistentHashRing ring = new ConsistentHashRing(List.of(), 16);
+        assertThrows(IllegalStateException.class, () -> ring.ownerOf(1));
+    }
+}
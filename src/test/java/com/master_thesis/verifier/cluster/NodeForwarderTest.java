@@ -0,0 +1,103 @@
+package com.master_thesis.verifier.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class NodeForwarderTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Queue<Integer> answers = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger received = new AtomicInteger();
+    private HttpServer node;
+    private ScheduledExecutorService timer;
+
+    @BeforeEach
+    void startNode() throws IOException {
+        node = HttpServer.create(new InetSocketAddress("localhost", 0), 16);
+        node.createContext("/api/cluster/forward", exchange -> {
+            exchange.getRequestBody().readAllBytes();
+            received.incrementAndGet();
+            Integer status = answers.poll();
+            exchange.sendResponseHeaders(status == null ? 200 : status, -1);
+            exchange.close();
+        });
+        node.start();
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @AfterEach
+    void stopNode() {
+        node.stop(0);
+        timer.shutdownNow();
+    }
+
+    @Test
+    void aBatchTheNodeCouldNotTakeIsSentAgain() throws InterruptedException {
+        answers.add(503);
+        answers.add(429);
+        NodeForwarder forwarder = forwarder(5);
+
+        forwarder.forward(submission());
+
+        awaitSettled(forwarder);
+        assertEquals(3, received.get());
+        assertEquals(1, forwarder.getForwarded());
+        assertEquals(2, forwarder.getRetried());
+        assertEquals(0, forwarder.getFailed());
+    }
+
+    @Test
+    void aBatchIsGivenUpAfterTheLastAttempt() throws InterruptedException {
+        for (int i = 0; i < 3; i++)
+            answers.add(503);
+        NodeForwarder forwarder = forwarder(3);
+
+        forwarder.forward(submission());
+
+        awaitSettled(forwarder);
+        assertEquals(3, received.get());
+        assertEquals(0, forwarder.getForwarded());
+        assertEquals(1, forwarder.getFailed());
+    }
+
+    @Test
+    void aMalformedBatchIsNotSentAgain() throws InterruptedException {
+        answers.add(400);
+        NodeForwarder forwarder = forwarder(5);
+
+        forwarder.forward(submission());
+
+        awaitSettled(forwarder);
+        assertEquals(1, received.get());
+        assertEquals(1, forwarder.getFailed());
+    }
+
+    private NodeForwarder forwarder(int maxAttempts) {
+        String url = "http://localhost:" + node.getAddress().getPort();
+        return new NodeForwarder(url, HttpClient.newHttpClient(), objectMapper, timer, Duration.ofMillis(1), 1, maxAttempts, Duration.ofMillis(10));
+    }
+
+    private ForwardedSubmission submission() {
+        return new ForwardedSubmission(true, 1, objectMapper.createObjectNode().put("construction", "HASH"));
+    }
+
+    private static void awaitSettled(NodeForwarder forwarder) throws InterruptedException {
+        for (int i = 0; i < 500 && forwarder.getForwarded() + forwarder.getFailed() == 0; i++)
+            Thread.sleep(10);
+    }
+}
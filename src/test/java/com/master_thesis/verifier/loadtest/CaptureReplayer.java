@@ -0,0 +1,149 @@
+package com.master_thesis.verifier.loadtest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.data.RecordFile;
+import com.master_thesis.verifier.data.SubmissionRecord;
+import com.master_thesis.verifier.data.SubmissionType;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Replays a traffic capture of the verifier's /api/*-data endpoints against a running verifier, keeping the gaps
+ * between the submissions as they were recorded or shortening them by a factor, and reports the response times.
+ * <p>
+ * Run with {@code ./gradlew replay -PreplayArgs="--capture=capture --speed=4"}.
+ * <ul>
+ *     <li>--capture: a capture file, or a directory whose capture files are replayed in the order they were written</li>
+ *     <li>--url: the verifier (http://localhost:3000)</li>
+ *     <li>--speed: how many times faster than recorded, 0 for as fast as possible (1)</li>
+ *     <li>--max-in-flight: concurrent HTTP submissions (256)</li>
+ * </ul>
+ */
+public class CaptureReplayer {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, String> options;
+    private final Map<SubmissionType, List<Long>> latencies = new ConcurrentHashMap<>();
+    private final Map<Integer, AtomicInteger> statuses = new ConcurrentHashMap<>();
+    private final AtomicInteger failed = new AtomicInteger();
+    private long maxLagNanos;
+
+    private CaptureReplayer(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "true");
+        }
+        new CaptureReplayer(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        List<Path> files = captureFiles(Path.of(options.getOrDefault("capture", "capture")));
+        String url = options.getOrDefault("url", "http://localhost:3000");
+        double speed = Double.parseDouble(options.getOrDefault("speed", "1"));
+        int maxInFlight = Integer.parseInt(options.getOrDefault("max-in-flight", "256"));
+        HttpClient httpClient = HttpClient.newHttpClient();
+        Semaphore inFlight = new Semaphore(maxInFlight);
+
+        System.out.printf("Replaying %d capture files against %s at %s%n", files.size(), url, speed > 0 ? speed + "x" : "full speed");
+        long start = System.nanoTime(), firstRecorded = -1, sent = 0;
+        for (Path file : files) {
+            try (RecordFile.Reader reader = RecordFile.open(file)) {
+                for (SubmissionRecord record = reader.next(); record != null; record = reader.next()) {
+                    if (firstRecorded < 0)
+                        firstRecorded = record.getTimestampMillis();
+                    if (speed > 0) {
+                        long due = start + (long) (TimeUnit.MILLISECONDS.toNanos(record.getTimestampMillis() - firstRecorded) / speed);
+                        sleepUntil(due);
+                        maxLagNanos = Math.max(maxLagNanos, System.nanoTime() - due);
+                    }
+                    inFlight.acquire();
+                    send(httpClient, url, record, inFlight);
+                    sent++;
+                }
+            }
+        }
+        inFlight.acquire(maxInFlight);
+        report(sent, (System.nanoTime() - start) / 1e9);
+    }
+
+    private void send(HttpClient httpClient, String url, SubmissionRecord record, Semaphore inFlight) throws JsonProcessingException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url + record.getType().getPath()))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(record.getData())))
+                .build();
+        long sentAt = System.nanoTime();
+        httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, throwable) -> {
+                    if (throwable != null) {
+                        failed.incrementAndGet();
+                    } else {
+                        long latency = System.nanoTime() - sentAt;
+                        latencies.computeIfAbsent(record.getType(), type -> Collections.synchronizedList(new ArrayList<>())).add(latency);
+                        statuses.computeIfAbsent(response.statusCode(), status -> new AtomicInteger()).incrementAndGet();
+                    }
+                    inFlight.release();
+                });
+    }
+
+    private void report(long sent, double seconds) {
+        long[] all = latencies.values().stream().flatMap(List::stream).mapToLong(Long::longValue).sorted().toArray();
+        System.out.println("=== Capture replay report ===");
+        System.out.printf("submissions: %d sent in %.2f s (%.1f/s), %d failed to send%n", sent, seconds, sent / seconds, failed.get());
+        System.out.printf("responses: %s%n", new TreeMap<>(statuses));
+        System.out.printf("max send lag behind the recording: %.1f ms%n", maxLagNanos / 1e6);
+        System.out.printf("response latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), percentile(all, 1.0));
+        for (SubmissionType type : SubmissionType.values()) {
+            List<Long> perType = latencies.get(type);
+            if (perType == null)
+                continue;
+            long[] sorted = perType.stream().mapToLong(Long::longValue).sorted().toArray();
+            System.out.printf("  %-24s %6d submissions, p50 %.1f ms, p99 %.1f ms%n", type.getPath(), sorted.length,
+                    percentile(sorted, 0.50), percentile(sorted, 0.99));
+        }
+    }
+
+    private static List<Path> captureFiles(Path capture) throws IOException {
+        if (!Files.isDirectory(capture))
+            return List.of(capture);
+//        The names start with the time the file was started, so they sort in the order they were written
+        try (Stream<Path> files = Files.list(capture)) {
+            return files.filter(file -> file.getFileName().toString().endsWith(".rec.gz")).sorted(Comparator.comparing(
+                    file -> file.getFileName().toString())).collect(Collectors.toList());
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0)
+            return Double.NaN;
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0)
+            TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+}
@@ -0,0 +1,117 @@
+package com.master_thesis.verifier.loadtest;
+
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.LinearPublicData;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * All submissions of one (substationID, fid) round and the public parameters the trusted third-party serves for it
+ */
+public class GeneratedRound {
+
+    private final Construction construction;
+    private final int substationID, fid;
+    private final List<Integer> clients;
+    private final boolean valid;
+    private final BigInteger fieldBase, generator;
+    private final List<Submission> submissions = new ArrayList<>();
+    private BigInteger lastClientProof, rn;
+    private LinearPublicData linearPublicData;
+
+    GeneratedRound(Construction construction, int substationID, int fid, List<Integer> clients, boolean valid, BigInteger fieldBase, BigInteger generator) {
+        this.construction = construction;
+        this.substationID = substationID;
+        this.fid = fid;
+        this.clients = List.copyOf(clients);
+        this.valid = valid;
+        this.fieldBase = fieldBase;
+        this.generator = generator;
+    }
+
+    public Construction getConstruction() {
+        return construction;
+    }
+
+    public int getSubstationID() {
+        return substationID;
+    }
+
+    public int getFid() {
+        return fid;
+    }
+
+    public List<Integer> getClients() {
+        return clients;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public BigInteger getFieldBase() {
+        return fieldBase;
+    }
+
+    public BigInteger getGenerator() {
+        return generator;
+    }
+
+    public BigInteger getLastClientProof() {
+        return lastClientProof;
+    }
+
+    void setLastClientProof(BigInteger lastClientProof) {
+        this.lastClientProof = lastClientProof;
+    }
+
+    public BigInteger getRn() {
+        return rn;
+    }
+
+    void setRn(BigInteger rn) {
+        this.rn = rn;
+    }
+
+    public LinearPublicData getLinearPublicData() {
+        return linearPublicData;
+    }
+
+    void setLinearPublicData(LinearPublicData linearPublicData) {
+        this.linearPublicData = linearPublicData;
+    }
+
+    public List<Submission> getSubmissions() {
+        return submissions;
+    }
+
+    void addServerSubmission(Map<String, Object> body) {
+        submissions.add(new Submission("/api/server/" + construction.getEndpoint(), body));
+    }
+
+    void addClientSubmission(Map<String, Object> body) {
+        submissions.add(new Submission("/api/client/" + construction.getEndpoint(), body));
+    }
+
+    public static class Submission {
+
+        private final String path;
+        private final Map<String, Object> body;
+
+        Submission(String path, Map<String, Object> body) {
+            this.path = path;
+            this.body = body;
+        }
+
+        public String getPath() {
+            return path;
+        }
+
+        public Map<String, Object> getBody() {
+            return body;
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package com.master_thesis.verifier.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.VerifierApplication;
+import com.master_thesis.verifier.cluster.ClusterRouter;
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.VerificationResult;
+import com.master_thesis.verifier.utils.ResultPublisher;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Drives a verifier the way the fleet does: many substations, fids and clients posting to the /api/*-data endpoints,
+ * backed by a {@link TrustedThirdPartyStub}. The verifier runs in this JVM so that every outcome can be timed.
+ * <p>
+ * Run with {@code ./gradlew loadTest -PloadArgs="--substations=8 --fids=20 --pattern=poisson --rate=2000"}.
+ * <ul>
+ *     <li>--substations, --fids, --clients, --servers: size of the workload (4, 10, 10, 2)</li>
+ *     <li>--constructions: comma separated, assigned round-robin to the substations (HASH,RSA,LINEAR,DP)</li>
+ *     <li>--pattern: constant, poisson or burst (constant)</li>
+ *     <li>--rate: submissions per second for constant and poisson, 0 for as fast as possible (0)</li>
+ *     <li>--interval-ms: time between two fids for burst (1000)</li>
+ *     <li>--invalid-ratio: the fraction of rounds generated with a tampered server value (0.0)</li>
+ *     <li>--field-bits, --rsa-bits, --linear-bits: key sizes (256, 1024, 1024)</li>
+ *     <li>--ttp-port, --verifier-port: local ports for the stand-in and the verifier (4000, 3000)</li>
+ *     <li>--ttp-replicas: the number of stand-ins, on consecutive ports from --ttp-port, the verifier balances over (1)</li>
+ *     <li>--verifier-nodes: the number of verifiers, more than one runs a cluster on consecutive ports from
+ *     --verifier-port and sends every submission to a random node (1)</li>
+ *     <li>--max-in-flight: concurrent HTTP submissions (256)</li>
+ *     <li>--drain-seconds: how long to wait for outstanding outcomes once everything is sent (60)</li>
+ *     <li>--seed: seed for the workload (42)</li>
+ * </ul>
+ * Options with a dot in their name, e.g. --logging.level.com.master_thesis.verifier=warn, are passed on to the verifier.
+ */
+public class LoadGenerator {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, String> options;
+    private final Map<Long, RoundTracker> trackers = new ConcurrentHashMap<>();
+    private final AtomicInteger dropped = new AtomicInteger();
+    private final AtomicInteger duplicates = new AtomicInteger();
+    private final AtomicInteger outcomes = new AtomicInteger();
+
+    private LoadGenerator(Map<String, String> options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] keyValue = arg.replaceFirst("^--", "").split("=", 2);
+            options.put(keyValue[0], keyValue.length > 1 ? keyValue[1] : "true");
+        }
+        new LoadGenerator(options).run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        int substations = intOption("substations", 4);
+        int fids = intOption("fids", 10);
+        int clients = intOption("clients", 10);
+        List<Integer> servers = IntStream.rangeClosed(1, intOption("servers", 2)).boxed().collect(Collectors.toList());
+        List<Construction> constructions = Arrays.stream(option("constructions", "HASH,RSA,LINEAR,DP").split(","))
+                .map(String::trim).map(Construction::valueOf).collect(Collectors.toList());
+        double invalidRatio = Double.parseDouble(option("invalid-ratio", "0.0"));
+        long seed = Long.parseLong(option("seed", "42"));
+        Random random = new Random(seed);
+
+        RoundFactory factory = new RoundFactory(servers, intOption("field-bits", 256), intOption("rsa-bits", 1024), intOption("linear-bits", 1024), seed);
+        List<Integer> clientIDs = IntStream.rangeClosed(1, clients).map(id -> 1000 + id).boxed().collect(Collectors.toList());
+
+        System.out.printf("Generating %d rounds...%n", substations * fids);
+        List<List<GeneratedRound>> roundsPerFid = new ArrayList<>();
+        for (int fid = 1; fid <= fids; fid++) {
+            List<GeneratedRound> rounds = new ArrayList<>();
+            for (int substationID = 1; substationID <= substations; substationID++) {
+                Construction construction = constructions.get((substationID - 1) % constructions.size());
+                boolean valid = random.nextDouble() >= invalidRatio;
+                rounds.add(factory.create(construction, substationID, fid, clientIDs, valid));
+            }
+            roundsPerFid.add(rounds);
+        }
+
+        List<TrustedThirdPartyStub> stubs = new ArrayList<>();
+        try {
+            for (int replica = 0; replica < intOption("ttp-replicas", 1); replica++) {
+                TrustedThirdPartyStub stub = new TrustedThirdPartyStub(intOption("ttp-port", 4000) + replica, servers, intOption("ttp-threads", 16));
+                stubs.add(stub);
+                roundsPerFid.forEach(rounds -> rounds.forEach(stub::register));
+                stub.start();
+            }
+            String trustedParties = stubs.stream().map(stub -> "http://localhost:" + stub.getPort()).collect(Collectors.joining(","));
+
+            int verifierPort = intOption("verifier-port", 3000);
+            int verifierNodes = intOption("verifier-nodes", 1);
+            List<Integer> verifierPorts = IntStream.range(verifierPort, verifierPort + verifierNodes).boxed().collect(Collectors.toList());
+            String clusterNodes = verifierPorts.stream().map(port -> "http://localhost:" + port).collect(Collectors.joining(","));
+            List<ConfigurableApplicationContext> verifiers = new ArrayList<>();
+            for (int port : verifierPorts) {
+                List<String> verifierArgs = new ArrayList<>(List.of(
+                        "--server.port=" + port,
+                        "--verifier.trusted-party.url=" + trustedParties));
+                if (verifierNodes > 1)
+                    verifierArgs.addAll(List.of(
+                            "--verifier.cluster.enabled=true",
+                            "--verifier.cluster.self=http://localhost:" + port,
+                            "--verifier.cluster.nodes=" + clusterNodes));
+                options.forEach((name, value) -> {
+                    if (name.contains("."))
+                        verifierArgs.add("--" + name + "=" + value);
+                });
+                ConfigurableApplicationContext verifier = SpringApplication.run(VerifierApplication.class, verifierArgs.toArray(String[]::new));
+                verifier.getBean(ResultPublisher.class).subscribe(this::onResult);
+                verifiers.add(verifier);
+            }
+
+            roundsPerFid.forEach(rounds -> rounds.forEach(round -> trackers.put(key(round.getSubstationID(), round.getFid()), new RoundTracker(round))));
+            long start = System.nanoTime();
+            send(roundsPerFid, verifierPorts, random);
+            long sent = System.nanoTime();
+            awaitOutcomes(TimeUnit.SECONDS.toNanos(intOption("drain-seconds", 60)));
+            long end = System.nanoTime();
+
+            report(start, sent, end);
+            for (TrustedThirdPartyStub stub : stubs) {
+                System.out.printf("trusted third-party requests on port %d:%n", stub.getPort());
+                stub.requestCounts().forEach((context, count) -> System.out.printf("  %-40s %d%n", context, count));
+            }
+            if (verifierNodes > 1) {
+                System.out.println("forwarded submissions:");
+                for (ConfigurableApplicationContext verifier : verifiers) {
+                    ClusterRouter cluster = verifier.getBean(ClusterRouter.class);
+                    cluster.getForwardCounts().forEach((node, counts) -> System.out.printf("  %s -> %s %s%n", cluster.getSelf(), node, counts));
+                }
+            }
+            verifiers.forEach(ConfigurableApplicationContext::close);
+        } finally {
+            stubs.forEach(TrustedThirdPartyStub::close);
+        }
+    }
+
+    private void send(List<List<GeneratedRound>> roundsPerFid, List<Integer> verifierPorts, Random random) throws InterruptedException {
+        HttpClient httpClient = HttpClient.newHttpClient();
+        Semaphore inFlight = new Semaphore(intOption("max-in-flight", 256));
+        String pattern = option("pattern", "constant");
+        double rate = Double.parseDouble(option("rate", "0"));
+        long intervalNanos = TimeUnit.MILLISECONDS.toNanos(intOption("interval-ms", 1000));
+        long next = System.nanoTime();
+
+        for (List<GeneratedRound> rounds : roundsPerFid) {
+            List<Submission> submissions = new ArrayList<>();
+            for (GeneratedRound round : rounds)
+                for (GeneratedRound.Submission submission : round.getSubmissions())
+                    submissions.add(new Submission(trackers.get(key(round.getSubstationID(), round.getFid())), submission));
+            Collections.shuffle(submissions, random);
+
+            if (pattern.equals("burst")) {
+                sleepUntil(next);
+                next += intervalNanos;
+            }
+            for (Submission submission : submissions) {
+                if (rate > 0 && !pattern.equals("burst")) {
+                    double gap = pattern.equals("poisson") ? -Math.log(1 - random.nextDouble()) / rate : 1 / rate;
+                    next += (long) (gap * TimeUnit.SECONDS.toNanos(1));
+                    sleepUntil(next);
+                }
+                inFlight.acquire();
+                submission.tracker.lastSent.accumulateAndGet(System.nanoTime(), Math::max);
+                HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + verifierPorts.get(random.nextInt(verifierPorts.size())) + submission.submission.getPath()))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(json(submission.submission.getBody())))
+                        .build();
+                httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                        .whenComplete((response, throwable) -> {
+                            if (throwable != null || response.statusCode() != 200)
+                                dropped.incrementAndGet();
+                            inFlight.release();
+                        });
+            }
+        }
+        inFlight.acquire(intOption("max-in-flight", 256));
+    }
+
+    private void onResult(VerificationResult result) {
+        RoundTracker tracker = trackers.get(key(result.getSubstationID(), result.getFid()));
+        if (tracker == null)
+            return;
+        long now = System.nanoTime();
+        synchronized (tracker) {
+            if (tracker.outcome != null) {
+                duplicates.incrementAndGet();
+                return;
+            }
+            tracker.outcome = result;
+            tracker.latency = now - tracker.lastSent.get();
+        }
+        synchronized (outcomes) {
+            outcomes.incrementAndGet();
+            outcomes.notifyAll();
+        }
+    }
+
+    private void awaitOutcomes(long timeoutNanos) throws InterruptedException {
+        long deadline = System.nanoTime() + timeoutNanos;
+        synchronized (outcomes) {
+            while (outcomes.get() < trackers.size() && System.nanoTime() < deadline)
+                outcomes.wait(Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime())));
+        }
+    }
+
+    private void report(long start, long sent, long end) {
+        List<RoundTracker> finished = trackers.values().stream().filter(tracker -> tracker.outcome != null).collect(Collectors.toList());
+        long[] latencies = finished.stream().mapToLong(tracker -> tracker.latency).sorted().toArray();
+        long mismatches = finished.stream().filter(tracker -> tracker.outcome.isValid() != tracker.round.isValid()).count();
+        double seconds = (end - start) / 1e9;
+
+        System.out.println("=== Load generator report ===");
+        System.out.printf("rounds: %d verified, %d incomplete, %d duplicate outcomes, %d unexpected verdicts%n",
+                finished.size(), trackers.size() - finished.size(), duplicates.get(), mismatches);
+        System.out.printf("dropped submissions: %d%n", dropped.get());
+        System.out.printf("send phase: %.2f s, total: %.2f s%n", (sent - start) / 1e9, seconds);
+        System.out.printf("throughput: %.2f rounds/s%n", finished.size() / seconds);
+        System.out.printf("verification latency ms: p50 %.1f, p90 %.1f, p99 %.1f, max %.1f%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.90), percentile(latencies, 0.99), percentile(latencies, 1.0));
+        for (Construction construction : Construction.values()) {
+            long[] perConstruction = finished.stream().filter(tracker -> tracker.round.getConstruction() == construction)
+                    .mapToLong(tracker -> tracker.latency).sorted().toArray();
+            if (perConstruction.length > 0)
+                System.out.printf("  %-8s %5d rounds, p50 %.1f ms, p99 %.1f ms%n", construction.name(), perConstruction.length,
+                        percentile(perConstruction, 0.50), percentile(perConstruction, 0.99));
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0)
+            return Double.NaN;
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    private static void sleepUntil(long nanoTime) throws InterruptedException {
+        long remaining = nanoTime - System.nanoTime();
+        if (remaining > 0)
+            TimeUnit.NANOSECONDS.sleep(remaining);
+    }
+
+    private static String json(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private String option(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    private int intOption(String name, int defaultValue) {
+        return Integer.parseInt(option(name, String.valueOf(defaultValue)));
+    }
+
+    private static long key(int substationID, int fid) {
+        return ((long) substationID << 32) | (fid & 0xffffffffL);
+    }
+
+    private static class RoundTracker {
+        private final GeneratedRound round;
+        private final AtomicLong lastSent = new AtomicLong(Long.MIN_VALUE);
+        private VerificationResult outcome;
+        private long latency;
+
+        private RoundTracker(GeneratedRound round) {
+            this.round = round;
+        }
+    }
+
+    private static class Submission {
+        private final RoundTracker tracker;
+        private final GeneratedRound.Submission submission;
+
+        private Submission(RoundTracker tracker, GeneratedRound.Submission submission) {
+            this.tracker = tracker;
+            this.submission = submission;
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package com.master_thesis.verifier.loadtest;
+
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.LinearPublicData;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.TWO;
+
+/**
+ * Generates rounds the way the clients, servers and trusted third-party of the fleet would,
+ * i.e. the payloads of all submissions together with the public parameters the verifier will ask for.
+ * A round can be generated invalid, in which case one server reports a tampered value.
+ */
+public class RoundFactory {
+
+    private static final BigInteger RSA_PUBLIC_KEY = BigInteger.valueOf(65537);
+
+    private final int fieldBits, rsaBits, linearBits;
+    private final List<Integer> servers;
+    private final Random random;
+    private final Map<Integer, Substation> substations = new ConcurrentHashMap<>();
+    private final Map<Long, RSAKey> rsaKeys = new ConcurrentHashMap<>();
+
+    public RoundFactory(List<Integer> servers, int fieldBits, int rsaBits, int linearBits, long seed) {
+        if (fieldBits >= rsaBits)
+            throw new IllegalArgumentException("The field base must be smaller than the RSA modulus");
+        this.servers = List.copyOf(servers);
+        this.fieldBits = fieldBits;
+        this.rsaBits = rsaBits;
+        this.linearBits = linearBits;
+        this.random = new Random(seed);
+    }
+
+    public List<Integer> getServers() {
+        return servers;
+    }
+
+    public GeneratedRound create(Construction construction, int substationID, int fid, List<Integer> clients, boolean valid) {
+        Substation substation = substation(substationID);
+        GeneratedRound round = new GeneratedRound(construction, substationID, fid, clients, valid, substation.fieldBase, substation.generator);
+        switch (construction) {
+            case HASH:
+            case DP:
+                homomorphicHashRound(round, substation);
+                break;
+            case RSA:
+                rsaRound(round, substation);
+                break;
+            case LINEAR:
+                linearRound(round, substation);
+                break;
+        }
+        return round;
+    }
+
+    private void homomorphicHashRound(GeneratedRound round, Substation substation) {
+        BigInteger[] secrets = secrets(round.getClients().size());
+        BigInteger[] taus = taus(round, substation, secrets);
+        List<BigInteger> results = shares(sum(secrets));
+        for (int i = 0; i < servers.size(); i++) {
+            Map<String, Object> body = header(round, servers.get(i));
+            body.put("partialResult", tamper(round, i, results.get(i)));
+            body.put("partialProof", substation.generator.modPow(results.get(i), substation.fieldBase));
+            round.addServerSubmission(body);
+        }
+        for (int i = 0; i < taus.length; i++) {
+            Map<String, Object> body = header(round, round.getClients().get(i));
+            body.put("proofComponent", taus[i]);
+            round.addClientSubmission(body);
+        }
+    }
+
+    private void rsaRound(GeneratedRound round, Substation substation) {
+        BigInteger[] secrets = secrets(round.getClients().size());
+        BigInteger[] taus = taus(round, substation, secrets);
+        List<BigInteger> results = shares(sum(secrets));
+
+        Map<Integer, Map<String, Object>> partialProofs = new HashMap<>();
+        for (int i = 0; i < taus.length; i++) {
+            int clientID = round.getClients().get(i);
+            RSAKey key = rsaKey(round.getSubstationID(), clientID);
+//            Every server holds a share of the secret key such that the shares sum to sk, i.e. det = 1 and c_j = 1
+            List<BigInteger> keyShares = positiveShares(key.secretKey);
+            BigInteger[] proofComponents = new BigInteger[servers.size()];
+            for (int j = 0; j < proofComponents.length; j++)
+                proofComponents[j] = taus[i].modPow(TWO.multiply(keyShares.get(j)), key.modulus);
+            if (!round.isValid() && i == 0)
+                proofComponents[0] = proofComponents[0].multiply(TWO).mod(key.modulus);
+
+            Map<String, Object> proofData = new LinkedHashMap<>();
+            proofData.put("rsaN", key.modulus);
+            proofData.put("rsaProofComponent", proofComponents);
+            proofData.put("rsaDeterminant", 1.0);
+            proofData.put("clientProof", taus[i]);
+            partialProofs.put(clientID, proofData);
+
+            Map<String, Object> body = header(round, clientID);
+            body.put("proofComponent", taus[i]);
+            body.put("publicKey", RSA_PUBLIC_KEY);
+            round.addClientSubmission(body);
+        }
+        for (int i = 0; i < servers.size(); i++) {
+            Map<String, Object> body = header(round, servers.get(i));
+            body.put("partialResult", results.get(i));
+            body.put("partialProofs", partialProofs);
+            round.addServerSubmission(body);
+        }
+    }
+
+    private void linearRound(GeneratedRound round, Substation substation) {
+        int clientCount = round.getClients().size();
+        LinearKey key = substation.linearKey;
+        BigInteger nRoof = key.nRoof;
+        BigInteger fidPrime;
+        BigInteger eN;
+        do {
+            fidPrime = BigInteger.probablePrime(64, random);
+            eN = key.n.multiply(fidPrime);
+        } while (!eN.gcd(key.phi).equals(ONE));
+        BigInteger rootExponent = eN.modInverse(key.phi);
+
+        BigInteger[] h = new BigInteger[clientCount];
+        BigInteger[] secrets = secrets(clientCount);
+        BigInteger nonceSum = BigInteger.ZERO;
+        for (int i = 0; i < clientCount; i++) {
+            h[i] = randomUnit(nRoof);
+            BigInteger nonce = new BigInteger(64, random);
+            BigInteger sShare = new BigInteger(eN.bitLength() - 1, random);
+            nonceSum = nonceSum.add(nonce);
+//            x is the eN-th root of g1^s * h * g2^(m + r), which only the key holder can compute
+            BigInteger x = key.g1.modPow(sShare, nRoof)
+                    .multiply(h[i])
+                    .multiply(key.g2.modPow(secrets[i].add(nonce), nRoof))
+                    .mod(nRoof)
+                    .modPow(rootExponent, nRoof);
+
+            Map<String, Object> body = header(round, round.getClients().get(i));
+            body.put("fidPrime", fidPrime);
+            body.put("sShare", sShare);
+            body.put("x", x);
+            round.addClientSubmission(body);
+        }
+
+        LinearPublicData publicData = new LinearPublicData();
+        publicData.setN(key.n);
+        publicData.setNRoof(nRoof);
+        publicData.setFidPrime(fidPrime);
+        publicData.setG1(key.g1);
+        publicData.setG2(key.g2);
+        publicData.setH(h);
+        round.setLinearPublicData(publicData);
+        round.setRn(nonceSum.negate());
+
+        List<BigInteger> results = shares(sum(secrets));
+        for (int i = 0; i < servers.size(); i++) {
+            Map<String, Object> body = header(round, servers.get(i));
+            body.put("partialResult", tamper(round, i, results.get(i)));
+            round.addServerSubmission(body);
+        }
+    }
+
+    /**
+     * Computes tau_i = g^(x_i + r_i) for every client and the last client proof g^(-sum r_i) that cancels the nonce
+     */
+    private BigInteger[] taus(GeneratedRound round, Substation substation, BigInteger[] secrets) {
+        BigInteger[] taus = new BigInteger[secrets.length];
+        BigInteger nonceSum = BigInteger.ZERO;
+        for (int i = 0; i < secrets.length; i++) {
+            BigInteger nonce = new BigInteger(64, random);
+            nonceSum = nonceSum.add(nonce);
+            taus[i] = substation.generator.modPow(secrets[i].add(nonce), substation.fieldBase);
+        }
+        round.setLastClientProof(substation.generator.modPow(nonceSum.negate(), substation.fieldBase));
+        return taus;
+    }
+
+    private BigInteger[] secrets(int clientCount) {
+        BigInteger[] secrets = new BigInteger[clientCount];
+        for (int i = 0; i < clientCount; i++)
+            secrets[i] = BigInteger.valueOf(random.nextInt(1 << 16));
+        return secrets;
+    }
+
+    /**
+     * Additive shares, one per server, that may be negative
+     */
+    private List<BigInteger> shares(BigInteger value) {
+        List<BigInteger> shares = new ArrayList<>();
+        BigInteger remainder = value;
+        for (int i = 1; i < servers.size(); i++) {
+            BigInteger share = new BigInteger(32, random).subtract(BigInteger.valueOf(1L << 31));
+            shares.add(share);
+            remainder = remainder.subtract(share);
+        }
+        shares.add(remainder);
+        return shares;
+    }
+
+    private List<BigInteger> positiveShares(BigInteger value) {
+        List<BigInteger> shares = new ArrayList<>();
+        BigInteger bound = value.divide(BigInteger.valueOf(servers.size()));
+        BigInteger remainder = value;
+        for (int i = 1; i < servers.size(); i++) {
+            BigInteger share = new BigInteger(bound.bitLength(), random).mod(bound.max(ONE));
+            shares.add(share);
+            remainder = remainder.subtract(share);
+        }
+        shares.add(remainder);
+        return shares;
+    }
+
+    private BigInteger tamper(GeneratedRound round, int serverIndex, BigInteger value) {
+        return !round.isValid() && serverIndex == 0 ? value.add(ONE) : value;
+    }
+
+    private static BigInteger sum(BigInteger[] values) {
+        return Arrays.stream(values).reduce(BigInteger.ZERO, BigInteger::add);
+    }
+
+    private Map<String, Object> header(GeneratedRound round, int id) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("substationID", round.getSubstationID());
+        body.put("fid", round.getFid());
+        body.put("id", id);
+        return body;
+    }
+
+    private BigInteger randomUnit(BigInteger modulus) {
+        BigInteger value;
+        do {
+            value = new BigInteger(modulus.bitLength() - 1, random);
+        } while (value.compareTo(TWO) < 0 || !value.gcd(modulus).equals(ONE));
+        return value;
+    }
+
+    private synchronized Substation substation(int substationID) {
+        return substations.computeIfAbsent(substationID, id -> {
+            BigInteger fieldBase = BigInteger.probablePrime(fieldBits, random);
+            return new Substation(fieldBase, randomUnit(fieldBase), linearKey());
+        });
+    }
+
+    private synchronized RSAKey rsaKey(int substationID, int clientID) {
+        return rsaKeys.computeIfAbsent(((long) substationID << 32) | clientID, id -> {
+            while (true) {
+                BigInteger p = BigInteger.probablePrime(rsaBits / 2, random);
+                BigInteger q = BigInteger.probablePrime(rsaBits / 2, random);
+                BigInteger phi = p.subtract(ONE).multiply(q.subtract(ONE));
+                if (!p.equals(q) && RSA_PUBLIC_KEY.gcd(phi).equals(ONE))
+                    return new RSAKey(p.multiply(q), RSA_PUBLIC_KEY.modInverse(phi));
+            }
+        });
+    }
+
+    private LinearKey linearKey() {
+        BigInteger p, q;
+        do {
+            p = BigInteger.probablePrime(linearBits / 2, random);
+            q = BigInteger.probablePrime(linearBits / 2, random);
+        } while (p.equals(q));
+        BigInteger nRoof = p.multiply(q);
+        BigInteger phi = p.subtract(ONE).multiply(q.subtract(ONE));
+        BigInteger n = BigInteger.probablePrime(128, random);
+        return new LinearKey(n, nRoof, phi, randomUnit(nRoof), randomUnit(nRoof));
+    }
+
+    private static class Substation {
+        private final BigInteger fieldBase, generator;
+        private final LinearKey linearKey;
+
+        private Substation(BigInteger fieldBase, BigInteger generator, LinearKey linearKey) {
+            this.fieldBase = fieldBase;
+            this.generator = generator;
+            this.linearKey = linearKey;
+        }
+    }
+
+    private static class RSAKey {
+        private final BigInteger modulus, secretKey;
+
+        private RSAKey(BigInteger modulus, BigInteger secretKey) {
+            this.modulus = modulus;
+            this.secretKey = secretKey;
+        }
+    }
+
+    private static class LinearKey {
+        private final BigInteger n, nRoof, phi, g1, g2;
+
+        private LinearKey(BigInteger n, BigInteger nRoof, BigInteger phi, BigInteger g1, BigInteger g2) {
+            this.n = n;
+            this.nRoof = nRoof;
+            this.phi = phi;
+            this.g1 = g1;
+            this.g2 = g2;
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.master_thesis.verifier.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.data.RoundKey;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * A local stand-in for the trusted third-party on localhost:4000.
+ * It serves the public parameters of the rounds registered from a {@link RoundFactory}.
+ */
+public class TrustedThirdPartyStub implements AutoCloseable {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final List<Integer> servers;
+    private final Map<Integer, GeneratedRound> substations = new ConcurrentHashMap<>();
+    private final Map<Long, GeneratedRound> rounds = new ConcurrentHashMap<>();
+    private final Map<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final Set<String> failing = ConcurrentHashMap.newKeySet();
+    private volatile long delayMillis;
+
+    public TrustedThirdPartyStub(int port, List<Integer> servers, int threads) throws IOException {
+        this.servers = List.copyOf(servers);
+        this.server = HttpServer.create(new InetSocketAddress("localhost", port), 1024);
+        this.executor = Executors.newFixedThreadPool(threads);
+        server.setExecutor(executor);
+        server.createContext("/api/server/list/ids", exchange -> serve(exchange, ex -> json(this.servers)));
+        server.createContext("/api/setup/fieldBase/", exchange -> serve(exchange, ex -> substation(ex, 3, GeneratedRound::getFieldBase)));
+        server.createContext("/api/setup/generator/", exchange -> serve(exchange, ex -> substation(ex, 3, GeneratedRound::getGenerator)));
+        server.createContext("/lastClient/", exchange -> serve(exchange, ex -> round(ex, 1, GeneratedRound::getLastClientProof)));
+        server.createContext("/api/linear-data/public/", exchange -> serve(exchange, ex -> json(round(ex, 3, GeneratedRound::getLinearPublicData))));
+        server.createContext("/api/linear-data/rn/", exchange -> serve(exchange, ex -> round(ex, 3, GeneratedRound::getRn)));
+        server.createContext("/api/client/list/", exchange -> serve(exchange, ex -> json(round(ex, 3, GeneratedRound::getClients))));
+        server.createContext("/api/bulk/lastClient/computeLastTau", exchange -> serve(exchange, ex -> bulk(ex, GeneratedRound::getLastClientProof)));
+        server.createContext("/api/bulk/linear-data/rn", exchange -> serve(exchange, ex -> bulk(ex, GeneratedRound::getRn)));
+        server.createContext("/api/bulk/client/list", exchange -> serve(exchange, ex -> bulk(ex, GeneratedRound::getClients)));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public void register(GeneratedRound round) {
+        substations.putIfAbsent(round.getSubstationID(), round);
+        rounds.put(key(round.getSubstationID(), round.getFid()), round);
+    }
+
+    /**
+     * @param context the path an endpoint is registered under, e.g. /api/bulk/client/list
+     * @return the number of requests the endpoint has served
+     */
+    public long requests(String context) {
+        LongAdder count = requests.get(context);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * @param context the path an endpoint is registered under, e.g. /api/client/list/
+     * @param failing true to answer its requests with 503 until it is set back to false
+     */
+    public void fail(String context, boolean failing) {
+        if (failing)
+            this.failing.add(context);
+        else
+            this.failing.remove(context);
+    }
+
+    /**
+     * @param delay how long every request is held before it is answered
+     */
+    public void delay(Duration delay) {
+        this.delayMillis = delay.toMillis();
+    }
+
+    public Map<String, Long> requestCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        requests.forEach((context, count) -> counts.put(context, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @param offset the index of the substation ID among the path segments after the leading slash
+     */
+    private <T> T substation(HttpExchange exchange, int offset, Function<GeneratedRound, T> value) {
+        String[] path = segments(exchange);
+        GeneratedRound round = substations.get(Integer.parseInt(path[offset]));
+        return round == null ? null : value.apply(round);
+    }
+
+    private <T> T round(HttpExchange exchange, int offset, Function<GeneratedRound, T> value) {
+        String[] path = segments(exchange);
+        GeneratedRound round = rounds.get(key(Integer.parseInt(path[offset]), Integer.parseInt(path[offset + 1])));
+        return round == null ? null : value.apply(round);
+    }
+
+    /**
+     * Answers a list of rounds with one value per round in the same order
+     */
+    private String bulk(HttpExchange exchange, Function<GeneratedRound, Object> value) throws IOException {
+        List<RoundKey> keys = objectMapper.readValue(exchange.getRequestBody(), new TypeReference<List<RoundKey>>() {
+        });
+        List<Object> values = new ArrayList<>();
+        for (RoundKey key : keys) {
+            GeneratedRound round = rounds.get(key(key.getSubstationID(), key.getFid()));
+            if (round == null)
+                return null;
+            values.add(value.apply(round));
+        }
+        return json(values);
+    }
+
+    private static String[] segments(HttpExchange exchange) {
+        return exchange.getRequestURI().getPath().substring(1).split("/");
+    }
+
+    private static long key(int substationID, int fid) {
+        return ((long) substationID << 32) | (fid & 0xffffffffL);
+    }
+
+    private static String json(Object value) throws IOException {
+        return value == null ? null : objectMapper.writeValueAsString(value);
+    }
+
+    private void serve(HttpExchange exchange, Handler handler) throws IOException {
+        requests.computeIfAbsent(exchange.getHttpContext().getPath(), path -> new LongAdder()).increment();
+        try {
+            if (delayMillis > 0)
+                Thread.sleep(delayMillis);
+            if (failing.contains(exchange.getHttpContext().getPath())) {
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            Object body = handler.handle(exchange);
+            if (body == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            byte[] bytes = body.toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (RuntimeException e) {
+            exchange.sendResponseHeaders(400, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            exchange.sendResponseHeaders(503, -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    interface Handler {
+        Object handle(HttpExchange exchange) throws IOException;
+    }
+}
@@ -0,0 +1,40 @@
+package com.master_thesis.verifier.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InlineStageTest {
+
+    @Test
+    void callRunsOnTheCallingThreadAndIsCounted() {
+        InlineStage stage = new InlineStage("test");
+        assertEquals(Thread.currentThread().getName(), stage.call(() -> Thread.currentThread().getName()));
+        assertEquals(0, stage.statistics().get("active"));
+        assertEquals(1L, stage.statistics().get("completed"));
+    }
+
+    @Test
+    void failedWorkLeavesTheStage() {
+        InlineStage stage = new InlineStage("test");
+        assertThrows(IllegalStateException.class, () -> stage.call(() -> {
+            throw new IllegalStateException("failed");
+        }));
+        assertEquals(0, stage.statistics().get("active"));
+    }
+
+    @Test
+    void trackedWorkIsActiveUntilItCompletes() {
+        InlineStage stage = new InlineStage("test");
+        CompletableFuture<Void> pending = new CompletableFuture<>();
+        CompletableFuture<Void> tracked = stage.track(pending);
+        stage.track(new CompletableFuture<>());
+        assertEquals(2, stage.statistics().get("active"));
+        pending.complete(null);
+        assertTrue(tracked.isDone());
+        assertEquals(1, stage.statistics().get("active"));
+        assertEquals(1L, stage.statistics().get("completed"));
+    }
+}
@@ -0,0 +1,70 @@
+package com.master_thesis.verifier.pipeline;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class StageTest {
+
+    @Test
+    void callRunsOnTheStageAndReturnsTheResult() {
+        try (Stage stage = new Stage("test", 1, 1)) {
+            assertEquals("verifier-test-1", stage.call(() -> Thread.currentThread().getName()));
+            assertEquals(1L, stage.statistics().get("completed"));
+        }
+    }
+
+    @Test
+    void callFromTheSameStageRunsDirectly() {
+        try (Stage stage = new Stage("test", 1, 1)) {
+//            With a single thread a nested call would wait for itself if it were queued
+            int answer = stage.call(() -> stage.call(() -> 42));
+            assertEquals(42, answer);
+        }
+    }
+
+    @Test
+    void failuresReachTheCaller() {
+        try (Stage stage = new Stage("test", 1, 1)) {
+            assertThrows(IllegalStateException.class, () -> stage.call(() -> {
+                throw new IllegalStateException("modPow failed");
+            }));
+        }
+    }
+
+    @Test
+    void fullQueueBlocksUntilThereIsRoom() throws InterruptedException {
+        try (Stage stage = new Stage("test", 1, 1)) {
+            CountDownLatch release = new CountDownLatch(1);
+            stage.execute(() -> await(release));
+            stage.execute(() -> await(release));
+            assertEquals(1, stage.statistics().get("queued"));
+
+            AtomicBoolean handedOver = new AtomicBoolean();
+            Thread producer = new Thread(() -> {
+                stage.execute(() -> {
+                });
+                handedOver.set(true);
+            });
+            producer.start();
+            producer.join(200);
+            assertFalse(handedOver.get());
+
+            release.countDown();
+            producer.join(TimeUnit.SECONDS.toMillis(5));
+            assertTrue(handedOver.get());
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
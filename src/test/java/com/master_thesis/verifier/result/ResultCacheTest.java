@@ -0,0 +1,92 @@
+package com.master_thesis.verifier.result;
+
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.VerificationResult;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultCacheTest {
+
+    //    Every query that reaches the store, as "substationID/fid" or "substationID/from-to"
+    private final List<String> storeQueries = new ArrayList<>();
+    private final ResultStore store = new ResultStore() {
+        @Override
+        public Optional<VerificationResult> find(int substationID, int fid) {
+            storeQueries.add(substationID + "/" + fid);
+            return fid < 100 ? Optional.of(result(substationID, fid)) : Optional.empty();
+        }
+
+        @Override
+        public List<VerificationResult> findRange(int substationID, int fromFid, int toFid) {
+            storeQueries.add(substationID + "/" + fromFid + "-" + toFid);
+            List<VerificationResult> results = new ArrayList<>();
+            for (int fid = fromFid; fid <= Math.min(toFid, 99); fid++)
+                results.add(result(substationID, fid));
+            return results;
+        }
+    };
+
+    @Test
+    void evictsTheLeastRecentlyUsedResult() {
+        ResultCache cache = new ResultCache(2, null);
+        cache.put(result(1, 1));
+        cache.put(result(1, 2));
+        cache.get(1, 1);
+        cache.put(result(1, 3));
+
+        assertEquals(2, cache.size());
+        assertTrue(cache.get(1, 1).isPresent());
+        assertFalse(cache.get(1, 2).isPresent());
+        assertEquals(List.of(1, 3), fids(cache.range(1, 0, 10)));
+    }
+
+    @Test
+    void missForAnOlderFidFallsBackToTheStore() {
+        ResultCache cache = new ResultCache(10, store);
+        cache.put(result(1, 120));
+
+        assertEquals(50, cache.get(1, 50).orElseThrow().getFid());
+        assertEquals(List.of("1/50"), storeQueries);
+//        The stored result is cached now
+        cache.get(1, 50);
+        assertEquals(1, storeQueries.size());
+    }
+
+    @Test
+    void pollingForTheNextIntervalNeverReachesTheStore() {
+        ResultCache cache = new ResultCache(10, store);
+        cache.put(result(1, 120));
+
+        for (int poll = 0; poll < 5; poll++) {
+            assertFalse(cache.get(1, 121).isPresent());
+            assertEquals(120, cache.latest(1).orElseThrow().getFid());
+        }
+        assertEquals(List.of(120), fids(cache.range(1, 120, 125)));
+        assertTrue(storeQueries.isEmpty());
+    }
+
+    @Test
+    void rangeMergesCachedAndStoredResults() {
+        ResultCache cache = new ResultCache(10, store);
+        cache.put(result(1, 98));
+        cache.put(result(1, 101));
+
+        assertEquals(List.of(96, 97, 98, 99, 101), fids(cache.range(1, 96, 102)));
+        assertEquals(List.of("1/96-100"), storeQueries);
+    }
+
+    private static List<Integer> fids(List<VerificationResult> results) {
+        return results.stream().map(VerificationResult::getFid).collect(Collectors.toList());
+    }
+
+    private static VerificationResult result(int substationID, int fid) {
+        return new VerificationResult(Construction.HASH, substationID, fid, BigInteger.valueOf(fid), true);
+    }
+}
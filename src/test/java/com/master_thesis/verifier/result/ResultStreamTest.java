@@ -0,0 +1,107 @@
+package com.master_thesis.verifier.result;
+
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.VerificationResult;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultStreamTest {
+
+    //    Sends wait here until the test runs them, like a consumer that has not caught up yet
+    private final List<Runnable> pendingSends = new ArrayList<>();
+
+    @Test
+    void subscriberOnlyReceivesMatchingResults() {
+        ResultStream stream = new ResultStream(Runnable::run, 16, ResultStream.SlowConsumer.DROP);
+        RecordingSink sink = new RecordingSink();
+        stream.subscribe(Set.of(1), Set.of(Construction.RSA), sink);
+
+        stream.broadcast(result(Construction.RSA, 1, 1));
+        stream.broadcast(result(Construction.HASH, 1, 2));
+        stream.broadcast(result(Construction.RSA, 2, 3));
+
+        assertEquals(List.of(1), sink.fids());
+    }
+
+    @Test
+    void slowSubscriberIsConflatedToTheNewestResults() {
+        ResultStream stream = new ResultStream(pendingSends::add, 2, ResultStream.SlowConsumer.CONFLATE);
+        RecordingSink sink = new RecordingSink();
+        ResultStream.Subscriber subscriber = stream.subscribe(Set.of(), Set.of(), sink);
+
+        for (int fid = 1; fid <= 5; fid++)
+            stream.broadcast(result(Construction.HASH, 1, fid));
+        while (!pendingSends.isEmpty())
+            pendingSends.remove(0).run();
+
+        assertEquals(List.of(4, 5), sink.fids());
+        assertEquals(3, subscriber.getConflated());
+        assertFalse(sink.closed);
+    }
+
+    @Test
+    void slowSubscriberIsDroppedWithoutAffectingOthers() {
+        ResultStream stream = new ResultStream(pendingSends::add, 2, ResultStream.SlowConsumer.DROP);
+        RecordingSink slow = new RecordingSink();
+        stream.subscribe(Set.of(1), Set.of(), slow);
+        RecordingSink other = new RecordingSink();
+        stream.subscribe(Set.of(2), Set.of(), other);
+
+        for (int fid = 1; fid <= 3; fid++)
+            stream.broadcast(result(Construction.HASH, 1, fid));
+        stream.broadcast(result(Construction.HASH, 2, 4));
+        while (!pendingSends.isEmpty())
+            pendingSends.remove(0).run();
+
+        assertTrue(slow.closed);
+        assertEquals(1, stream.getSubscriberCount());
+        assertEquals(List.of(4), other.fids());
+    }
+
+    @Test
+    void failingSinkIsUnsubscribed() {
+        ResultStream stream = new ResultStream(Runnable::run, 16, ResultStream.SlowConsumer.DROP);
+        RecordingSink sink = new RecordingSink();
+        sink.failing = true;
+        stream.subscribe(Set.of(), Set.of(), sink);
+
+        stream.broadcast(result(Construction.DP, 1, 1));
+
+        assertTrue(sink.closed);
+        assertEquals(0, stream.getSubscriberCount());
+    }
+
+    private static VerificationResult result(Construction construction, int substationID, int fid) {
+        return new VerificationResult(construction, substationID, fid, BigInteger.ONE, true);
+    }
+
+    private static class RecordingSink implements ResultStream.Sink {
+        private final List<VerificationResult> received = new ArrayList<>();
+        private boolean closed, failing;
+
+        @Override
+        public void send(VerificationResult result) throws IOException {
+            if (failing)
+                throw new IOException("Broken pipe");
+            received.add(result);
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+
+        private List<Integer> fids() {
+            List<Integer> fids = new ArrayList<>();
+            received.forEach(result -> fids.add(result.getFid()));
+            return fids;
+        }
+    }
+}
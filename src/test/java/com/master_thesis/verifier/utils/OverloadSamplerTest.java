@@ -0,0 +1,118 @@
+package com.master_thesis.verifier.utils;
+
+import com.master_thesis.verifier.data.Construction;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OverloadSamplerTest {
+
+    private static final Map<Construction, Long> COSTS = Map.of(Construction.HASH, 1L, Construction.DP, 1L, Construction.LINEAR, 4L, Construction.RSA, 8L);
+
+    //    Started verifications are never run, so every round submitted after the first one stays queued
+    private final List<Runnable> started = new ArrayList<>();
+    private final VerificationScheduler scheduler = new VerificationScheduler(started::add, 1, VerificationScheduler.Order.FID, 1000, COSTS);
+
+    @BeforeEach
+    void occupyTheScheduler() {
+        scheduler.submit(Construction.HASH, 0, -1, () -> {
+        });
+    }
+
+    @Test
+    void everyRoundIsVerifiedUnderTheCapacity() {
+        OverloadSampler sampler = new OverloadSampler(scheduler, 16, 0.1, new Random(1));
+        queue(Construction.HASH, 10);
+
+        for (int i = 0; i < 100; i++)
+            assertTrue(sampler.verifyNow(Construction.RSA, 0));
+        assertTrue(sampler.hasHeadroom());
+    }
+
+    @Test
+    void largerBacklogVerifiesFewerRounds() {
+        OverloadSampler sampler = new OverloadSampler(scheduler, 16, 0.05, new Random(1));
+        queue(Construction.HASH, 32);
+        int atTwiceTheCapacity = verifiedOutOf(sampler, 1000);
+        queue(Construction.RSA, 12);
+        int atEightTimesTheCapacity = verifiedOutOf(sampler, 1000);
+
+        assertFalse(sampler.hasHeadroom());
+        assertTrue(atTwiceTheCapacity > 400 && atTwiceTheCapacity < 600, "verified " + atTwiceTheCapacity);
+        assertTrue(atEightTimesTheCapacity > 80 && atEightTimesTheCapacity < 170, "verified " + atEightTimesTheCapacity);
+        assertEquals(2000L, (Long) sampler.statistics().get("verifiedAtOnce") + (Long) sampler.statistics().get("deferred"));
+    }
+
+    @Test
+    void minimumRateHoldsHoweverLargeTheBacklog() {
+        OverloadSampler sampler = new OverloadSampler(scheduler, 1, 0.2, new Random(1));
+        queue(Construction.RSA, 100);
+
+        int verified = verifiedOutOf(sampler, 1000);
+        assertTrue(verified > 150 && verified < 250, "verified " + verified);
+    }
+
+    @Test
+    void quietSubstationIsVerifiedAtOnceWhileABusyOneIsSampled() {
+        OverloadSampler sampler = new OverloadSampler(scheduler, 16, 0.05, new Random(1));
+        queue(Construction.HASH, 1, 64);
+
+        assertFalse(sampler.hasHeadroom());
+        assertEquals(1000, verifiedOutOf(sampler, 7, 1000));
+        int busy = verifiedOutOf(sampler, 1, 1000);
+        assertTrue(busy > 190 && busy < 310, "verified " + busy);
+    }
+
+    @Test
+    void minimumRateHoldsForEverySubstation() {
+        OverloadSampler sampler = new OverloadSampler(scheduler, 4, 0.3, new Random(1));
+        queue(Construction.RSA, 1, 50);
+        queue(Construction.RSA, 2, 5);
+
+        for (int substationID = 1; substationID <= 2; substationID++) {
+            int verified = verifiedOutOf(sampler, substationID, 1000);
+            assertTrue(verified > 250 && verified < 350, "substation " + substationID + " verified " + verified);
+        }
+    }
+
+    @Test
+    void zeroCapacityNeverDefers() {
+        OverloadSampler sampler = new OverloadSampler(scheduler, 0, 0, new Random(1));
+        queue(Construction.RSA, 100);
+
+        assertEquals(1000, verifiedOutOf(sampler, 1000));
+    }
+
+    private void queue(Construction construction, int rounds) {
+        for (int fid = 0; fid < rounds; fid++)
+            scheduler.submit(construction, fid % 3, fid, () -> {
+            });
+    }
+
+    private void queue(Construction construction, int substationID, int rounds) {
+        for (int fid = 0; fid < rounds; fid++)
+            scheduler.submit(construction, substationID, fid, () -> {
+            });
+    }
+
+    private int verifiedOutOf(OverloadSampler sampler, int rounds) {
+        return verifiedOutOf(sampler, 0, rounds);
+    }
+
+    /**
+     * @return how many of the substation's rounds are verified at once
+     */
+    private int verifiedOutOf(OverloadSampler sampler, int substationID, int rounds) {
+        int verified = 0;
+        for (int i = 0; i < rounds; i++)
+            if (sampler.verifyNow(Construction.HASH, substationID))
+                verified++;
+        return verified;
+    }
+}
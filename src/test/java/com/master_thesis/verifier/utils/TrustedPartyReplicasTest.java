@@ -0,0 +1,96 @@
+package com.master_thesis.verifier.utils;
+
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.loadtest.GeneratedRound;
+import com.master_thesis.verifier.loadtest.RoundFactory;
+import com.master_thesis.verifier.loadtest.TrustedThirdPartyStub;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * PublicParameters against several local stand-ins of the trusted third-party
+ */
+class TrustedPartyReplicasTest {
+
+    private static final String FIELD_BASE = "/api/setup/fieldBase/";
+
+    private final GeneratedRound round = new RoundFactory(List.of(1, 2), 64, 128, 128, 42)
+            .create(Construction.HASH, 1, 1, List.of(1001, 1002), true);
+    private final List<TrustedThirdPartyStub> stubs = new ArrayList<>();
+
+    @AfterEach
+    void stopStubs() {
+        stubs.forEach(TrustedThirdPartyStub::close);
+    }
+
+    @Test
+    void lookupsAreSpreadOverTheReplicas() throws IOException {
+        PublicParameters publicParameters = publicParameters(3);
+        for (int i = 0; i < 90; i++)
+            assertEquals(round.getFieldBase(), publicParameters.getFieldBase(1));
+
+        for (TrustedThirdPartyStub stub : stubs)
+            assertTrue(stub.requests(FIELD_BASE) > 10, "requests " + stubs.stream().map(each -> each.requests(FIELD_BASE)).collect(Collectors.toList()));
+    }
+
+    @Test
+    void stoppedReplicaIsEjected() throws IOException {
+        PublicParameters publicParameters = publicParameters(2);
+        stubs.get(0).close();
+        int failed = 0;
+        for (int i = 0; i < 50; i++) {
+            try {
+                publicParameters.getFieldBase(1);
+            } catch (PublicParameters.UnavailableException e) {
+                failed++;
+            }
+        }
+
+//        Only the call that found the stopped replica failed, the rest went to the other one
+        assertTrue(failed <= 1, failed + " lookups failed");
+        assertEquals(50 - failed, stubs.get(1).requests(FIELD_BASE));
+    }
+
+    @Test
+    void fastErrorOfOneReplicaDoesNotBeatTheHedgedAnswerOfAnother() throws IOException {
+        PublicParameters publicParameters = publicParameters(2, Duration.ofMillis(50));
+//        Whichever replica is asked first, the failing one answers while the other is still working on the hedge
+        stubs.get(0).fail(FIELD_BASE, true);
+        stubs.get(0).delay(Duration.ofMillis(100));
+        stubs.get(1).delay(Duration.ofMillis(200));
+
+        for (int i = 0; i < 4; i++)
+            assertEquals(round.getFieldBase(), publicParameters.getFieldBase(1));
+        assertTrue(stubs.get(0).requests(FIELD_BASE) > 0);
+    }
+
+    private PublicParameters publicParameters(int replicas) throws IOException {
+        return publicParameters(replicas, Duration.ZERO);
+    }
+
+    /**
+     * @param hedge the delay after which a GET is sent to a second replica, zero never hedges
+     */
+    private PublicParameters publicParameters(int replicas, Duration hedge) throws IOException {
+        for (int i = 0; i < replicas; i++) {
+            TrustedThirdPartyStub stub = new TrustedThirdPartyStub(0, List.of(1, 2), 2);
+            stub.register(round);
+            stub.start();
+            stubs.add(stub);
+        }
+        List<String> urls = stubs.stream().map(stub -> "http://localhost:" + stub.getPort()).collect(Collectors.toList());
+//        The hedged lookups keep both replicas in, so that the failing one is asked first now and then
+        int ejectAfter = hedge.isZero() ? 1 : 0;
+        return new PublicParameters(new ReplicaBalancer(urls, ejectAfter, Duration.ofMinutes(1)), false, 0, 1, Executors.newCachedThreadPool(),
+                Duration.ofSeconds(5), hedge, new CircuitBreaker("test", 0, Duration.ZERO), Duration.ZERO);
+    }
+}
@@ -0,0 +1,121 @@
+package com.master_thesis.verifier.utils;
+
+import com.master_thesis.verifier.data.Construction;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VerificationSchedulerTest {
+
+    private static final Map<Construction, Long> COSTS = Map.of(Construction.HASH, 1L, Construction.DP, 1L, Construction.LINEAR, 4L, Construction.RSA, 8L);
+
+    //    Started verifications wait here until the test runs them, one at a time
+    private final List<Runnable> started = new ArrayList<>();
+    private final List<String> verified = new ArrayList<>();
+
+    @Test
+    void smallSubstationIsNotStarvedByABurstOfExpensiveRounds() {
+        VerificationScheduler scheduler = new VerificationScheduler(started::add, 1, VerificationScheduler.Order.FID, 1000, COSTS);
+        for (int fid = 0; fid < 10; fid++)
+            submit(scheduler, Construction.RSA, 1, fid);
+        submit(scheduler, Construction.HASH, 2, 0);
+        submit(scheduler, Construction.HASH, 2, 1);
+
+        runAll();
+
+        assertEquals(12, verified.size());
+//        The cheap rounds only wait for the RSA round that was running and one more
+        assertEquals(List.of("RSA-1-0", "RSA-1-1", "HASH-2-0", "HASH-2-1"), verified.subList(0, 4));
+    }
+
+    @Test
+    void roundsOfASubstationAreVerifiedInFidOrder() {
+        VerificationScheduler scheduler = new VerificationScheduler(started::add, 1, VerificationScheduler.Order.FID, 1000, COSTS);
+        submit(scheduler, Construction.HASH, 1, 7);
+        submit(scheduler, Construction.HASH, 1, 3);
+        submit(scheduler, Construction.HASH, 1, 1);
+        submit(scheduler, Construction.HASH, 1, 2);
+
+        runAll();
+
+        assertEquals(List.of("HASH-1-7", "HASH-1-1", "HASH-1-2", "HASH-1-3"), verified);
+    }
+
+    @Test
+    void cheapRoundsMeetTheirDeadlineFirst() {
+        VerificationScheduler scheduler = new VerificationScheduler(started::add, 1, VerificationScheduler.Order.DEADLINE, 60_000, COSTS);
+        submit(scheduler, Construction.HASH, 1, 0);
+        submit(scheduler, Construction.RSA, 1, 1);
+        submit(scheduler, Construction.HASH, 1, 2);
+
+        runAll();
+
+        assertEquals(List.of("HASH-1-0", "HASH-1-2", "RSA-1-1"), verified);
+    }
+
+    @Test
+    void atMostConcurrencyVerificationsRunAtATime() {
+        VerificationScheduler scheduler = new VerificationScheduler(started::add, 2, VerificationScheduler.Order.FID, 1000, COSTS);
+        for (int substationID = 0; substationID < 5; substationID++)
+            submit(scheduler, Construction.LINEAR, substationID, 0);
+
+        assertEquals(2, started.size());
+        assertEquals(3, scheduler.getQueued());
+        started.remove(0).run();
+        assertEquals(2, started.size());
+        assertEquals(2, scheduler.getQueued());
+    }
+
+    @Test
+    void roundThatCouldNotBeStartedStaysQueued() {
+        boolean[] rejecting = {true};
+        VerificationScheduler scheduler = new VerificationScheduler(task -> {
+            if (rejecting[0])
+                throw new RejectedExecutionException("busy");
+            started.add(task);
+        }, 1, VerificationScheduler.Order.FID, 1000, COSTS);
+        submit(scheduler, Construction.RSA, 1, 0);
+
+        assertEquals(1, scheduler.getQueued());
+        assertEquals(8, scheduler.getQueuedCost(1));
+        rejecting[0] = false;
+        submit(scheduler, Construction.HASH, 2, 0);
+        runAll();
+        assertEquals(List.of("RSA-1-0", "HASH-2-0"), verified);
+        assertEquals(0, scheduler.getQueuedCost());
+    }
+
+    @Test
+    void waitingVerificationLetsAQueuedRoundStart() {
+        VerificationScheduler scheduler = new VerificationScheduler(started::add, 1, VerificationScheduler.Order.FID, 1000, COSTS);
+        int[] startedWhileWaiting = new int[1];
+        scheduler.submit(Construction.LINEAR, 1, 0, () -> scheduler.block(() -> startedWhileWaiting[0] = started.size()));
+        submit(scheduler, Construction.LINEAR, 2, 0);
+
+        started.remove(0).run();
+        assertEquals(1, startedWhileWaiting[0]);
+        assertEquals(0, scheduler.getQueued());
+        runAll();
+        assertEquals(List.of("LINEAR-2-0"), verified);
+    }
+
+    @Test
+    void waitOutsideOfAVerificationRuns() {
+        VerificationScheduler scheduler = new VerificationScheduler(started::add, 1, VerificationScheduler.Order.FID, 1000, COSTS);
+        assertEquals("answer", scheduler.block(() -> "answer"));
+    }
+
+    private void submit(VerificationScheduler scheduler, Construction construction, int substationID, int fid) {
+        scheduler.submit(construction, substationID, fid, () -> verified.add(construction.name() + "-" + substationID + "-" + fid));
+    }
+
+    private void runAll() {
+        while (!started.isEmpty())
+            started.remove(0).run();
+    }
+}
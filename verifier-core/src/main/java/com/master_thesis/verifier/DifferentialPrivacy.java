@@ -0,0 +1,28 @@
+package com.master_thesis.verifier;
+
+import com.master_thesis.verifier.utils.PublicParameters;
+
+import java.time.Duration;
+
+public class DifferentialPrivacy extends HomomorphicHash {
+
+    public DifferentialPrivacy(PublicParameters publicParameters) {
+        super(publicParameters);
+    }
+
+    public DifferentialPrivacy(PublicParameters publicParameters,
+                               int windowFids,
+                               double sampleRate,
+                               String windowedSubstations) {
+        super(publicParameters, windowFids, sampleRate, windowedSubstations);
+    }
+
+    public DifferentialPrivacy(PublicParameters publicParameters,
+                               int windowFids,
+                               double sampleRate,
+                               String windowedSubstations,
+                               Duration idleClose) {
+        super(publicParameters, windowFids, sampleRate, windowedSubstations, idleClose);
+    }
+
+}
\ No newline at end of file
@@ -0,0 +1,135 @@
+package com.master_thesis.verifier;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+
+import static java.math.BigInteger.ONE;
+import static java.math.BigInteger.ZERO;
+
+/**
+ * The rounds of one substation in a window of consecutive fids, checked together when the window closes.
+ * The window also counts the fids whose rounds were checked on their own, it is complete once every fid was seen.
+ * The hash is additively homomorphic, so g^(sum of the results) has to equal the product of the rounds' client
+ * proofs, which costs one exponentiation for the whole window instead of one per round.
+ * Each round's client proof was already compared with its server proof when it was added, only its result is
+ * checked here. If the window does not hold, every round of it is checked on its own to find the invalid ones.
+ * A window only vouches for the sum of its results, errors in two rounds that cancel each other out are left to the
+ * sampled per-round checks.
+ */
+public class HashWindow {
+
+    private final int substationID;
+    private final long index;
+    private final int fids;
+    private final BigInteger fieldBase, generator;
+    private final List<Round> rounds = new ArrayList<>();
+    private final BitSet seen;
+    private long lastUpdated;
+    private BigInteger resultSum = ZERO, clientProduct = ONE;
+    private boolean valid;
+
+    HashWindow(int substationID, long index, int fids, BigInteger fieldBase, BigInteger generator) {
+        this.substationID = substationID;
+        this.index = index;
+        this.fids = fids;
+        this.seen = new BitSet(fids);
+        this.lastUpdated = System.nanoTime();
+        this.fieldBase = fieldBase;
+        this.generator = generator;
+    }
+
+    public int getSubstationID() {
+        return substationID;
+    }
+
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the number of rounds deferred to the window
+     */
+    public int size() {
+        return rounds.size();
+    }
+
+    /**
+     * @return true if the sum of the window's results matched the product of its client proofs
+     */
+    public boolean isValid() {
+        return valid;
+    }
+
+    /**
+     * @return the rounds of the window, by the time the window is closed each is marked valid or not
+     */
+    public List<Round> getRounds() {
+        return Collections.unmodifiableList(rounds);
+    }
+
+    /**
+     * @param clientProof the product of the round's client proofs, reduced to the field
+     */
+    void add(int fid, BigInteger result, BigInteger clientProof) {
+        skip(fid);
+        rounds.add(new Round(fid, result, clientProof));
+        resultSum = resultSum.add(result);
+        clientProduct = clientProduct.multiply(clientProof).mod(fieldBase);
+    }
+
+    /**
+     * Counts a fid of the window without a round to check
+     */
+    void skip(int fid) {
+        seen.set((int) (fid - index * fids));
+        lastUpdated = System.nanoTime();
+    }
+
+    /**
+     * @return true once every fid of the window was seen
+     */
+    boolean isComplete() {
+        return seen.cardinality() == fids;
+    }
+
+    /**
+     * @return the System.nanoTime() at which the window last saw a fid
+     */
+    long getLastUpdated() {
+        return lastUpdated;
+    }
+
+    void check(HomomorphicHash hash) {
+        valid = hash.hash(resultSum, fieldBase, generator).equals(clientProduct);
+        for (Round round : rounds)
+            round.valid = valid || hash.hash(round.result, fieldBase, generator).equals(round.clientProof);
+    }
+
+    public static class Round {
+
+        private final int fid;
+        private final BigInteger result, clientProof;
+        private boolean valid;
+
+        private Round(int fid, BigInteger result, BigInteger clientProof) {
+            this.fid = fid;
+            this.result = result;
+            this.clientProof = clientProof;
+        }
+
+        public int getFid() {
+            return fid;
+        }
+
+        public BigInteger getResult() {
+            return result;
+        }
+
+        public boolean isValid() {
+            return valid;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.master_thesis.verifier;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.utils.AuditLog;
+import com.master_thesis.verifier.utils.PublicParameters;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class HomomorphicHash {
+
+    private final static Logger log = (Logger) LoggerFactory.getLogger(HomomorphicHash.class);
+    protected PublicParameters publicParameters;
+
+    private final int windowFids;
+    private final double sampleRate;
+    private final Set<Integer> windowedSubstations;
+    private final long idleNanos;
+    private final ScheduledExecutorService timer;
+    private final Map<Integer, HashWindow> openWindows = new HashMap<>();
+    private final Map<Integer, Long> closedWindows = new HashMap<>();
+    private final List<Consumer<HashWindow>> windowListeners = new CopyOnWriteArrayList<>();
+    private final Random random = new SecureRandom();
+
+    public HomomorphicHash(PublicParameters publicParameters) {
+        this(publicParameters, 0, 1, "");
+    }
+
+    public HomomorphicHash(PublicParameters publicParameters,
+                           int windowFids,
+                           double sampleRate,
+                           String windowedSubstations) {
+        this(publicParameters, windowFids, sampleRate, windowedSubstations, Duration.ZERO);
+    }
+
+    /**
+     * @param windowFids the number of consecutive fids whose rounds are checked together, 0 checks every round on its own
+     * @param sampleRate the fraction of the rounds in a window that are still checked on their own as well
+     * @param windowedSubstations comma separated substations to check in windows, all if empty
+     * @param idleClose how long a window may go without rounds before it is closed with the rounds it holds, zero only
+     *                  closes a window once every fid of it was seen or a round of a later window arrives
+     */
+    public HomomorphicHash(PublicParameters publicParameters,
+                           int windowFids,
+                           double sampleRate,
+                           String windowedSubstations,
+                           Duration idleClose) {
+        if (windowFids < 0 || sampleRate < 0 || sampleRate > 1 || idleClose.isNegative())
+            throw new IllegalArgumentException("A window needs a positive number of fids, a sample rate from 0 to 1 and an idle time of at least zero, got " + windowFids + ", " + sampleRate + " and " + idleClose);
+        this.publicParameters = publicParameters;
+        this.windowFids = windowFids;
+        this.sampleRate = sampleRate;
+        this.windowedSubstations = Arrays.stream(windowedSubstations.split(",")).map(String::trim).filter(id -> !id.isEmpty())
+                .map(Integer::valueOf).collect(Collectors.toUnmodifiableSet());
+        this.idleNanos = idleClose.toNanos();
+        if (windowFids > 0 && idleNanos > 0) {
+            this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "verifier-hash-windows");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(idleNanos / 2, TimeUnit.MILLISECONDS.toNanos(10));
+            timer.scheduleWithFixedDelay(this::closeIdleWindows, period, period, TimeUnit.NANOSECONDS);
+        } else {
+            this.timer = null;
+        }
+    }
+
+    /**
+     * This is the final Eval function from the Homomorphic Hash based construction
+     * @param partialResultInfo a stream of all the partial sums, given from the servers
+     * @return the sum of the servers' partial sums
+     */
+    public BigInteger finalEval(Stream<BigInteger> partialResultInfo) {
+        return partialResultInfo
+                .reduce(BigInteger.ZERO, BigInteger::add);
+    }
+
+    /**
+     * This is the final Proof function from the Homomorphic Hash based construction
+     * @param partialProofs a stream of the servers' partial proofs
+     * @param substationID an identifier for the substation which this computation is related to
+     * @return the product of all the clients' partial proofs reduced to the field
+     */
+    public BigInteger finalProof(Stream<BigInteger> partialProofs, int substationID) {
+        return finalProof(partialProofs, publicParameters.getFieldBase(substationID));
+    }
+
+    /**
+     * This is the final Proof function from the Homomorphic Hash based construction
+     * @param partialProofs a stream of the servers' partial proofs
+     * @param fieldBase the field base of the substation
+     * @return the product of all the clients' partial proofs reduced to the field
+     */
+    public BigInteger finalProof(Stream<BigInteger> partialProofs, BigInteger fieldBase) {
+        return partialProofs
+                .reduce(BigInteger.ONE, BigInteger::multiply)
+                .mod(fieldBase);
+    }
+
+    /**
+     * This is the verify function from the Homomorphic based construction
+     * @param substationID an identifier for the substation which this computation is related to
+     * @param result is given from the final Eval function
+     * @param serverProof is given from the final Proof function
+     * @param clientProofs is a list of all clients' proofs (tau from paper)
+     * @return true: if product of client proofs == hash of the final eval
+     *          AND if the product of clients' proofs == the server proof,
+     *          false: otherwise
+     */
+    public boolean verify(int substationID, BigInteger result, BigInteger serverProof, List<BigInteger> clientProofs) {
+        if (serverProof == null)
+            return false;
+        return verify(publicParameters.getFieldBase(substationID), publicParameters.getGenerator(substationID), result, serverProof, clientProofs);
+    }
+
+    /**
+     * This is the verify function from the Homomorphic based construction, with the substation's parameters at hand
+     * @param fieldBase the field base of the substation
+     * @param generator the generator of the substation
+     * @see #verify(int, BigInteger, BigInteger, List)
+     */
+    public boolean verify(BigInteger fieldBase, BigInteger generator, BigInteger result, BigInteger serverProof, List<BigInteger> clientProofs) {
+        if (serverProof == null)
+            return false;
+//        Compute the product of all the clients' proofs
+        BigInteger clientProof = clientProofs.stream().reduce(BigInteger.ONE, BigInteger::multiply).mod(fieldBase);
+//        Compute the hash of the final result
+        BigInteger resultProof = hash(result, fieldBase, generator);
+//        Check if the product of the clients' proofs are equal to the hash value of the final result
+        boolean clientEqResult = clientProof.equals(resultProof);
+//        Check if the product of the clients' proofs are equal to the final proof
+        boolean clientEqServer = clientProof.equals(serverProof);
+        if (!(clientEqResult && clientEqServer))
+            AuditLog.mismatch("Homomorphic hash check failed", "client proof", clientProof, "result proof", resultProof, "server proof", serverProof);
+        return clientEqResult && clientEqServer;
+    }
+
+    public BigInteger hash(BigInteger input, BigInteger fieldBase, BigInteger generator) {
+        return generator.modPow(input, fieldBase);
+    }
+
+    /**
+     * Registers a listener for every window that is closed with deferred rounds in it, called on the thread of the
+     * round that closed it, or on the window timer's thread for an idle window
+     */
+    public void onWindowClosed(Consumer<HashWindow> listener) {
+        windowListeners.add(listener);
+    }
+
+    /**
+     * @return true if the rounds of the substation are checked in windows
+     */
+    public boolean isWindowed(int substationID) {
+        return windowFids > 0 && (windowedSubstations.isEmpty() || windowedSubstations.contains(substationID));
+    }
+
+    /**
+     * The draw is made with a SecureRandom, so that a server cannot predict which rounds are checked on their own
+     * @return true if the rounds of the substation are checked in windows and this round is not sampled
+     */
+    public boolean isDeferred(int substationID) {
+        return isWindowed(substationID) && random.nextDouble() >= sampleRate;
+    }
+
+    /**
+     * Adds a round to its substation's window instead of verifying it. The window is checked once every fid of it was
+     * seen, deferred or checked on its own, once a round of a later window arrives, or once it has been idle for a
+     * while, and handed to the onWindowClosed listeners.
+     * @return true if the round was added, false if it has to be verified on its own right away: its client and server
+     * proofs differ, or its window was already closed
+     */
+    public boolean accumulate(int substationID, int fid, BigInteger fieldBase, BigInteger generator,
+                              BigInteger result, BigInteger serverProof, List<BigInteger> clientProofs) {
+        if (serverProof == null)
+            return false;
+        BigInteger clientProof = clientProofs.stream().reduce(BigInteger.ONE, BigInteger::multiply).mod(fieldBase);
+        if (!clientProof.equals(serverProof))
+            return false;
+        List<HashWindow> closed = new ArrayList<>(2);
+        boolean added;
+        synchronized (openWindows) {
+            HashWindow open = windowOf(substationID, fid, fieldBase, generator, closed);
+            added = open != null;
+            if (added) {
+                open.add(fid, result, clientProof);
+                closeIfFull(open, closed);
+            }
+        }
+        close(closed);
+        return added;
+    }
+
+    /**
+     * Counts a round of a windowed substation that was verified on its own, sampled or not accepted by
+     * {@link #accumulate}, towards closing its window
+     */
+    public void checkedOnItsOwn(int substationID, int fid, BigInteger fieldBase, BigInteger generator) {
+        if (!isWindowed(substationID))
+            return;
+        List<HashWindow> closed = new ArrayList<>(2);
+        synchronized (openWindows) {
+            HashWindow open = windowOf(substationID, fid, fieldBase, generator, closed);
+            if (open != null) {
+                open.skip(fid);
+                closeIfFull(open, closed);
+            }
+        }
+        close(closed);
+    }
+
+    public void shutdown() {
+        if (timer != null)
+            timer.shutdownNow();
+    }
+
+    /**
+     * @return the open window of the fid, opened if need be, or null if the fid's window was already closed. An open
+     * window of an earlier index is closed and added to closed.
+     */
+    private HashWindow windowOf(int substationID, int fid, BigInteger fieldBase, BigInteger generator, List<HashWindow> closed) {
+        long index = Math.floorDiv(fid, windowFids);
+        HashWindow open = openWindows.get(substationID);
+        Long lastClosed = closedWindows.get(substationID);
+        if ((open != null && index < open.getIndex()) || (lastClosed != null && index <= lastClosed))
+            return null;
+        if (open != null && index > open.getIndex()) {
+            closed.add(open);
+            closedWindows.put(substationID, open.getIndex());
+            open = null;
+        }
+        if (open == null) {
+            open = new HashWindow(substationID, index, windowFids, fieldBase, generator);
+            openWindows.put(substationID, open);
+        }
+        return open;
+    }
+
+    private void closeIfFull(HashWindow open, List<HashWindow> closed) {
+        if (!open.isComplete())
+            return;
+        closed.add(open);
+        closedWindows.put(open.getSubstationID(), open.getIndex());
+        openWindows.remove(open.getSubstationID());
+    }
+
+    /**
+     * Closes the windows whose substation stopped sending, e.g. its last window
+     */
+    void closeIdleWindows() {
+        long idleSince = System.nanoTime() - idleNanos;
+        List<HashWindow> closed = new ArrayList<>();
+        synchronized (openWindows) {
+            openWindows.values().removeIf(open -> {
+                if (open.getLastUpdated() - idleSince >= 0)
+                    return false;
+                closed.add(open);
+                closedWindows.put(open.getSubstationID(), open.getIndex());
+                return true;
+            });
+        }
+        if (!closed.isEmpty())
+            log.debug("Closed {} idle windows", closed.size());
+        close(closed);
+    }
+
+    /**
+     * Checks the closed windows and hands them to the listeners.
+     * The exponentiations run outside the lock, the closed windows are no longer reachable from the map.
+     */
+    private void close(List<HashWindow> closed) {
+        for (HashWindow window : closed) {
+//            Every round of the window was checked on its own, there is nothing to publish
+            if (window.size() == 0)
+                continue;
+            window.check(this);
+            if (!window.isValid())
+                log.warn("Window {} of substation {} does not hold over {} rounds", window.getIndex(), window.getSubstationID(), window.size());
+            for (Consumer<HashWindow> listener : windowListeners) {
+                try {
+                    listener.accept(window);
+                } catch (RuntimeException e) {
+                    log.error("A listener of window {} of substation {} failed: {}", window.getIndex(), window.getSubstationID(), e.toString());
+                }
+            }
+        }
+    }
+
+}
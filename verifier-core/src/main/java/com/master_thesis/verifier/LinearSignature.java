@@ -0,0 +1,185 @@
+package com.master_thesis.verifier;
+
+import com.master_thesis.verifier.data.LinearClientData;
+import com.master_thesis.verifier.data.LinearProofData;
+import com.master_thesis.verifier.data.LinearPublicData;
+import com.master_thesis.verifier.utils.AuditLog;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.stream.Stream;
+
+public class LinearSignature {
+    private static final Logger log = (Logger) LoggerFactory.getLogger(LinearSignature.class);
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * What verify checks for one round: its result, its proof, the public data and Rn
+     */
+    public static class Claim {
+
+        private final BigInteger linearResult;
+        private final LinearProofData proofData;
+        private final LinearPublicData publicData;
+        private final BigInteger rn;
+
+        public Claim(BigInteger linearResult, LinearProofData proofData, LinearPublicData publicData, BigInteger rn) {
+            this.linearResult = linearResult;
+            this.proofData = proofData;
+            this.publicData = publicData;
+            this.rn = rn;
+        }
+    }
+
+    /**
+     * This is the final Eval function from the  Linear Signature based construction
+     * @param partialResultInfo a stream of all the partial sums, given from the servers
+     * @return the sum of the servers' partial sums
+     */
+    public BigInteger finalEval(Stream<BigInteger> partialResultInfo) {
+        return partialResultInfo
+                .reduce(BigInteger.ZERO, BigInteger::add);
+    }
+
+    /**
+     * This is the final Proof function from the Linear Signature based construction
+     * @param clientData is a list of the data sent from the clients'
+     * @param publicData is the public available data for this construction
+     * @return the sigma that contains s and xTilde
+     */
+    public LinearProofData finalProof(List<LinearClientData> clientData, LinearPublicData publicData) {
+//        Compute the unique prime times N
+        BigInteger eN = publicData.getN().multiply(publicData.getFidPrime());
+        BigInteger nRoof = publicData.getNRoof();
+//        Compute the sum of all partial s-shares
+        BigInteger s = clientData.stream().map(LinearClientData::getsShare).reduce(BigInteger.ZERO, BigInteger::add);
+        BigInteger sPrime = s.subtract(s.mod(eN)).divide(eN);
+//      We compute xTilde in three steps by computing the numerator, denominator and combining them
+        BigInteger numerator = clientData.stream().map(LinearClientData::getX).reduce(BigInteger.ONE, BigInteger::multiply);
+        BigInteger denominator = publicData.getG1().modPow(sPrime, nRoof).modInverse(nRoof);
+//      Note that we use modulo inverse and thus we have to use multiplication and not division
+        BigInteger xTilde = numerator.multiply(denominator).mod(nRoof);
+
+        return new LinearProofData(s.mod(eN), xTilde);
+    }
+
+    /**
+     * This is the verify function from the Linear Signature based construction
+     * @param linearResult is the result from the finalEval function
+     * @param proofData is the proof data computed from the finalProof function
+     * @param publicData is the public data for this construction
+     * @param rn is the sum of all the clients' nonce
+     * @return true: if the hash of s times the product of all h times the hash of the result == xTilde to the power of eN
+     *         false otherwise
+     */
+    public boolean verify(BigInteger linearResult, LinearProofData proofData, LinearPublicData publicData, BigInteger rn) {
+        BigInteger eN = publicData.getN().multiply(publicData.getFidPrime());
+
+//        Check that the result and s are smaller than eN
+        boolean inEN = linearResult.compareTo(eN) < 0 && proofData.getS().compareTo(eN) < 0;
+        if (!inEN)
+            return false;
+
+        BigInteger nRoof = publicData.getNRoof();
+//      Below we compute the lhs and rhs and check their equivalence.
+//      lhs (clients' secret and nonce)
+        BigInteger lhs = proofData.getXTilde().modPow(eN, nRoof);
+//      xTilde contains all nonce from the clients. We include Rn to remove these nonce to receive the correct result
+        lhs = lhs.multiply(publicData.getG2().modPow(rn, nRoof)).mod(nRoof);
+//      rhs (the sum of clients' secret)
+        BigInteger rhs = publicData.getG1().modPow(proofData.getS(), nRoof)
+                .multiply(Arrays.stream(publicData.getH()).reduce(BigInteger.ONE, BigInteger::multiply)).mod(nRoof)
+                .multiply(publicData.getG2().modPow(linearResult, nRoof))
+                .mod(nRoof);
+
+        boolean correctResult = lhs.equals(rhs);
+        if (!correctResult)
+            logError(lhs, rhs, linearResult, proofData, publicData);
+
+        return correctResult;
+    }
+
+    /**
+     * Verifies many rounds at once. The rounds that share NRoof, g1 and g2 are checked together: each round's equation
+     * xTilde^eN * g2^rn = g1^s * h * g2^result is raised to a random 64 bit exponent d and all of them are multiplied,
+     * which leaves two exponentiations per round, xTilde to eN*d and the product of h to the short d, and one of g1 and
+     * one of g2 for the whole batch instead of one per round.
+     * A batch whose product does not hold is split in halves until the failing rounds are found, a single round is
+     * checked with {@link #verify(BigInteger, LinearProofData, LinearPublicData, BigInteger)}.
+     * <p>
+     * The exponents d are odd, so that a round whose xTilde was multiplied by -1, the element of order 2 of every
+     * modulus, flips the sign of the product and fails its batch. What remains is the known limit of batching with small
+     * exponents: the batch is only as strict as the single check if NRoof has no other elements of small order that a
+     * prover can find, which holds for a product of safe primes, and an even number of negated xTildes in one batch
+     * cancel out. Such rounds still carry the result their proof was made for, only the sign of their xTilde is unchecked.
+     * @return whether each claim holds, in the order of the claims
+     */
+    public boolean[] verifyBatch(List<Claim> claims) {
+        boolean[] valid = new boolean[claims.size()];
+        Map<List<BigInteger>, List<Integer>> groups = new HashMap<>();
+        for (int i = 0; i < claims.size(); i++) {
+            LinearPublicData publicData = claims.get(i).publicData;
+            groups.computeIfAbsent(List.of(publicData.getNRoof(), publicData.getG1(), publicData.getG2()), key -> new ArrayList<>()).add(i);
+        }
+        for (List<Integer> group : groups.values())
+            verifyBatch(claims, group, valid);
+        return valid;
+    }
+
+    private void verifyBatch(List<Claim> claims, List<Integer> batch, boolean[] valid) {
+        if (batch.size() == 1) {
+            Claim claim = claims.get(batch.get(0));
+            valid[batch.get(0)] = verify(claim.linearResult, claim.proofData, claim.publicData, claim.rn);
+            return;
+        }
+        if (batchHolds(claims, batch)) {
+            batch.forEach(i -> valid[i] = true);
+            return;
+        }
+        log.debug("A batch of {} Linear rounds does not hold, splitting it", batch.size());
+        verifyBatch(claims, batch.subList(0, batch.size() / 2), valid);
+        verifyBatch(claims, batch.subList(batch.size() / 2, batch.size()), valid);
+    }
+
+    /**
+     * @param batch indices of claims that share NRoof, g1 and g2
+     * @return true if every claim is in range and the product of the claims' equations holds
+     */
+    private boolean batchHolds(List<Claim> claims, List<Integer> batch) {
+        LinearPublicData shared = claims.get(batch.get(0)).publicData;
+        BigInteger nRoof = shared.getNRoof();
+        BigInteger lhs = BigInteger.ONE, rhs = BigInteger.ONE;
+        BigInteger sExponent = BigInteger.ZERO, g2Exponent = BigInteger.ZERO;
+        for (int i : batch) {
+            Claim claim = claims.get(i);
+            BigInteger eN = claim.publicData.getN().multiply(claim.publicData.getFidPrime());
+            if (claim.linearResult.compareTo(eN) >= 0 || claim.proofData.getS().compareTo(eN) >= 0)
+                return false;
+            BigInteger d = new BigInteger(64, random).setBit(63).setBit(0);
+            lhs = lhs.multiply(claim.proofData.getXTilde().modPow(eN.multiply(d), nRoof)).mod(nRoof);
+            BigInteger h = Arrays.stream(claim.publicData.getH()).reduce(BigInteger.ONE, BigInteger::multiply).mod(nRoof);
+            rhs = rhs.multiply(h.modPow(d, nRoof)).mod(nRoof);
+            sExponent = sExponent.add(claim.proofData.getS().multiply(d));
+//            g2 is on both sides, with rn on the left and the result on the right, only the difference is raised
+            g2Exponent = g2Exponent.add(claim.linearResult.subtract(claim.rn).multiply(d));
+        }
+        rhs = rhs.multiply(shared.getG1().modPow(sExponent, nRoof)).mod(nRoof);
+        if (g2Exponent.signum() >= 0)
+            rhs = rhs.multiply(shared.getG2().modPow(g2Exponent, nRoof)).mod(nRoof);
+        else
+            lhs = lhs.multiply(shared.getG2().modPow(g2Exponent.negate(), nRoof)).mod(nRoof);
+        return lhs.equals(rhs);
+    }
+
+    /**
+     * This function is used to log useful information when an error occurs
+     */
+    private void logError(BigInteger lhs, BigInteger rhs, BigInteger linearResult, LinearProofData proofData, LinearPublicData publicData) {
+        AuditLog.mismatch("Could not verify the Linear Signature result", "lhs", lhs, "rhs", rhs, "linearResult", linearResult,
+                "s", proofData.getS(), "xTilde", proofData.getXTilde(), "NRoof", publicData.getNRoof(), "h", publicData.getH());
+    }
+}
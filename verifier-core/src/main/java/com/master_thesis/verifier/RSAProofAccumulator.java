@@ -0,0 +1,174 @@
+package com.master_thesis.verifier;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.data.RSAClientData;
+import com.master_thesis.verifier.data.RSAServerData;
+import com.master_thesis.verifier.utils.PublicParameters;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+import static java.math.BigInteger.ONE;
+
+/**
+ * Reconstructs the RSA Threshold final proof of one round while its data arrives.
+ * Each client's sigma_i^pk is started in the background as soon as both the client's public key and the servers'
+ * proof data for that client are present, and folded into a running product once done.
+ * When the round is complete only the multiplication with the last client proof remains.
+ * <p>
+ * The proof data is taken from the first server that reports it, the servers are expected to send the same proof data.
+ * The proof data of the other servers is compared with it, those that differ are reported by {@link #getDisagreeing()}.
+ */
+public class RSAProofAccumulator {
+
+    private final static Logger log = (Logger) LoggerFactory.getLogger(RSAProofAccumulator.class);
+
+    private final RSAThreshold rsaThreshold;
+    private final int substationID;
+    private final Supplier<BigInteger> fieldBaseLookup;
+    private volatile BigInteger fieldBase;
+
+    private Map<Integer, RSAServerData.ProofData> proofData;
+    private final Map<Integer, BigInteger> publicKeys = new HashMap<>();
+    private final Set<Integer> started = new HashSet<>();
+    private final List<CompletableFuture<Void>> pending = new ArrayList<>();
+    private final Map<Integer, String> failures = new ConcurrentHashMap<>();
+    private final Set<Integer> proofServers = new HashSet<>();
+    private final Set<Integer> disagreeing = new HashSet<>();
+    private boolean quorumClaimed;
+    private BigInteger product = ONE;
+
+    RSAProofAccumulator(RSAThreshold rsaThreshold, int substationID, Supplier<BigInteger> fieldBaseLookup) {
+        this.rsaThreshold = rsaThreshold;
+        this.substationID = substationID;
+        this.fieldBaseLookup = fieldBaseLookup;
+    }
+
+    public synchronized void add(RSAServerData serverData) {
+        if (serverData.getPartialProofs() == null || !proofServers.add(serverData.getId()))
+            return;
+        if (proofData != null) {
+            if (!agrees(serverData.getPartialProofs()))
+                disagreeing.add(serverData.getId());
+            return;
+        }
+        proofData = serverData.getPartialProofs();
+        publicKeys.forEach(this::startIfReady);
+    }
+
+    /**
+     * @throws IllegalStateException if the client's proof was already started with another public key
+     */
+    public synchronized void add(RSAClientData clientData) {
+        if (!accepts(clientData))
+            throw new IllegalStateException("The proof of client " + clientData.getId() + " in substation " + substationID + " was started with another public key");
+        publicKeys.put(clientData.getId(), clientData.getPublicKey());
+        startIfReady(clientData.getId(), clientData.getPublicKey());
+    }
+
+    /**
+     * A client that sends its public key again after its proof was started must send the same key, the proof is not
+     * started over
+     * @return false if the client's proof was started with another public key
+     */
+    public synchronized boolean accepts(RSAClientData clientData) {
+        return !started.contains(clientData.getId()) || Objects.equals(publicKeys.get(clientData.getId()), clientData.getPublicKey());
+    }
+
+    /**
+     * @return the servers whose proof data differs from the proof data the proof is reconstructed from
+     */
+    public synchronized Set<Integer> getDisagreeing() {
+        return Set.copyOf(disagreeing);
+    }
+
+    /**
+     * Claims the early check of the round's proof, once the proof data of a quorum of servers and the public key of
+     * every client are present
+     * @param clients the clients of the round
+     * @return true for the one caller that may check the proof early
+     */
+    public synchronized boolean claimQuorum(int quorum, Collection<Integer> clients) {
+        if (quorumClaimed || quorum < 1 || proofServers.size() < quorum || !publicKeys.keySet().containsAll(clients))
+            return false;
+        quorumClaimed = true;
+        return true;
+    }
+
+    /**
+     * Waits for the clients' proofs that are still being computed and combines them with the last client proof
+     * @param lastClientProof is the Rn from the trusted third-party
+     * @return the final proof component (sigma), or null if the proof of any client could not be reconstructed
+     * @throws PublicParameters.UnavailableException if the field base could not be looked up
+     */
+    public BigInteger finish(BigInteger lastClientProof) {
+        List<CompletableFuture<Void>> waiting;
+        synchronized (this) {
+            if (proofData == null || proofData.isEmpty())
+                return null;
+//            Clients without a public key are computed as well, just like in RSAThreshold.finalProof
+            proofData.keySet().stream().filter(id -> !started.contains(id)).forEach(id -> start(id, proofData.get(id)));
+            waiting = new ArrayList<>(pending);
+        }
+        try {
+            CompletableFuture.allOf(waiting.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+//            A term only fails its future when folding it could not look up the field base
+            if (e.getCause() instanceof PublicParameters.UnavailableException)
+                throw (PublicParameters.UnavailableException) e.getCause();
+            throw e;
+        }
+        if (!failures.isEmpty()) {
+            log.info("Could not reconstruct the proof of clients {} in substation {}", failures, substationID);
+            return null;
+        }
+        BigInteger fieldBase = fieldBase();
+        synchronized (this) {
+            return product.multiply(lastClientProof).mod(fieldBase);
+        }
+    }
+
+    private boolean agrees(Map<Integer, RSAServerData.ProofData> other) {
+        if (!proofData.keySet().equals(other.keySet()))
+            return false;
+        return proofData.entrySet().stream().allMatch(client -> client.getValue().matches(other.get(client.getKey())));
+    }
+
+    private void startIfReady(int clientID, BigInteger publicKey) {
+        if (proofData == null || started.contains(clientID) || !proofData.containsKey(clientID))
+            return;
+        RSAServerData.ProofData clientProofData = proofData.get(clientID);
+        clientProofData.setPublicKey(publicKey);
+        start(clientID, clientProofData);
+    }
+
+    private void start(int clientID, RSAServerData.ProofData clientProofData) {
+        started.add(clientID);
+        pending.add(rsaThreshold.clientProofTermAsync(clientProofData).handle((term, e) -> {
+            if (e != null)
+                failures.put(clientID, String.valueOf(e.getCause() != null ? e.getCause().getMessage() : e.getMessage()));
+            else
+                fold(term);
+            return null;
+        }));
+    }
+
+    private void fold(BigInteger term) {
+//        The field base is looked up outside of the lock, it may require a call to the trusted third-party
+        BigInteger fieldBase = fieldBase();
+        synchronized (this) {
+            product = product.multiply(term).mod(fieldBase);
+        }
+    }
+
+    private BigInteger fieldBase() {
+        if (fieldBase == null)
+            fieldBase = fieldBaseLookup.get();
+        return fieldBase;
+    }
+}
@@ -2,29 +2,48 @@ package com.master_thesis.verifier;
 
 import ch.qos.logback.classic.Logger;
 import com.master_thesis.verifier.data.RSAServerData;
+import com.master_thesis.verifier.utils.AuditLog;
 import com.master_thesis.verifier.utils.PublicParameters;
 import org.slf4j.LoggerFactory;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.stereotype.Component;
 
 import java.math.BigInteger;
 import java.util.Arrays;
-import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Supplier;
 import java.util.stream.Stream;
 
 import static java.math.BigInteger.ONE;
 import static java.math.BigInteger.ZERO;
 
-@Component
 public class RSAThreshold {
 
     private final static Logger log = (Logger) LoggerFactory.getLogger(RSAThreshold.class);
     private PublicParameters publicParameters;
+    private ForkJoinPool proofPool;
+    private int quorum;
 
-    @Autowired
-    public RSAThreshold(PublicParameters publicParameters) {
+    public RSAThreshold(PublicParameters publicParameters, int parallelism) {
+        this(publicParameters, parallelism, 0);
+    }
+
+    /**
+     * @param quorum the number of servers whose proof data has to be present, and agree, to check a round's proof
+     *               before the last server reported, 0 waits for every server
+     */
+    public RSAThreshold(PublicParameters publicParameters, int parallelism, int quorum) {
+        if (quorum < 0)
+            throw new IllegalArgumentException("The quorum cannot be negative, got " + quorum);
         this.publicParameters = publicParameters;
+        this.proofPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.quorum = quorum;
+    }
+
+    public int getQuorum() {
+        return quorum;
     }
 
     /**
@@ -38,38 +57,80 @@ public class RSAThreshold {
     }
 
     /**
-     * This is the final Proof function from the RSA Threshold based construction
-     * @param rsaProofComponents is a collection with the required RSA components used
+     * This is the final Proof function from the RSA Threshold based construction.
+     * The clients are independent, so their proofs are reconstructed in parallel on a dedicated pool.
+     * @param rsaProofComponents maps each client to the required RSA components used
      * @param substationID an identifier for the substation which this computation is related to
      * @param lastClientProof is the Rn from the trusted third-party
-     * @return the final proof component (sigma)
+     * @return the final proof component (sigma), or null if the proof of any client could not be reconstructed
      */
-    public BigInteger finalProof(Collection<RSAServerData.ProofData> rsaProofComponents, int substationID, BigInteger lastClientProof) {
+    public BigInteger finalProof(Map<Integer, RSAServerData.ProofData> rsaProofComponents, int substationID, BigInteger lastClientProof) {
         if (rsaProofComponents.isEmpty())
             return null;
+        BigInteger fieldBase = publicParameters.getFieldBase(substationID);
+        Map<Integer, String> failures = new ConcurrentHashMap<>();
 //        Compute the product of all servers' proof components to the power of its public key
-        return rsaProofComponents.stream()
+        BigInteger product = proofPool.submit(() -> rsaProofComponents.entrySet().parallelStream()
 //                Combine the partial signatures
-                .map(rsaProofComponent -> {
+                .map(client -> {
                     try {
-//                        Compute the signature that corresponds to the secret
-                        BigInteger encryptedRSAProof = clientFinalProof(
-                                rsaProofComponent.getPublicKey(),
-                                rsaProofComponent.getClientProof(),
-                                rsaProofComponent.getRsaProofComponent(),
-                                rsaProofComponent.getRsaN(),
-                                rsaProofComponent.getRsaDeterminant());
-//                        Compute the power of sigma_i to pk
-                        BigInteger res = encryptedRSAProof.modPow(rsaProofComponent.getPublicKey(), rsaProofComponent.getRsaN());
-                        return res;
-                    } catch (Exception e) {
-                        log.info(e.getMessage());
+                        return clientProofTerm(client.getValue());
+                    } catch (RuntimeException e) {
+                        failures.put(client.getKey(), String.valueOf(e.getMessage()));
+                        return ONE;
                     }
-                    return null;
                 })
 //                Compute the product of all partial signatures^pk
-                .reduce(lastClientProof, BigInteger::multiply)
-                .mod(publicParameters.getFieldBase(substationID));
+                .reduce(ONE, (a, b) -> a.multiply(b).mod(fieldBase))
+        ).join();
+        if (!failures.isEmpty()) {
+            log.info("Could not reconstruct the proof of clients {} in substation {}", failures, substationID);
+            return null;
+        }
+        return product.multiply(lastClientProof).mod(fieldBase);
+    }
+
+    /**
+     * Reconstructs the proof of one client from the servers' partial signatures
+     * @param rsaProofComponent the RSA components of the client, including its public key
+     * @return sigma_i to the power of the client's public key
+     */
+    public BigInteger clientProofTerm(RSAServerData.ProofData rsaProofComponent) {
+//        Compute the signature that corresponds to the secret
+        BigInteger encryptedRSAProof = clientFinalProof(
+                rsaProofComponent.getPublicKey(),
+                rsaProofComponent.getClientProof(),
+                rsaProofComponent.getRsaProofComponent(),
+                rsaProofComponent.getRsaN(),
+                rsaProofComponent.getRsaDeterminant());
+//        Compute the power of sigma_i to pk
+        return encryptedRSAProof.modPow(rsaProofComponent.getPublicKey(), rsaProofComponent.getRsaN());
+    }
+
+    /**
+     * Starts the reconstruction of one client's proof on the proof pool
+     */
+    public CompletableFuture<BigInteger> clientProofTermAsync(RSAServerData.ProofData rsaProofComponent) {
+        return CompletableFuture.supplyAsync(() -> clientProofTerm(rsaProofComponent), proofPool);
+    }
+
+    /**
+     * Creates an accumulator that reconstructs the final proof of a round while its data arrives
+     * @param substationID an identifier for the substation which this computation is related to
+     */
+    public RSAProofAccumulator newProofAccumulator(int substationID) {
+        return newProofAccumulator(substationID, () -> publicParameters.getFieldBase(substationID));
+    }
+
+    /**
+     * @param fieldBase looks up the field base of the substation, e.g. from the prefetched round parameters
+     */
+    public RSAProofAccumulator newProofAccumulator(int substationID, Supplier<BigInteger> fieldBase) {
+        return new RSAProofAccumulator(this, substationID, fieldBase);
+    }
+
+    public void shutdown() {
+        proofPool.shutdownNow();
     }
 
 
@@ -86,20 +147,41 @@ public class RSAThreshold {
     public boolean verify(int substationID, BigInteger result, BigInteger serverProof, List<BigInteger> clientProofs) {
         if (serverProof == null)
             return false;
-        BigInteger fieldBase = publicParameters.getFieldBase(substationID);
+        return verify(publicParameters.getFieldBase(substationID), publicParameters.getGenerator(substationID), result, serverProof, clientProofs);
+    }
+
+    /**
+     * This is the verify function from the RSA Threshold based construction, with the substation's parameters at hand
+     * @param fieldBase the field base of the substation
+     * @param generator the generator of the substation
+     * @see #verify(int, BigInteger, BigInteger, List)
+     */
+    public boolean verify(BigInteger fieldBase, BigInteger generator, BigInteger result, BigInteger serverProof, List<BigInteger> clientProofs) {
+        if (serverProof == null)
+            return false;
 //        Compute the product of all the clients' proofs
         BigInteger clientProof = clientProofs.stream().reduce(BigInteger.ONE, BigInteger::multiply).mod(fieldBase);
 //        Compute the hash of the final result
-        BigInteger resultProof = hash(result, fieldBase, publicParameters.getGenerator(substationID));
+        BigInteger resultProof = hash(result, fieldBase, generator);
 //        Check if the product of the clients' proofs are equal to the hash value of the final result
         boolean clientEqResult = clientProof.equals(resultProof);
     //        Check if the product of the clients' proofs are equal to the final proof
         boolean clientEqServer = clientProof.equals(serverProof);
         if (!(clientEqResult && clientEqServer))
-            log.info("clientProof: {}, resultProof: {}, serverProof:{}", clientProof, resultProof, serverProof);
+            AuditLog.mismatch("Homomorphic hash check failed", "client proof", clientProof, "result proof", resultProof, "server proof", serverProof);
         return clientEqResult && clientEqServer;
     }
 
+    /**
+     * The part of the verification that does not need the result, so it can run before every server reported
+     * @return true if the product of the clients' proofs == the server proof
+     */
+    public boolean verifyProof(BigInteger fieldBase, BigInteger serverProof, List<BigInteger> clientProofs) {
+        if (serverProof == null)
+            return false;
+        return clientProofs.stream().reduce(BigInteger.ONE, BigInteger::multiply).mod(fieldBase).equals(serverProof);
+    }
+
     public BigInteger hash(BigInteger input, BigInteger fieldBase, BigInteger generator) {
         return generator.modPow(input, fieldBase);
     }
@@ -0,0 +1,91 @@
+package com.master_thesis.verifier.core;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.DifferentialPrivacy;
+import com.master_thesis.verifier.HomomorphicHash;
+import com.master_thesis.verifier.data.*;
+import com.master_thesis.verifier.utils.AuditLog;
+import com.master_thesis.verifier.utils.RoundParameters;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies the rounds of the Homomorphic Hash based constructions, HASH and DP, which only differ in their data
+ */
+public class HomomorphicHashVerifier implements Verifier {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(HomomorphicHashVerifier.class);
+
+    private final Construction construction;
+    private final String label;
+    private final HomomorphicHash homomorphicHash;
+    private final Function<Round, List<BigInteger>> partialResults, partialProofs, clientProofs;
+
+    private HomomorphicHashVerifier(Construction construction, String label, HomomorphicHash homomorphicHash,
+                                    Function<Round, List<BigInteger>> partialResults,
+                                    Function<Round, List<BigInteger>> partialProofs,
+                                    Function<Round, List<BigInteger>> clientProofs) {
+        this.construction = construction;
+        this.label = label;
+        this.homomorphicHash = homomorphicHash;
+        this.partialResults = partialResults;
+        this.partialProofs = partialProofs;
+        this.clientProofs = clientProofs;
+    }
+
+    public static HomomorphicHashVerifier forHash(HomomorphicHash homomorphicHash) {
+        return new HomomorphicHashVerifier(Construction.HASH, "Hash", homomorphicHash,
+                round -> map(round.getServerData(HashServerData.class), HashServerData::getPartialResult),
+                round -> map(round.getServerData(HashServerData.class), HashServerData::getPartialProof),
+                round -> map(round.getClientData(HashClientData.class), HashClientData::getProofComponent));
+    }
+
+    public static HomomorphicHashVerifier forDifferentialPrivacy(DifferentialPrivacy differentialPrivacy) {
+        return new HomomorphicHashVerifier(Construction.DP, "DP", differentialPrivacy,
+                round -> map(round.getServerData(DPServerData.class), DPServerData::getPartialResult),
+                round -> map(round.getServerData(DPServerData.class), DPServerData::getPartialProof),
+                round -> map(round.getClientData(DPClientData.class), DPClientData::getProofComponent));
+    }
+
+    @Override
+    public Construction getConstruction() {
+        return construction;
+    }
+
+    @Override
+    public VerificationResult verify(Round round, Stages stages) {
+        int substationID = round.getSubstationID(), fid = round.getFid();
+//        Collect the clients' proof (tau) from the data object
+        List<BigInteger> clientProofs = this.clientProofs.apply(round);
+//        Rn and the substation's parameters were prefetched from the trusted third-party, add Rn to the list of client proofs
+        RoundParameters parameters = round.getParameters();
+        clientProofs.add(parameters.getLastClientProof());
+        BigInteger fieldBase = parameters.getFieldBase();
+        BigInteger generator = parameters.getGenerator();
+//        Compute the final evaluation, i.e., compute the final sum of the servers partial sum
+        List<BigInteger> partialResults = this.partialResults.apply(round);
+        BigInteger result = stages.aggregate(() -> homomorphicHash.finalEval(partialResults.stream()));
+//        Compute the final proof, i.e., compute the product of the servers' partial proofs
+        List<BigInteger> partialProofs = this.partialProofs.apply(round);
+        BigInteger serverProof = stages.aggregate(() -> homomorphicHash.finalProof(partialProofs.stream(), fieldBase));
+//        In window mode most rounds are only checked together with the other rounds of their window
+        if (homomorphicHash.isDeferred(substationID) && stages.verify(() -> homomorphicHash.accumulate(substationID, fid, fieldBase, generator, result, serverProof, clientProofs))) {
+            log.debug("[FID {}] {}: result:{} deferred to its window", fid, label, AuditLog.hex(result));
+            return new VerificationResult(construction, substationID, fid, result, false).deferred();
+        }
+//        Verify that the computations are correct.
+        boolean valid = stages.verify(() -> homomorphicHash.verify(fieldBase, generator, result, serverProof, clientProofs));
+        homomorphicHash.checkedOnItsOwn(substationID, fid, fieldBase, generator);
+        AuditLog.verified(construction, substationID, fid, result, valid, "server proof", serverProof, "client proofs", clientProofs,
+                "field base", fieldBase, "generator", generator);
+        return new VerificationResult(construction, substationID, fid, result, valid);
+    }
+
+    private static <T> List<BigInteger> map(List<T> data, Function<T, BigInteger> field) {
+        return data.stream().map(field).collect(Collectors.toList());
+    }
+}
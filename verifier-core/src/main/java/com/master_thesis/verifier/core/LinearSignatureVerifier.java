@@ -0,0 +1,102 @@
+package com.master_thesis.verifier.core;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.LinearSignature;
+import com.master_thesis.verifier.data.*;
+import com.master_thesis.verifier.utils.AuditLog;
+import com.master_thesis.verifier.utils.BatchingLookup;
+import com.master_thesis.verifier.utils.RoundParameters;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * Verifies the rounds of the Linear Signature based construction.
+ * With batching, the final checks of the rounds that are verified at about the same time are collected for a window
+ * and checked together with {@link LinearSignature#verifyBatch(List)}, which saves most of the exponentiations when
+ * the rounds share their keys. A round then waits for its batch instead of running its own check.
+ */
+public class LinearSignatureVerifier implements Verifier {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(LinearSignatureVerifier.class);
+
+    private final LinearSignature linearSignature;
+    private final BatchingLookup<LinearSignature.Claim, Boolean> batch;
+
+    public LinearSignatureVerifier(LinearSignature linearSignature) {
+        this.linearSignature = linearSignature;
+        this.batch = null;
+    }
+
+    /**
+     * @param batchStages where the checks of a batch run
+     * @param executor waits for the checks of a batch
+     * @param window how long the first round of a batch waits for others
+     * @param maxBatchSize the number of rounds that are checked together without waiting for the window
+     */
+    public LinearSignatureVerifier(LinearSignature linearSignature, Stages batchStages, Executor executor, Duration window, int maxBatchSize) {
+        this.linearSignature = linearSignature;
+        this.batch = new BatchingLookup<>(claims -> {
+            boolean[] valid = batchStages.verify(() -> linearSignature.verifyBatch(claims));
+            Map<LinearSignature.Claim, Boolean> results = new IdentityHashMap<>();
+            for (int i = 0; i < claims.size(); i++)
+                results.put(claims.get(i), valid[i]);
+            return results;
+        }, executor, window, maxBatchSize);
+        log.info("Batching Linear checks for {} ms or {} rounds", window.toMillis(), maxBatchSize);
+    }
+
+    @Override
+    public Construction getConstruction() {
+        return Construction.LINEAR;
+    }
+
+    @Override
+    public VerificationResult verify(Round round, Stages stages) {
+        int substationID = round.getSubstationID(), fid = round.getFid();
+        List<LinearServerData> serverData = round.getServerData(LinearServerData.class);
+        List<LinearClientData> clientData = round.getClientData(LinearClientData.class);
+//        Compute the final evaluation, i.e., compute the final sum of the servers partial sum
+        BigInteger result = stages.aggregate(() -> linearSignature.finalEval(serverData.stream().map(LinearServerData::getPartialResult)));
+//        Collects the public available data, prefetched from the trusted third-party
+        RoundParameters parameters = round.getParameters();
+        LinearPublicData publicData = parameters.getLinearPublicData();
+//        Rn was prefetched from the trusted third-party as well
+        BigInteger rn = parameters.getRn();
+//        Computes the final proof
+        LinearProofData proofData = stages.aggregate(() -> linearSignature.finalProof(clientData, publicData));
+//        Verify that the computations are correct
+        boolean valid = batch != null
+                ? checkInBatch(new LinearSignature.Claim(result, proofData, publicData, rn), stages)
+                : stages.verify(() -> linearSignature.verify(result, proofData, publicData, rn));
+        AuditLog.verified(Construction.LINEAR, substationID, fid, result, valid, "s", proofData.getS(), "xTilde", proofData.getXTilde(),
+                "N", publicData.getN(), "NRoof", publicData.getNRoof(), "fidPrime", publicData.getFidPrime(),
+                "g1", publicData.getG1(), "g2", publicData.getG2(), "h", publicData.getH(), "rn", rn);
+        return new VerificationResult(Construction.LINEAR, substationID, fid, result, valid);
+    }
+
+    /**
+     * Waits for the claim's batch through the stages, so that the round does not hold on to its scheduler slot while
+     * the batch window fills
+     */
+    private boolean checkInBatch(LinearSignature.Claim claim, Stages stages) {
+        try {
+            return stages.await(batch.get(claim));
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw e;
+        }
+    }
+
+    public void shutdown() {
+        if (batch != null)
+            batch.close();
+    }
+}
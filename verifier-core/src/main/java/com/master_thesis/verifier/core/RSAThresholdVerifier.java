@@ -0,0 +1,74 @@
+package com.master_thesis.verifier.core;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.RSAProofAccumulator;
+import com.master_thesis.verifier.RSAThreshold;
+import com.master_thesis.verifier.data.*;
+import com.master_thesis.verifier.utils.AuditLog;
+import com.master_thesis.verifier.utils.RoundParameters;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Verifies the rounds of the RSA threshold based construction
+ */
+public class RSAThresholdVerifier implements Verifier {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(RSAThresholdVerifier.class);
+
+    private final RSAThreshold rsaThreshold;
+
+    public RSAThresholdVerifier(RSAThreshold rsaThreshold) {
+        this.rsaThreshold = rsaThreshold;
+    }
+
+    @Override
+    public Construction getConstruction() {
+        return Construction.RSA;
+    }
+
+    @Override
+    public VerificationResult verify(Round round, Stages stages) {
+        int substationID = round.getSubstationID(), fid = round.getFid();
+        List<RSAServerData> serverData = round.getServerData(RSAServerData.class);
+        List<RSAClientData> clientData = round.getClientData(RSAClientData.class);
+//        Collect the clients' proof (tau) from the data object
+        List<BigInteger> clientProofs = clientData.stream().map(RSAClientData::getProofComponent).collect(Collectors.toList());
+//        Rn and the substation's parameters were prefetched from the trusted third-party, add Rn to the list of client proofs
+        RoundParameters parameters = round.getParameters();
+        BigInteger lastClientProof = parameters.getLastClientProof();
+        clientProofs.add(lastClientProof);
+        BigInteger fieldBase = parameters.getFieldBase();
+        BigInteger generator = parameters.getGenerator();
+
+//        Compute the final evaluation, i.e., compute the final sum of the servers partial sum
+        BigInteger result = stages.aggregate(() -> rsaThreshold.finalEval(serverData.stream().map(RSAServerData::getPartialResult)));
+//        Compute the final proof, i.e, the product of all servers' proof to the power of the proofs public key.
+//        The clients' proofs are usually reconstructed while the data arrived, so only the last client proof remains.
+        RSAProofAccumulator proof = round.getRsaProof() != null ? round.getRsaProof() : accumulate(round, serverData, clientData);
+        BigInteger serverProof = stages.aggregate(() -> proof.finish(lastClientProof));
+//        Verify that the computations are correct
+        boolean valid = stages.verify(() -> rsaThreshold.verify(fieldBase, generator, result, serverProof, clientProofs));
+//        In quorum mode the proof data of the servers that reported after the quorum has to match the quorum's
+        Set<Integer> disagreeing = rsaThreshold.getQuorum() > 0 ? proof.getDisagreeing() : Set.of();
+        if (!disagreeing.isEmpty()) {
+            log.info("[FID {}] RSA: servers {} sent different proof data", fid, disagreeing);
+            valid = false;
+        }
+
+        AuditLog.verified(Construction.RSA, substationID, fid, result, valid, "server proof", serverProof, "client proofs", clientProofs,
+                "field base", fieldBase, "generator", generator, "disagreeing servers", disagreeing);
+        return new VerificationResult(Construction.RSA, substationID, fid, result, valid);
+    }
+
+    private RSAProofAccumulator accumulate(Round round, List<RSAServerData> serverData, List<RSAClientData> clientData) {
+        RSAProofAccumulator proof = rsaThreshold.newProofAccumulator(round.getSubstationID(), round.getParameters()::getFieldBase);
+        serverData.forEach(proof::add);
+        clientData.forEach(proof::add);
+        return proof;
+    }
+}
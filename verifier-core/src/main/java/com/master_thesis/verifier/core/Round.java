@@ -0,0 +1,72 @@
+package com.master_thesis.verifier.core;
+
+import com.master_thesis.verifier.RSAProofAccumulator;
+import com.master_thesis.verifier.data.ComputationData;
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.utils.RoundParameters;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * A complete (substationID, fid) round as it is handed to its {@link Verifier}: the data of every server and client,
+ * and the round's resolved public parameters.
+ */
+public class Round {
+
+    private final int substationID;
+    private final int fid;
+    private final Construction construction;
+    private final List<ComputationData> serverData;
+    private final List<ComputationData> clientData;
+    private final RoundParameters parameters;
+    private final RSAProofAccumulator rsaProof;
+
+    /**
+     * @param rsaProof the RSA proof reconstructed while the data arrived, or null to compute it from the data
+     */
+    public Round(int substationID, int fid, Construction construction, List<ComputationData> serverData,
+                 List<ComputationData> clientData, RoundParameters parameters, RSAProofAccumulator rsaProof) {
+        this.substationID = substationID;
+        this.fid = fid;
+        this.construction = construction;
+        this.serverData = serverData;
+        this.clientData = clientData;
+        this.parameters = parameters;
+        this.rsaProof = rsaProof;
+    }
+
+    public int getSubstationID() {
+        return substationID;
+    }
+
+    public int getFid() {
+        return fid;
+    }
+
+    public Construction getConstruction() {
+        return construction;
+    }
+
+    /**
+     * @throws ClassCastException if the servers' data is not of the given type
+     */
+    public <T extends ComputationData> List<T> getServerData(Class<T> type) {
+        return serverData.stream().map(type::cast).collect(Collectors.toList());
+    }
+
+    /**
+     * @throws ClassCastException if the clients' data is not of the given type
+     */
+    public <T extends ComputationData> List<T> getClientData(Class<T> type) {
+        return clientData.stream().map(type::cast).collect(Collectors.toList());
+    }
+
+    public RoundParameters getParameters() {
+        return parameters;
+    }
+
+    public RSAProofAccumulator getRsaProof() {
+        return rsaProof;
+    }
+}
@@ -0,0 +1,44 @@
+package com.master_thesis.verifier.core;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * Where a {@link Verifier} runs the math of a round: the web module measures it in the stages of its pipeline, the edge
+ * launcher runs it on the calling thread.
+ */
+public interface Stages {
+
+    /**
+     * Runs every step on the calling thread
+     */
+    Stages DIRECT = new Stages() {
+        @Override
+        public <T> T aggregate(Supplier<T> aggregation) {
+            return aggregation.get();
+        }
+
+        @Override
+        public <T> T verify(Supplier<T> verification) {
+            return verification.get();
+        }
+    };
+
+    /**
+     * Runs finalEval or finalProof and waits for its result
+     */
+    <T> T aggregate(Supplier<T> aggregation);
+
+    /**
+     * Runs a verification and waits for its result
+     */
+    <T> T verify(Supplier<T> verification);
+
+    /**
+     * Waits for work that runs elsewhere, e.g. the batch a check was handed to
+     * @throws java.util.concurrent.CompletionException if the work failed
+     */
+    default <T> T await(CompletableFuture<T> pending) {
+        return pending.join();
+    }
+}
@@ -0,0 +1,19 @@
+package com.master_thesis.verifier.core;
+
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.VerificationResult;
+
+/**
+ * Verifies the complete rounds of one construction
+ */
+public interface Verifier {
+
+    Construction getConstruction();
+
+    /**
+     * @param round a complete round of this verifier's construction, with its parameters resolved
+     * @param stages runs the aggregation and the verification
+     * @return the outcome of the verification, without timings
+     */
+    VerificationResult verify(Round round, Stages stages);
+}
@@ -0,0 +1,94 @@
+package com.master_thesis.verifier.data;
+
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Caps the memory the {@link DataBuffer}s may hold, in total and per substation.
+ * Every buffered participant is charged the estimated heap size of its payload until its round is removed, a
+ * participant that sends again is charged the difference. A charge that does not fit is refused as a whole.
+ */
+public class BufferBudget {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(BufferBudget.class);
+
+    private final long maxBytes;
+    private final long maxBytesPerSubstation;
+    private final Map<Integer, Long> substationBytes = new HashMap<>();
+    private long usedBytes;
+    private long rejected;
+
+    /**
+     * @param maxBytes the memory all buffered rounds may use, zero for no limit
+     * @param maxBytesPerSubstation the memory the buffered rounds of one substation may use, zero for no limit
+     */
+    public BufferBudget(long maxBytes, long maxBytesPerSubstation) {
+        if (maxBytes < 0 || maxBytesPerSubstation < 0)
+            throw new IllegalArgumentException("A budget cannot be negative, got " + maxBytes + " and " + maxBytesPerSubstation);
+        this.maxBytes = maxBytes;
+        this.maxBytesPerSubstation = maxBytesPerSubstation;
+        log.info("Buffering at most {} MB, {} MB per substation", mb(maxBytes), mb(maxBytesPerSubstation));
+    }
+
+    /**
+     * Thrown when the data of a submission does not fit the budget
+     */
+    public static class ExceededException extends RuntimeException {
+        public ExceededException(String message) {
+            super(message);
+        }
+    }
+
+    /**
+     * @param bytes to charge, a negative charge releases
+     * @throws ExceededException if the charge would take the total or the substation over its budget, nothing is charged then
+     */
+    public synchronized void charge(int substationID, long bytes) {
+        long substation = substationBytes.getOrDefault(substationID, 0L);
+        if (bytes > 0) {
+            if (maxBytes > 0 && usedBytes + bytes > maxBytes) {
+                rejected++;
+                throw new ExceededException("The buffers are full, " + usedBytes + " of " + maxBytes + " bytes in use");
+            }
+            if (maxBytesPerSubstation > 0 && substation + bytes > maxBytesPerSubstation) {
+                rejected++;
+                throw new ExceededException("The buffers of substation " + substationID + " are full, " + substation + " of " + maxBytesPerSubstation + " bytes in use");
+            }
+        }
+        usedBytes += bytes;
+        if (substation + bytes > 0)
+            substationBytes.put(substationID, substation + bytes);
+        else
+            substationBytes.remove(substationID);
+    }
+
+    public synchronized void release(int substationID, long bytes) {
+        charge(substationID, -bytes);
+    }
+
+    public synchronized long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return the limits, the memory in use in total and per substation, and the number of refused charges
+     */
+    public synchronized Map<String, Object> statistics() {
+        Map<String, Object> statistics = new LinkedHashMap<>();
+        statistics.put("maxBytes", maxBytes);
+        statistics.put("maxBytesPerSubstation", maxBytesPerSubstation);
+        statistics.put("usedBytes", usedBytes);
+        statistics.put("substationBytes", new TreeMap<>(substationBytes));
+        statistics.put("rejected", rejected);
+        return statistics;
+    }
+
+    private static String mb(long bytes) {
+        return bytes > 0 ? String.valueOf(bytes / (1024 * 1024)) : "unlimited";
+    }
+}
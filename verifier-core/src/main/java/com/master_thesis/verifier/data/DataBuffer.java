@@ -0,0 +1,293 @@
+package com.master_thesis.verifier.data;
+
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Buffers the data of the rounds that are still collecting.
+ * The rounds are kept in a map from the packed (substationID, fid) to a {@link Fid}, which stores the participants in
+ * dense arrays: their ids and one column per payload field. No data objects are kept, they are rebuilt from the
+ * columns when a round is read.
+ * <p>
+ * With a {@link SpillStore}, the columns of rounds that have been idle for a while can be moved off-heap by
+ * {@link #spillIdle(RoundFilter)}. They are paged back in when the round receives data or is read.
+ * <p>
+ * With a {@link BufferBudget}, every participant's payload is charged to the budget until its round is removed.
+ */
+public class DataBuffer {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(DataBuffer.class);
+
+    private final LongHashMap<Fid> rounds;
+    private final SpillStore spillStore;
+    private final BufferBudget budget;
+
+    public DataBuffer() {
+        this(null);
+    }
+
+    public DataBuffer(SpillStore spillStore) {
+        this(spillStore, null);
+    }
+
+    /**
+     * @param spillStore takes the payloads of idle rounds, or null to keep every round on the heap
+     * @param budget the memory the buffered payloads are charged to, or null for no limit
+     */
+    public DataBuffer(SpillStore spillStore, BufferBudget budget) {
+        this.rounds = new LongHashMap<>();
+        this.spillStore = spillStore;
+        this.budget = budget;
+    }
+
+    public interface RoundFilter {
+        boolean test(int substationID, int fid);
+    }
+
+    /**
+     * @throws IllegalArgumentException if the data does not match the data already buffered for its round
+     * @throws BufferBudget.ExceededException if the data does not fit the budget, it is not buffered then
+     */
+    public void put(ComputationData data) {
+        long key = key(data.getSubstationID(), data.getFid());
+        Fid fidData = rounds.get(key);
+        if (fidData == null) {
+            fidData = new Fid(data, spillStore, budget);
+//            The round is only added once its first data was accepted, a refused round is not buffered at all
+            fidData.put(data);
+            rounds.put(key, fidData);
+            return;
+        }
+        fidData.put(data);
+    }
+
+    public Fid getFid(int substationID, int fid) {
+        return rounds.get(key(substationID, fid));
+    }
+
+    public boolean contains(int substationID, int fid) {
+        return rounds.get(key(substationID, fid)) != null;
+    }
+
+    /**
+     * @return every buffered round
+     */
+    public List<RoundKey> rounds() {
+        List<RoundKey> keys = new ArrayList<>(rounds.size());
+        rounds.forEach((key, fidData) -> keys.add(new RoundKey(fidData.substationID, fidData.fid)));
+        return keys;
+    }
+
+    /**
+     * Removes all buffered data of a round
+     * @param substationID an identifier for the substation
+     * @param fid an identifier for the computation
+     * @return the data that was buffered for the round, paged in if it was spilled, or null if there was none
+     */
+    public Fid remove(int substationID, int fid) {
+        Fid removed = rounds.remove(key(substationID, fid));
+        if (removed != null) {
+            removed.pageIn();
+            removed.release();
+        }
+        return removed;
+    }
+
+    /**
+     * Moves the payloads of the rounds that have not received data for the spill store's idle time off-heap
+     * @param spillable decides which of the idle rounds may be spilled
+     * @return the number of rounds that were spilled
+     */
+    public int spillIdle(RoundFilter spillable) {
+        if (spillStore == null || !spillStore.isEnabled())
+            return 0;
+        long idleSince = System.nanoTime() - spillStore.getIdleNanos();
+        int[] spilled = new int[1];
+        rounds.forEach((key, fidData) -> {
+            if (fidData.lastUpdated - idleSince < 0 && !fidData.isSpilled() && spillable.test(fidData.substationID, fidData.fid) && fidData.spill())
+                spilled[0]++;
+        });
+        return spilled[0];
+    }
+
+    /**
+     * @return the number of participants buffered over all rounds
+     */
+    public int size() {
+        int[] participants = new int[1];
+        rounds.forEach((key, fidData) -> participants[0] += fidData.size());
+        return participants[0];
+    }
+
+    private static long key(int substationID, int fid) {
+        return ((long) substationID << 32) | (fid & 0xffffffffL);
+    }
+
+    /**
+     * The data of one round. Every participant has a slot: its id in {@code ids} and its payload fields in the
+     * columns. An open addressing index from id to slot makes lookups by id constant time.
+     * While the round is spilled the columns are null and the ids and index stay on the heap, so the round can
+     * still be checked for completeness without paging it in.
+     */
+    public static class Fid {
+
+        private static final int INITIAL_CAPACITY = 4;
+
+        private final Construction construction;
+        private final Class<? extends ComputationData> type;
+        private final PayloadLayout<ComputationData> layout;
+        private final int substationID, fid;
+        private final SpillStore spillStore;
+        private final BufferBudget budget;
+        private int[] ids;
+        //        the bytes each slot is charged to the budget
+        private long[] slotBytes;
+        private long bytes;
+        private Object[][] columns;
+        //        slot + 1 of the participant whose id hashes here, 0 marks an empty position
+        private int[] index;
+        private int size;
+        private long lastUpdated;
+        private ByteBuffer spilled;
+
+        private Fid(ComputationData first, SpillStore spillStore, BufferBudget budget) {
+            this.construction = first.getConstruction();
+            this.type = first.getClass();
+            this.layout = PayloadLayout.of(type);
+            this.substationID = first.getSubstationID();
+            this.fid = first.getFid();
+            this.spillStore = spillStore;
+            this.budget = budget;
+            this.ids = new int[INITIAL_CAPACITY];
+            this.slotBytes = new long[INITIAL_CAPACITY];
+            this.columns = new Object[layout.width()][INITIAL_CAPACITY];
+            this.index = new int[INITIAL_CAPACITY * 2];
+        }
+
+        public Construction getConstruction() {
+            return construction;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public boolean contains(int id) {
+            return slot(id) >= 0;
+        }
+
+        public boolean containsAll(Collection<Integer> ids) {
+            for (int id : ids)
+                if (!contains(id))
+                    return false;
+            return true;
+        }
+
+        /**
+         * @return the buffered data, rebuilt from the columns
+         */
+        public synchronized List<ComputationData> values() {
+            pageIn();
+            List<ComputationData> values = new ArrayList<>(size);
+            for (int slot = 0; slot < size; slot++)
+                values.add(layout.read(columns, slot, substationID, fid, ids[slot]));
+            return values;
+        }
+
+        /**
+         * Stores the data in the slot of its id, a participant that sends again replaces its earlier data
+         */
+        private synchronized void put(ComputationData data) {
+            if (data.getClass() != type)
+                throw new IllegalArgumentException("Round " + fid + " of substation " + substationID + " holds " + type.getSimpleName() + ", got " + data.getClass().getSimpleName());
+            int slot = slot(data.getId());
+            long dataBytes = 0;
+            if (budget != null) {
+                dataBytes = layout.bytes(data);
+                budget.charge(substationID, dataBytes - (slot < 0 ? 0 : slotBytes[slot]));
+            }
+            pageIn();
+            lastUpdated = System.nanoTime();
+            if (slot < 0) {
+                if (size == ids.length)
+                    grow();
+                slot = size++;
+                ids[slot] = data.getId();
+                insert(data.getId(), slot);
+            }
+            layout.write(data, columns, slot);
+            bytes += dataBytes - slotBytes[slot];
+            slotBytes[slot] = dataBytes;
+        }
+
+        /**
+         * Gives the bytes of the round back to the budget
+         */
+        private synchronized void release() {
+            if (budget != null && bytes > 0)
+                budget.release(substationID, bytes);
+            bytes = 0;
+        }
+
+        synchronized boolean isSpilled() {
+            return spilled != null;
+        }
+
+        /**
+         * @return true if the columns were moved off-heap, false if the spill store is full
+         */
+        private synchronized boolean spill() {
+            ByteBuffer buffer = spillStore.store(PayloadCodec.encode(columns, size));
+            if (buffer == null)
+                return false;
+            spilled = buffer;
+            columns = null;
+            return true;
+        }
+
+        private synchronized void pageIn() {
+            if (spilled == null)
+                return;
+            columns = PayloadCodec.decode(spilled, layout.width(), size, ids.length);
+            spillStore.release(spilled);
+            spilled = null;
+        }
+
+        private int slot(int id) {
+            int mask = index.length - 1;
+            for (int i = hash(id) & mask; index[i] != 0; i = (i + 1) & mask)
+                if (ids[index[i] - 1] == id)
+                    return index[i] - 1;
+            return -1;
+        }
+
+        private void insert(int id, int slot) {
+            int mask = index.length - 1;
+            int i = hash(id) & mask;
+            while (index[i] != 0)
+                i = (i + 1) & mask;
+            index[i] = slot + 1;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            slotBytes = Arrays.copyOf(slotBytes, capacity);
+            for (int field = 0; field < columns.length; field++)
+                columns[field] = Arrays.copyOf(columns[field], capacity);
+            index = new int[capacity * 2];
+            for (int slot = 0; slot < size; slot++)
+                insert(ids[slot], slot);
+        }
+
+        private static int hash(int id) {
+            return id * 0x9e3779b9;
+        }
+    }
+}
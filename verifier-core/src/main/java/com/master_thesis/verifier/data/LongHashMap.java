@@ -0,0 +1,137 @@
+package com.master_thesis.verifier.data;
+
+/**
+ * An open addressing hash map from primitive long keys to values, without boxed keys or entry objects.
+ * Collisions are resolved by linear probing and removal shifts the following entries back, so there are no tombstones.
+ * Null values are not supported, a null slot marks an empty position. Not thread safe.
+ * @param <V> the values
+ */
+class LongHashMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+
+    LongHashMap() {
+        keys = new long[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+    }
+
+    interface Visitor<V> {
+        void accept(long key, V value);
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(long key) {
+        int mask = keys.length - 1;
+        for (int i = index(key, mask); values[i] != null; i = (i + 1) & mask)
+            if (keys[i] == key)
+                return (V) values[i];
+        return null;
+    }
+
+    /**
+     * @return the previous value of the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    V put(long key, V value) {
+        if (value == null)
+            throw new IllegalArgumentException("LongHashMap does not store null values");
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                V previous = (V) values[i];
+                values[i] = value;
+                return previous;
+            }
+        }
+        keys[i] = key;
+        values[i] = value;
+//        Keep the load factor at or below one half so that probe sequences stay short
+        if (++size * 2 > keys.length)
+            resize(keys.length * 2);
+        return null;
+    }
+
+    /**
+     * @return the removed value, or null if the key was not present
+     */
+    @SuppressWarnings("unchecked")
+    V remove(long key) {
+        int mask = keys.length - 1;
+        int i = index(key, mask);
+        while (values[i] != null && keys[i] != key)
+            i = (i + 1) & mask;
+        if (values[i] == null)
+            return null;
+        V removed = (V) values[i];
+//        Shift back every following entry of the cluster that would no longer be reachable from its home position
+        int gap = i;
+        for (int j = (gap + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+            int home = index(keys[j], mask);
+            if (((j - home) & mask) >= ((j - gap) & mask)) {
+                keys[gap] = keys[j];
+                values[gap] = values[j];
+                gap = j;
+            }
+        }
+        values[gap] = null;
+        size--;
+        return removed;
+    }
+
+    @SuppressWarnings("unchecked")
+    void forEach(Visitor<V> visitor) {
+        for (int i = 0; i < keys.length; i++)
+            if (values[i] != null)
+                visitor.accept(keys[i], (V) values[i]);
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new long[capacity];
+        values = new Object[capacity];
+        int mask = capacity - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null)
+                continue;
+            int j = index(oldKeys[i], mask);
+            while (values[j] != null)
+                j = (j + 1) & mask;
+            keys[j] = oldKeys[i];
+            values[j] = oldValues[i];
+        }
+    }
+
+    /**
+     * The MurmurHash3 finalizer, so that keys that only differ in their high bits, such as one fid of different
+     * substations, still spread over the table
+     */
+    private static int index(long key, int mask) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> builder.append(builder.length() > 1 ? ", " : "").append(key).append('=').append(value));
+        return builder.append('}').toString();
+    }
+}
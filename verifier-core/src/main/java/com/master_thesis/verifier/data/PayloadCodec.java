@@ -0,0 +1,158 @@
+package com.master_thesis.verifier.data;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The binary layout of spilled payload columns, and of the payloads in record files.
+ * The cells are written column by column, each starting with a tag: a null, a big number as its length and two's
+ * complement bytes, or the proof map of an RSA server as its size followed by the client id and fields of every proof.
+ */
+class PayloadCodec {
+
+    private static final byte NULL = 0, NUMBER = 1, RSA_PROOFS = 2;
+
+    private PayloadCodec() {
+    }
+
+    static byte[] encode(Object[][] columns, int size) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            for (Object[] column : columns)
+                for (int slot = 0; slot < size; slot++)
+                    writeCell(out, column[slot]);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param capacity the length of the decoded columns, at least the number of encoded slots
+     */
+    static Object[][] decode(ByteBuffer encoded, int width, int size, int capacity) {
+        Object[][] columns = new Object[width][capacity];
+        try (DataInputStream in = new DataInputStream(new ByteBufferInputStream(encoded.duplicate()))) {
+            for (Object[] column : columns)
+                for (int slot = 0; slot < size; slot++)
+                    column[slot] = readCell(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return columns;
+    }
+
+    @SuppressWarnings("unchecked")
+    static void writeCell(DataOutputStream out, Object cell) throws IOException {
+        if (cell == null) {
+            out.writeByte(NULL);
+        } else if (cell instanceof BigInteger) {
+            out.writeByte(NUMBER);
+            writeNumber(out, (BigInteger) cell);
+        } else if (cell instanceof Map) {
+            out.writeByte(RSA_PROOFS);
+            Map<Integer, RSAServerData.ProofData> proofs = (Map<Integer, RSAServerData.ProofData>) cell;
+            out.writeInt(proofs.size());
+            for (Map.Entry<Integer, RSAServerData.ProofData> proof : proofs.entrySet()) {
+                out.writeInt(proof.getKey());
+                writeProof(out, proof.getValue());
+            }
+        } else {
+            throw new IllegalArgumentException("Cannot encode a " + cell.getClass().getSimpleName());
+        }
+    }
+
+    static Object readCell(DataInputStream in) throws IOException {
+        byte tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case NUMBER:
+                return readNumber(in);
+            case RSA_PROOFS:
+                int count = in.readInt();
+                Map<Integer, RSAServerData.ProofData> proofs = new HashMap<>();
+                for (int i = 0; i < count; i++)
+                    proofs.put(in.readInt(), readProof(in));
+                return proofs;
+            default:
+                throw new IOException("Unknown cell " + tag);
+        }
+    }
+
+    private static void writeProof(DataOutputStream out, RSAServerData.ProofData proof) throws IOException {
+        writeNumber(out, proof.getRsaN());
+        BigInteger[] components = proof.getRsaProofComponent();
+        out.writeInt(components == null ? -1 : components.length);
+        if (components != null)
+            for (BigInteger component : components)
+                writeNumber(out, component);
+        out.writeDouble(proof.getRsaDeterminant());
+        writeNumber(out, proof.getClientProof());
+        writeNumber(out, proof.getPublicKey());
+    }
+
+    private static RSAServerData.ProofData readProof(DataInputStream in) throws IOException {
+        RSAServerData.ProofData proof = new RSAServerData.ProofData();
+        proof.setRsaN(readNumber(in));
+        int length = in.readInt();
+        if (length >= 0) {
+            BigInteger[] components = new BigInteger[length];
+            for (int i = 0; i < length; i++)
+                components[i] = readNumber(in);
+            proof.setRsaProofComponent(components);
+        }
+        proof.setRsaDeterminant(in.readDouble());
+        proof.setClientProof(readNumber(in));
+        proof.setPublicKey(readNumber(in));
+        return proof;
+    }
+
+    /**
+     * A null number is written with length -1
+     */
+    private static void writeNumber(DataOutputStream out, BigInteger number) throws IOException {
+        if (number == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = number.toByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static BigInteger readNumber(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0)
+            return null;
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new BigInteger(bytes);
+    }
+
+    static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) {
+            if (!buffer.hasRemaining())
+                return -1;
+            int read = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, read);
+            return read;
+        }
+    }
+}
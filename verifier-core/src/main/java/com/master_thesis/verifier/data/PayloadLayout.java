@@ -0,0 +1,165 @@
+package com.master_thesis.verifier.data;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * The payload fields of a data type, i.e. everything but the construction, fid, substation and id.
+ * The {@link DataBuffer} stores one column per field and rebuilds the data objects when a round is verified.
+ * @param <T> the data type
+ */
+class PayloadLayout<T extends ComputationData> {
+
+    private static final Map<Class<?>, PayloadLayout<?>> LAYOUTS = new HashMap<>();
+    //    Object header and reference sizes of a 64 bit JVM with compressed references
+    private static final long OBJECT = 16, REFERENCE = 4;
+
+    static {
+        register(HashServerData.class, new PayloadLayout<>(HashServerData::new)
+                .field(HashServerData::getPartialProof, HashServerData::setPartialProof)
+                .field(HashServerData::getPartialResult, HashServerData::setPartialResult));
+        register(HashClientData.class, new PayloadLayout<>(HashClientData::new)
+                .field(HashClientData::getProofComponent, HashClientData::setProofComponent));
+        register(RSAServerData.class, new PayloadLayout<>(RSAServerData::new)
+                .field(RSAServerData::getPartialResult, RSAServerData::setPartialResult)
+                .field(RSAServerData::getPartialProofs, RSAServerData::setPartialProofs));
+        register(RSAClientData.class, new PayloadLayout<>(RSAClientData::new)
+                .field(RSAClientData::getProofComponent, RSAClientData::setProofComponent)
+                .field(RSAClientData::getPublicKey, RSAClientData::setPublicKey));
+        register(LinearServerData.class, new PayloadLayout<>(LinearServerData::new)
+                .field(LinearServerData::getPartialResult, LinearServerData::setPartialResult));
+        register(LinearClientData.class, new PayloadLayout<>(LinearClientData::new)
+                .field(LinearClientData::getFidPrime, LinearClientData::setFidPrime)
+                .field(LinearClientData::getsShare, LinearClientData::setsShare)
+                .field(LinearClientData::getX, LinearClientData::setX));
+        register(DPServerData.class, new PayloadLayout<>(DPServerData::new)
+                .field(DPServerData::getPartialProof, DPServerData::setPartialProof)
+                .field(DPServerData::getPartialResult, DPServerData::setPartialResult));
+        register(DPClientData.class, new PayloadLayout<>(DPClientData::new)
+                .field(DPClientData::getProofComponent, DPClientData::setProofComponent));
+    }
+
+    private final Supplier<T> factory;
+    private final List<Function<T, Object>> getters = new ArrayList<>();
+    private final List<BiConsumer<T, Object>> setters = new ArrayList<>();
+
+    private PayloadLayout(Supplier<T> factory) {
+        this.factory = factory;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the data type has no layout
+     */
+    @SuppressWarnings("unchecked")
+    static PayloadLayout<ComputationData> of(Class<? extends ComputationData> type) {
+        PayloadLayout<ComputationData> layout = (PayloadLayout<ComputationData>) LAYOUTS.get(type);
+        if (layout == null)
+            throw new IllegalArgumentException("No payload layout for " + type.getSimpleName());
+        return layout;
+    }
+
+    private static <T extends ComputationData> void register(Class<T> type, PayloadLayout<T> layout) {
+        LAYOUTS.put(type, layout);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <V> PayloadLayout<T> field(Function<T, V> getter, BiConsumer<T, V> setter) {
+        getters.add((Function<T, Object>) getter);
+        setters.add((BiConsumer<T, Object>) setter);
+        return this;
+    }
+
+    int width() {
+        return getters.size();
+    }
+
+    /**
+     * Copies the payload of the data into its slot of every column
+     */
+    void write(T data, Object[][] columns, int slot) {
+        for (int field = 0; field < getters.size(); field++)
+            columns[field][slot] = getters.get(field).apply(data);
+    }
+
+    /**
+     * @return an estimate of the heap the payload of the data takes in the columns, from the size of its numbers
+     */
+    long bytes(T data) {
+        long bytes = 0;
+        for (Function<T, Object> getter : getters)
+            bytes += REFERENCE + cellBytes(getter.apply(data));
+        return bytes;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static long cellBytes(Object cell) {
+        if (cell instanceof BigInteger)
+            return numberBytes((BigInteger) cell);
+        if (!(cell instanceof Map))
+            return 0;
+//        The proof data an RSA server sent for each of the clients
+        long bytes = OBJECT;
+        for (RSAServerData.ProofData proof : ((Map<Integer, RSAServerData.ProofData>) cell).values()) {
+            bytes += OBJECT + 3 * REFERENCE;
+            if (proof == null)
+                continue;
+            bytes += OBJECT + numberBytes(proof.getRsaN()) + numberBytes(proof.getClientProof()) + numberBytes(proof.getPublicKey());
+            if (proof.getRsaProofComponent() != null)
+                for (BigInteger component : proof.getRsaProofComponent())
+                    bytes += REFERENCE + numberBytes(component);
+        }
+        return bytes;
+    }
+
+    /**
+     * A BigInteger is an object with a few cached fields and the int array of its magnitude
+     */
+    private static long numberBytes(BigInteger number) {
+        if (number == null)
+            return 0;
+        return OBJECT + 4 * Integer.BYTES + OBJECT + Integer.BYTES * (long) ((number.bitLength() + 31) / 32);
+    }
+
+    /**
+     * Writes the payload of the data cell by cell, in the format of {@link PayloadCodec}
+     */
+    void writeTo(DataOutputStream out, T data) throws IOException {
+        for (Function<T, Object> getter : getters)
+            PayloadCodec.writeCell(out, getter.apply(data));
+    }
+
+    /**
+     * Builds a data object from a payload written by {@link #writeTo(DataOutputStream, ComputationData)}
+     */
+    T readFrom(DataInputStream in, int substationID, int fid, int id) throws IOException {
+        T data = factory.get();
+        data.setSubstationID(substationID);
+        data.setFid(fid);
+        data.setId(id);
+        for (BiConsumer<T, Object> setter : setters)
+            setter.accept(data, PayloadCodec.readCell(in));
+        return data;
+    }
+
+    /**
+     * Builds the data object of a slot
+     */
+    T read(Object[][] columns, int slot, int substationID, int fid, int id) {
+        T data = factory.get();
+        data.setSubstationID(substationID);
+        data.setFid(fid);
+        data.setId(id);
+        for (int field = 0; field < setters.size(); field++)
+            setters.get(field).accept(data, columns[field][slot]);
+        return data;
+    }
+}
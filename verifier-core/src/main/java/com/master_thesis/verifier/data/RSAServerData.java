@@ -3,6 +3,7 @@ package com.master_thesis.verifier.data;
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Map;
+import java.util.Objects;
 
 public class RSAServerData extends ComputationData {
 
@@ -87,6 +88,17 @@ public class RSAServerData extends ComputationData {
             this.publicKey = publicKey;
         }
 
+        /**
+         * @return true if the other server sent the same proof data, the public key is not part of it
+         */
+        public boolean matches(ProofData other) {
+            return other != null
+                    && Objects.equals(rsaN, other.rsaN)
+                    && Arrays.equals(rsaProofComponent, other.rsaProofComponent)
+                    && rsaDeterminant == other.rsaDeterminant
+                    && Objects.equals(clientProof, other.clientProof);
+        }
+
         @Override
         public String toString() {
             return "ProofData{" +
@@ -0,0 +1,108 @@
+package com.master_thesis.verifier.data;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * The binary format of recorded submissions: a header, then one record after the other until the end of the file.
+ * A record is the submission type's ordinal as a byte, the timestamp in milliseconds, the substation, fid and
+ * participant id, and the payload in the format of {@link PayloadCodec}. A file may be gzip compressed as a whole.
+ */
+public class RecordFile {
+
+    private static final int MAGIC = 0x56524543;
+    private static final short VERSION = 1;
+
+    private RecordFile() {
+    }
+
+    public static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    public static void write(DataOutputStream out, SubmissionRecord record) throws IOException {
+        ComputationData data = record.getData();
+        out.writeByte(record.getType().ordinal());
+        out.writeLong(record.getTimestampMillis());
+        out.writeInt(data.getSubstationID());
+        out.writeInt(data.getFid());
+        out.writeInt(data.getId());
+        PayloadLayout.of(record.getType().getType()).writeTo(out, data);
+    }
+
+    /**
+     * Opens a record file for reading. An uncompressed file is memory-mapped, a compressed one is decompressed
+     * while it is read, so neither is loaded into the heap as a whole.
+     * @throws IOException if the file cannot be read or is not a record file
+     */
+    public static Reader open(Path file) throws IOException {
+        InputStream in;
+        if (isCompressed(file)) {
+            in = new BufferedInputStream(new GZIPInputStream(Files.newInputStream(file), 1 << 16), 1 << 16);
+        } else {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+//                A mapping is limited to 2 GB, larger files are streamed instead
+                in = channel.size() <= Integer.MAX_VALUE
+                        ? new PayloadCodec.ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()))
+                        : new BufferedInputStream(Files.newInputStream(file), 1 << 16);
+            }
+        }
+        DataInputStream data = new DataInputStream(in);
+        try {
+            if (data.readInt() != MAGIC)
+                throw new IOException(file + " is not a record file");
+            short version = data.readShort();
+            if (version != VERSION)
+                throw new IOException(file + " has version " + version + ", expected " + VERSION);
+        } catch (IOException e) {
+            data.close();
+            throw e;
+        }
+        return new Reader(data);
+    }
+
+    private static boolean isCompressed(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return in.read() == 0x1f && in.read() == 0x8b;
+        }
+    }
+
+    public static class Reader implements Closeable {
+
+        private final DataInputStream in;
+
+        private Reader(DataInputStream in) {
+            this.in = in;
+        }
+
+        /**
+         * @return the next record, or null at the end of the file
+         * @throws IOException if the file cannot be read or ends within a record
+         */
+        public SubmissionRecord next() throws IOException {
+            int ordinal = in.read();
+            if (ordinal < 0)
+                return null;
+            SubmissionType type;
+            try {
+                type = SubmissionType.of(ordinal);
+            } catch (IllegalArgumentException e) {
+                throw new IOException(e.getMessage(), e);
+            }
+            long timestamp = in.readLong();
+            int substationID = in.readInt(), fid = in.readInt(), id = in.readInt();
+            ComputationData data = PayloadLayout.of(type.getType()).readFrom(in, substationID, fid, id);
+            return new SubmissionRecord(type, timestamp, data);
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
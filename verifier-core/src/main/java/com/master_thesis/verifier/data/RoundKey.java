@@ -0,0 +1,56 @@
+package com.master_thesis.verifier.data;
+
+import java.util.Objects;
+
+/**
+ * Identifies one computation round, i.e. one fid of one substation
+ */
+public class RoundKey {
+
+    private int substationID, fid;
+
+    public RoundKey() {
+    }
+
+    public RoundKey(int substationID, int fid) {
+        this.substationID = substationID;
+        this.fid = fid;
+    }
+
+    public int getSubstationID() {
+        return substationID;
+    }
+
+    public void setSubstationID(int substationID) {
+        this.substationID = substationID;
+    }
+
+    public int getFid() {
+        return fid;
+    }
+
+    public void setFid(int fid) {
+        this.fid = fid;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        RoundKey roundKey = (RoundKey) o;
+        return substationID == roundKey.substationID && fid == roundKey.fid;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(substationID, fid);
+    }
+
+    @Override
+    public String toString() {
+        return "RoundKey{" +
+                "substationID=" + substationID +
+                ", fid=" + fid +
+                '}';
+    }
+}
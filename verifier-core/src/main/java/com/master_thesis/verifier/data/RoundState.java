@@ -0,0 +1,9 @@
+package com.master_thesis.verifier.data;
+
+/**
+ * Where a complete round is in its verification, a round that is still collecting data has no state.
+ * A DEFERRED round is complete but waits until the node is no longer overloaded.
+ */
+public enum RoundState {
+    DEFERRED, VERIFYING, VERIFIED
+}
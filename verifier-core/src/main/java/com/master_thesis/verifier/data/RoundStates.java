@@ -0,0 +1,141 @@
+package com.master_thesis.verifier.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The states of the complete rounds, which decide whether a round still accepts data.
+ * So that the states do not grow with every round ever verified, only the newest verified rounds of each substation
+ * are kept. The older ones are folded into the substation's low-watermark: every round at or below it counts as
+ * verified, so its late submissions are still rejected.
+ * <p>
+ * The watermark never passes a round that is being verified or is deferred. It does pass a round that is still
+ * collecting, once that many newer rounds of its substation were verified: such a round is taken to be abandoned, the
+ * caller is told the new watermark by {@link #verified(int, int)} and releases the data buffered below it.
+ */
+public class RoundStates {
+
+    /**
+     * Returned by {@link #verified(int, int)} when the watermark of the substation did not move
+     */
+    public static final int UNCHANGED = Integer.MIN_VALUE;
+
+    private final Map<Long, RoundState> states = new ConcurrentHashMap<>();
+    private final Map<Integer, Substation> substations = new ConcurrentHashMap<>();
+    private final int retained;
+    private final int slack;
+
+    /**
+     * @param retained the number of verified rounds kept per substation above its watermark, zero keeps every round
+     */
+    public RoundStates(int retained) {
+        if (retained < 0)
+            throw new IllegalArgumentException("The number of retained rounds must be at least zero, got " + retained);
+        this.retained = retained;
+//        The watermark is moved in steps, so that the caller's cleanup below it runs once per step and not per round
+        this.slack = Math.max(1, retained / 4);
+    }
+
+    /**
+     * @return the state of the round, VERIFIED if it is at or below its substation's watermark, or null if it is
+     * still collecting
+     */
+    public RoundState get(int substationID, int fid) {
+        RoundState state = states.get(key(substationID, fid));
+        if (state != null)
+            return state;
+//        The watermark is raised before the states below it are removed, so a pruned round is never missed
+        Substation substation = substations.get(substationID);
+        return substation != null && fid <= substation.watermark ? RoundState.VERIFIED : null;
+    }
+
+    public boolean contains(int substationID, int fid) {
+        return get(substationID, fid) != null;
+    }
+
+    /**
+     * Moves a round that is still collecting to VERIFYING
+     * @return true for the one caller that claimed the round
+     */
+    public boolean claim(int substationID, int fid) {
+        Substation substation = substation(substationID);
+        synchronized (substation) {
+            if (fid <= substation.watermark || states.putIfAbsent(key(substationID, fid), RoundState.VERIFYING) != null)
+                return false;
+            substation.inFlight.add(fid);
+            return true;
+        }
+    }
+
+    /**
+     * Moves a round between DEFERRED and VERIFYING
+     * @return true if the round was in the expected state
+     */
+    public boolean replace(int substationID, int fid, RoundState expected, RoundState state) {
+        if (expected == RoundState.VERIFIED || state == RoundState.VERIFIED)
+            throw new IllegalArgumentException("A round is marked verified with verified(substationID, fid)");
+        return states.replace(key(substationID, fid), expected, state);
+    }
+
+    /**
+     * Marks a round VERIFIED, and moves the watermark of its substation once enough newer rounds were verified
+     * @return the new watermark of the substation, or {@link #UNCHANGED}
+     */
+    public int verified(int substationID, int fid) {
+        Substation substation = substation(substationID);
+        synchronized (substation) {
+            if (fid <= substation.watermark)
+                return UNCHANGED;
+            states.put(key(substationID, fid), RoundState.VERIFIED);
+            substation.inFlight.remove(fid);
+            substation.verified.add(fid);
+            if (retained == 0 || substation.verified.size() <= retained + slack)
+                return UNCHANGED;
+            int limit = substation.inFlight.isEmpty() ? Integer.MAX_VALUE : substation.inFlight.first() - 1;
+            List<Integer> pruned = new ArrayList<>();
+            while (substation.verified.size() > retained && substation.verified.first() <= limit)
+                pruned.add(substation.verified.pollFirst());
+            if (pruned.isEmpty())
+                return UNCHANGED;
+            int watermark = pruned.get(pruned.size() - 1);
+            substation.watermark = watermark;
+            pruned.forEach(prunedFid -> states.remove(key(substationID, prunedFid)));
+            return watermark;
+        }
+    }
+
+    /**
+     * @return the number of states held, the rounds folded into the watermarks are not counted
+     */
+    public int size() {
+        return states.size();
+    }
+
+    /**
+     * @return the watermark of the substation, or {@link #UNCHANGED} if none of its rounds was pruned yet
+     */
+    public int getWatermark(int substationID) {
+        Substation substation = substations.get(substationID);
+        return substation == null ? UNCHANGED : substation.watermark;
+    }
+
+    private Substation substation(int substationID) {
+        return substations.computeIfAbsent(substationID, id -> new Substation());
+    }
+
+    private static long key(int substationID, int fid) {
+        return ((long) substationID << 32) | (fid & 0xffffffffL);
+    }
+
+    /**
+     * The verified rounds above the watermark and the rounds being verified or deferred, of one substation
+     */
+    private static class Substation {
+        private final TreeSet<Integer> verified = new TreeSet<>();
+        private final TreeSet<Integer> inFlight = new TreeSet<>();
+        private volatile int watermark = UNCHANGED;
+    }
+}
@@ -0,0 +1,108 @@
+package com.master_thesis.verifier.data;
+
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Off-heap memory for the payloads of rounds that have been idle for a while.
+ * A {@link DataBuffer} moves the payload columns of such a round into a direct buffer, so the big numbers of late or
+ * partial substations leave the heap, and pages them back in when the round receives data or is read.
+ * The store is bounded, a round that does not fit stays on the heap.
+ * <p>
+ * With an idle time of zero nothing is spilled.
+ */
+public class SpillStore {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(SpillStore.class);
+
+    private final long idleNanos;
+    private final long maxBytes;
+    private final AtomicLong usedBytes = new AtomicLong();
+    private final ScheduledExecutorService timer;
+
+    /**
+     * @param idleMs how many milliseconds a round has to go without data before it is spilled, zero disables spilling
+     * @param maxMb the off-heap memory the store may use, in megabytes
+     */
+    public SpillStore(long idleMs, long maxMb) {
+        this(Duration.ofMillis(idleMs), maxMb * 1024 * 1024);
+    }
+
+    /**
+     * @param idle how long a round has to go without data before it is spilled, zero disables spilling
+     * @param maxBytes the off-heap memory the store may use
+     */
+    public SpillStore(Duration idle, long maxBytes) {
+        this.idleNanos = idle.toNanos();
+        this.maxBytes = maxBytes;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "verifier-spill");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (isEnabled())
+            log.info("Spilling rounds idle for {} ms to at most {} MB off-heap", idle.toMillis(), maxBytes / (1024 * 1024));
+    }
+
+    public boolean isEnabled() {
+        return idleNanos > 0;
+    }
+
+    public long getIdleNanos() {
+        return idleNanos;
+    }
+
+    /**
+     * @return the off-heap memory in use
+     */
+    public long getUsedBytes() {
+        return usedBytes.get();
+    }
+
+    /**
+     * Runs the task every half idle time, if spilling is enabled
+     */
+    public void every(Runnable task) {
+        if (!isEnabled())
+            return;
+        long period = Math.max(idleNanos / 2, TimeUnit.MILLISECONDS.toNanos(10));
+        timer.scheduleWithFixedDelay(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                log.error("Spilling failed: {}", e.toString());
+            }
+        }, period, period, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the bytes in a direct buffer, or null if the store is full
+     */
+    ByteBuffer store(byte[] bytes) {
+        if (usedBytes.addAndGet(bytes.length) > maxBytes) {
+            usedBytes.addAndGet(-bytes.length);
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length);
+        buffer.put(bytes).flip();
+        return buffer;
+    }
+
+    /**
+     * Returns the memory of a paged in buffer to the budget, the buffer itself is freed with its last reference
+     */
+    void release(ByteBuffer buffer) {
+        usedBytes.addAndGet(-buffer.capacity());
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+}
@@ -0,0 +1,46 @@
+package com.master_thesis.verifier.data;
+
+/**
+ * One recorded submission: the data, the endpoint it was sent to and when it was accepted
+ */
+public class SubmissionRecord {
+
+    private final SubmissionType type;
+    private final long timestampMillis;
+    private final ComputationData data;
+
+    public SubmissionRecord(long timestampMillis, ComputationData data) {
+        this(SubmissionType.of(data), timestampMillis, data);
+    }
+
+    SubmissionRecord(SubmissionType type, long timestampMillis, ComputationData data) {
+        this.type = type;
+        this.timestampMillis = timestampMillis;
+        this.data = data;
+    }
+
+    public SubmissionType getType() {
+        return type;
+    }
+
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    public ComputationData getData() {
+        return data;
+    }
+
+    public boolean isFromServer() {
+        return type.isFromServer();
+    }
+
+    @Override
+    public String toString() {
+        return "SubmissionRecord{" +
+                "type=" + type +
+                ", timestampMillis=" + timestampMillis +
+                ", data=" + data +
+                '}';
+    }
+}
@@ -0,0 +1,60 @@
+package com.master_thesis.verifier.data;
+
+/**
+ * The kinds of submission the verifier accepts, one per ingestion endpoint
+ */
+public enum SubmissionType {
+
+    HASH_SERVER("/api/server/hash-data", HashServerData.class, true),
+    HASH_CLIENT("/api/client/hash-data", HashClientData.class, false),
+    RSA_SERVER("/api/server/rsa-data", RSAServerData.class, true),
+    RSA_CLIENT("/api/client/rsa-data", RSAClientData.class, false),
+    LINEAR_SERVER("/api/server/linear-data", LinearServerData.class, true),
+    LINEAR_CLIENT("/api/client/linear-data", LinearClientData.class, false),
+    DP_SERVER("/api/server/dp-data", DPServerData.class, true),
+    DP_CLIENT("/api/client/dp-data", DPClientData.class, false);
+
+    private static final SubmissionType[] VALUES = values();
+
+    private final String path;
+    private final Class<? extends ComputationData> type;
+    private final boolean fromServer;
+
+    SubmissionType(String path, Class<? extends ComputationData> type, boolean fromServer) {
+        this.path = path;
+        this.type = type;
+        this.fromServer = fromServer;
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public Class<? extends ComputationData> getType() {
+        return type;
+    }
+
+    public boolean isFromServer() {
+        return fromServer;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the data is of no known type
+     */
+    public static SubmissionType of(ComputationData data) {
+        for (SubmissionType submissionType : VALUES)
+            if (submissionType.type == data.getClass())
+                return submissionType;
+        throw new IllegalArgumentException("No submission type for " + data.getClass().getSimpleName());
+    }
+
+    /**
+     * @return the type with the given ordinal, as written in record files
+     * @throws IllegalArgumentException if there is none
+     */
+    public static SubmissionType of(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length)
+            throw new IllegalArgumentException("Unknown submission type " + ordinal);
+        return VALUES[ordinal];
+    }
+}
@@ -0,0 +1,130 @@
+package com.master_thesis.verifier.data;
+
+import java.math.BigInteger;
+import java.util.concurrent.TimeUnit;
+
+public class VerificationResult {
+
+    private final Construction construction;
+    private final int substationID, fid;
+    private final BigInteger result;
+    private final boolean valid, deferred;
+    private final long verifiedAt, queuedMicros, verificationMicros;
+    private final String error;
+
+    public VerificationResult(Construction construction, int substationID, int fid, BigInteger result, boolean valid) {
+        this(construction, substationID, fid, result, valid, System.currentTimeMillis(), 0, 0);
+    }
+
+    /**
+     * @param verifiedAt the time the verification finished, in milliseconds since the epoch
+     * @param queuedMicros how long the complete round waited for its verification to start
+     * @param verificationMicros how long the verification took
+     */
+    public VerificationResult(Construction construction, int substationID, int fid, BigInteger result, boolean valid, long verifiedAt, long queuedMicros, long verificationMicros) {
+        this(construction, substationID, fid, result, valid, false, verifiedAt, queuedMicros, verificationMicros);
+    }
+
+    /**
+     * @param deferred true if the round's result is only checked when its window closes, it is not valid until then
+     */
+    public VerificationResult(Construction construction, int substationID, int fid, BigInteger result, boolean valid, boolean deferred, long verifiedAt, long queuedMicros, long verificationMicros) {
+        this(construction, substationID, fid, result, valid, deferred, verifiedAt, queuedMicros, verificationMicros, null);
+    }
+
+    private VerificationResult(Construction construction, int substationID, int fid, BigInteger result, boolean valid, boolean deferred, long verifiedAt, long queuedMicros, long verificationMicros, String error) {
+        this.construction = construction;
+        this.substationID = substationID;
+        this.fid = fid;
+        this.result = result;
+        this.valid = valid;
+        this.deferred = deferred;
+        this.verifiedAt = verifiedAt;
+        this.queuedMicros = queuedMicros;
+        this.verificationMicros = verificationMicros;
+        this.error = error;
+    }
+
+    /**
+     * @param error why the round could not be verified
+     * @return the outcome of a round whose verification failed, it is not valid and has no result
+     */
+    public static VerificationResult failed(Construction construction, int substationID, int fid, String error) {
+        return new VerificationResult(construction, substationID, fid, null, false, false, System.currentTimeMillis(), 0, 0, error);
+    }
+
+    /**
+     * @return this outcome with the time it was verified now, after waiting and taking the given times
+     */
+    public VerificationResult withTimings(long queuedNanos, long verificationNanos) {
+        return new VerificationResult(construction, substationID, fid, result, valid, deferred, System.currentTimeMillis(),
+                TimeUnit.NANOSECONDS.toMicros(queuedNanos), TimeUnit.NANOSECONDS.toMicros(verificationNanos), error);
+    }
+
+    /**
+     * @return this outcome, not yet valid, for a round that is only checked when its window closes. It is not
+     * published, the window publishes the round's outcome once it was checked.
+     */
+    public VerificationResult deferred() {
+        return new VerificationResult(construction, substationID, fid, result, false, true, verifiedAt, queuedMicros, verificationMicros);
+    }
+
+    public Construction getConstruction() {
+        return construction;
+    }
+
+    public int getSubstationID() {
+        return substationID;
+    }
+
+    public int getFid() {
+        return fid;
+    }
+
+    public BigInteger getResult() {
+        return result;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    public long getVerifiedAt() {
+        return verifiedAt;
+    }
+
+    public long getQueuedMicros() {
+        return queuedMicros;
+    }
+
+    public long getVerificationMicros() {
+        return verificationMicros;
+    }
+
+    /**
+     * @return why the round could not be verified, or null if it was verified
+     */
+    public String getError() {
+        return error;
+    }
+
+    @Override
+    public String toString() {
+        return "VerificationResult{" +
+                "construction=" + construction +
+                ", substationID=" + substationID +
+                ", fid=" + fid +
+                ", result=" + result +
+                ", valid=" + valid +
+                ", deferred=" + deferred +
+                ", verifiedAt=" + verifiedAt +
+                ", queuedMicros=" + queuedMicros +
+                ", verificationMicros=" + verificationMicros +
+                ", error=" + error +
+                '}';
+    }
+}
@@ -0,0 +1,121 @@
+package com.master_thesis.verifier.utils;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.data.Construction;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.stream.Collectors;
+
+/**
+ * The audit trail of the verified rounds, kept apart from the application's log.
+ * <ul>
+ *     <li>com.master_thesis.verifier.audit.rounds: one INFO line for a sample of the valid rounds</li>
+ *     <li>com.master_thesis.verifier.audit.failures: a full WARN record of every invalid round and of every mismatch
+ *     found by a construction, with all the numbers that went into the check</li>
+ *     <li>com.master_thesis.verifier.audit.deferred: an INFO line for every round that was not verified at once
+ *     because the node was overloaded, and another once it is verified after all</li>
+ * </ul>
+ * Numbers are written in hex, which is linear in their length unlike decimal, and only once a record is written.
+ * The appenders, one asynchronous and bounded for the rounds and one file each for the failures and the deferred
+ * rounds, are set up in logback.xml.
+ */
+public class AuditLog {
+
+    private static final Logger rounds = (Logger) LoggerFactory.getLogger("com.master_thesis.verifier.audit.rounds");
+    private static final Logger failures = (Logger) LoggerFactory.getLogger("com.master_thesis.verifier.audit.failures");
+    private static final Logger deferred = (Logger) LoggerFactory.getLogger("com.master_thesis.verifier.audit.deferred");
+
+    private static volatile double sampleRate = 0.01;
+
+    private AuditLog() {
+    }
+
+    /**
+     * @param rate the share of the valid rounds that are written, between 0 and 1
+     */
+    public static void setSampleRate(double rate) {
+        if (rate < 0 || rate > 1)
+            throw new IllegalArgumentException("The audit sample rate must be between 0 and 1, got " + rate);
+        sampleRate = rate;
+    }
+
+    public static double getSampleRate() {
+        return sampleRate;
+    }
+
+    /**
+     * Records the outcome of a round: a sampled line if it is valid, a full record if not
+     * @param details names and values of the numbers that went into the check, in pairs
+     */
+    public static void verified(Construction construction, int substationID, int fid, BigInteger result, boolean valid, Object... details) {
+        if (valid) {
+            if (rounds.isInfoEnabled() && ThreadLocalRandom.current().nextDouble() < sampleRate)
+                rounds.info("[FID {}] {}: substation:{} result:{} valid", fid, construction, substationID, hex(result));
+            return;
+        }
+        if (failures.isWarnEnabled())
+            failures.warn(record("[FID " + fid + "] " + construction + ": substation:" + substationID + " result:" + hex(result) + " INVALID", details));
+    }
+
+    /**
+     * Records a check of a construction that did not hold, with the numbers that were compared
+     * @param details names and values, in pairs
+     */
+    public static void mismatch(String check, Object... details) {
+        if (failures.isWarnEnabled())
+            failures.warn(record(check, details));
+    }
+
+    /**
+     * Records a round that was not verified at once
+     * @param rate the share of its substation's rounds that were verified at once when it was deferred
+     */
+    public static void deferred(Construction construction, int substationID, int fid, double rate) {
+        if (deferred.isInfoEnabled())
+            deferred.info("[FID {}] {}: substation:{} deferred at rate {}", fid, construction, substationID, String.format("%.3f", rate));
+    }
+
+    /**
+     * Records that a deferred round is being verified after all
+     */
+    public static void redriven(Construction construction, int substationID, int fid) {
+        if (deferred.isInfoEnabled())
+            deferred.info("[FID {}] {}: substation:{} verifying", fid, construction, substationID);
+    }
+
+    /**
+     * @return the value, formatted in hex only when it is written
+     */
+    public static Object hex(BigInteger value) {
+        return new Object() {
+            @Override
+            public String toString() {
+                return value == null ? "null" : (value.signum() < 0 ? "-0x" + value.negate().toString(16) : "0x" + value.toString(16));
+            }
+        };
+    }
+
+    private static String record(String headline, Object... details) {
+        StringBuilder record = new StringBuilder(headline);
+        for (int i = 0; i + 1 < details.length; i += 2) {
+            Object value = details[i + 1];
+            record.append(System.lineSeparator()).append("    ").append(details[i]).append(": ")
+                    .append(format(value));
+        }
+        return record.toString();
+    }
+
+    private static Object format(Object value) {
+        if (value instanceof BigInteger)
+            return hex((BigInteger) value);
+        if (value instanceof BigInteger[])
+            value = Arrays.asList((BigInteger[]) value);
+        if (value instanceof Collection)
+            return ((Collection<?>) value).stream().map(AuditLog::format).map(String::valueOf).collect(Collectors.joining(", ", "[", "]"));
+        return value;
+    }
+}
@@ -0,0 +1,107 @@
+package com.master_thesis.verifier.utils;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent single lookups into bulk lookups.
+ * A lookup waits at most one window for others to join its batch, a full batch is sent at once.
+ * Concurrent lookups of the same key share one result.
+ * @param <K> the key of a lookup
+ * @param <V> the value of a lookup
+ */
+public class BatchingLookup<K, V> implements AutoCloseable {
+
+    private final Function<List<K>, Map<K, V>> bulkLookup;
+    private final Executor executor;
+    private final long windowNanos;
+    private final int maxBatchSize;
+    private final ScheduledExecutorService timer;
+
+    private Map<K, CompletableFuture<V>> batch = new LinkedHashMap<>();
+    private long generation;
+
+    /**
+     * @param bulkLookup looks up all keys of a batch in one call, keys missing from the result fail their lookup
+     * @param executor runs the bulk lookups
+     * @param window how long the first lookup of a batch waits for others
+     * @param maxBatchSize the number of keys that triggers a bulk lookup before the window has passed
+     */
+    public BatchingLookup(Function<List<K>, Map<K, V>> bulkLookup, Executor executor, Duration window, int maxBatchSize) {
+        this.bulkLookup = bulkLookup;
+        this.executor = executor;
+        this.windowNanos = window.toNanos();
+        this.maxBatchSize = maxBatchSize;
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "verifier-batching-lookup");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public CompletableFuture<V> get(K key) {
+        Map<K, CompletableFuture<V>> full = null;
+        CompletableFuture<V> value;
+        synchronized (this) {
+            value = batch.get(key);
+            if (value != null)
+                return value;
+            value = new CompletableFuture<>();
+            if (batch.isEmpty()) {
+                long batchGeneration = generation;
+                timer.schedule(() -> flush(batchGeneration), windowNanos, TimeUnit.NANOSECONDS);
+            }
+            batch.put(key, value);
+            if (batch.size() >= maxBatchSize)
+                full = take();
+        }
+        if (full != null)
+            lookup(full);
+        return value;
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+    }
+
+    private void flush(long batchGeneration) {
+        Map<K, CompletableFuture<V>> expired;
+        synchronized (this) {
+//            The batch this timer was started for has already been sent because it was full
+            if (batchGeneration != generation || batch.isEmpty())
+                return;
+            expired = take();
+        }
+        lookup(expired);
+    }
+
+    private Map<K, CompletableFuture<V>> take() {
+        Map<K, CompletableFuture<V>> taken = batch;
+        batch = new LinkedHashMap<>();
+        generation++;
+        return taken;
+    }
+
+    private void lookup(Map<K, CompletableFuture<V>> lookups) {
+        try {
+            executor.execute(() -> {
+                try {
+                    Map<K, V> values = bulkLookup.apply(new ArrayList<>(lookups.keySet()));
+                    lookups.forEach((key, value) -> {
+                        if (values.containsKey(key))
+                            value.complete(values.get(key));
+                        else
+                            value.completeExceptionally(new NoSuchElementException("No value for " + key));
+                    });
+                } catch (RuntimeException e) {
+                    lookups.values().forEach(value -> value.completeExceptionally(e));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            lookups.values().forEach(value -> value.completeExceptionally(e));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.master_thesis.verifier.utils;
+
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Stops calling a service that keeps failing.
+ * After a number of failures in a row the circuit opens and calls fail at once. Once it has been open for a while a
+ * single trial call is let through: if it succeeds the circuit closes, if it fails the circuit opens again.
+ * Listeners are told whenever calls may go through again, so that work held back after a failed call can be retried:
+ * when the circuit lets a trial call through or closes, when a call succeeds after failures, and after a failure that
+ * left the circuit closed, once a backoff has passed that doubles with every failure in a row.
+ */
+public class CircuitBreaker {
+
+    private final static Logger log = (Logger) LoggerFactory.getLogger(CircuitBreaker.class);
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final int failureThreshold;
+    private final long openNanos;
+    private final long retryNanos;
+    private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService timer;
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+    private boolean retryScheduled;
+
+    /**
+     * @param name identifies the service in the log
+     * @param failureThreshold the number of failures in a row that opens the circuit, zero never opens it
+     * @param openFor how long the circuit stays open before a trial call is let through
+     */
+    public CircuitBreaker(String name, int failureThreshold, Duration openFor) {
+        this(name, failureThreshold, openFor, Duration.ofMillis(100));
+    }
+
+    /**
+     * @param retryAfter how long after the first of failures that leave the circuit closed the listeners are told, the
+     *                   wait doubles with every further failure in a row up to openFor
+     */
+    public CircuitBreaker(String name, int failureThreshold, Duration openFor, Duration retryAfter) {
+        if (failureThreshold < 0 || openFor.isNegative() || retryAfter.isNegative())
+            throw new IllegalArgumentException("A circuit breaker needs a threshold, an open time and a retry time of at least zero, got " + failureThreshold + ", " + openFor + " and " + retryAfter);
+        this.name = name;
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openFor.toNanos();
+        this.retryNanos = retryAfter.toNanos();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "verifier-circuit-breaker");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return true if the call may go through, it must then report its outcome with onSuccess or onFailure
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN && System.nanoTime() - openedAt >= openNanos)
+            state = State.HALF_OPEN;
+        switch (state) {
+            case CLOSED:
+                return true;
+            case HALF_OPEN:
+                if (trialInFlight)
+                    return false;
+                trialInFlight = true;
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    public void onSuccess() {
+        boolean closed, recovered;
+        synchronized (this) {
+            closed = state != State.CLOSED;
+            recovered = closed || failures > 0;
+            state = State.CLOSED;
+            failures = 0;
+            trialInFlight = false;
+        }
+        if (closed)
+            log.info("The circuit to {} is closed again", name);
+        if (recovered)
+            timer.execute(this::notifyListeners);
+    }
+
+    public void onFailure() {
+        long retryIn;
+        synchronized (this) {
+            trialInFlight = false;
+            if (state == State.OPEN)
+                return;
+            if (state == State.CLOSED && failures < Integer.MAX_VALUE)
+                failures++;
+            if (state == State.CLOSED && (failureThreshold == 0 || failures < failureThreshold)) {
+//                The circuit stays closed, so no state change would tell the listeners to retry what failed
+                if (retryScheduled)
+                    return;
+                retryScheduled = true;
+                retryIn = Math.min(retryNanos << Math.min(failures - 1, 20), Math.max(openNanos, retryNanos));
+            } else {
+                state = State.OPEN;
+                openedAt = System.nanoTime();
+                retryIn = -1;
+            }
+        }
+        if (retryIn >= 0) {
+            timer.schedule(this::retryPeriodOver, retryIn, TimeUnit.NANOSECONDS);
+            return;
+        }
+        log.warn("The circuit to {} is open, calls fail at once for {} ms", name, TimeUnit.NANOSECONDS.toMillis(openNanos));
+        timer.schedule(this::openPeriodOver, openNanos, TimeUnit.NANOSECONDS);
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Registers a listener that is called when the circuit lets a trial call through after being open, when it
+     * closes or a call succeeds after failures, and after the backoff of a failure that left it closed. Called on the
+     * breaker's timer thread.
+     */
+    public void whenCallsPermitted(Runnable listener) {
+        listeners.add(listener);
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void openPeriodOver() {
+        synchronized (this) {
+            if (state != State.OPEN || System.nanoTime() - openedAt < openNanos)
+                return;
+            state = State.HALF_OPEN;
+        }
+        notifyListeners();
+    }
+
+    private void retryPeriodOver() {
+        synchronized (this) {
+            retryScheduled = false;
+//            An open circuit tells the listeners once its open period is over
+            if (state != State.CLOSED)
+                return;
+        }
+        notifyListeners();
+    }
+
+    private void notifyListeners() {
+        for (Runnable listener : listeners) {
+            try {
+                listener.run();
+            } catch (RuntimeException e) {
+                log.error("A listener of the circuit to {} failed: {}", name, e.toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,351 @@
+package com.master_thesis.verifier.utils;
+
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.LinearPublicData;
+import com.master_thesis.verifier.data.RoundKey;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Looks up the public parameters of the rounds at the trusted third-party, spread over its replicas by a
+ * {@link ReplicaBalancer}. Every call gives up after a timeout. A GET that has not been answered after the hedge delay is sent a second time
+ * to another replica and the first answer wins, which cuts the tail latency of the lookups, they are all idempotent. Calls that time out
+ * or fail open a {@link CircuitBreaker}, while it is open the calls fail at once with {@link UnavailableException}
+ * instead of tying up threads.
+ */
+public class PublicParameters {
+
+    private final static Logger log = (Logger) LoggerFactory.getLogger(PublicParameters.class);
+    private static ObjectMapper objectMapper = new ObjectMapper();
+    private final ReplicaBalancer replicas;
+    private final HttpClient httpClient;
+    private final Duration timeout;
+    private final long hedgeNanos;
+    private final CircuitBreaker breaker;
+    private final LongAdder hedges = new LongAdder();
+    private final BatchingLookup<RoundKey, BigInteger> lastClientProofs, rns;
+    private final BatchingLookup<RoundKey, List<Integer>> clientLists;
+
+    /**
+     * The trusted third-party could not be asked: it did not answer in time, could not be reached, answered with a
+     * server error, or its circuit is open. The lookup may succeed later.
+     */
+    public static class UnavailableException extends RuntimeException {
+        public UnavailableException(String message, Throwable cause) {
+            super(message, cause);
+        }
+    }
+
+    /**
+     * @param replicas the replicas of the trusted third-party
+     * @param bulk whether the lookups of concurrent rounds are coalesced into the trusted third-party's bulk endpoints
+     * @param bulkWindow how many milliseconds a lookup waits for others to join its bulk call
+     * @param bulkMaxSize the number of rounds that triggers a bulk call at once
+     * @param io runs the bulk calls
+     * @param timeout how long a call waits for its answer
+     * @param hedgeDelay how long a GET waits before it is sent a second time, zero never sends it twice
+     * @param breaker guards the calls
+     * @param healthCheckInterval the time between two health checks of every replica, zero never checks
+     */
+    public PublicParameters(ReplicaBalancer replicas,
+                            boolean bulk,
+                            long bulkWindow,
+                            int bulkMaxSize,
+                            Executor io,
+                            Duration timeout,
+                            Duration hedgeDelay,
+                            CircuitBreaker breaker,
+                            Duration healthCheckInterval) {
+        this.replicas = replicas;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(timeout).build();
+        this.timeout = timeout;
+        this.hedgeNanos = hedgeDelay.toNanos();
+        this.breaker = breaker;
+        Duration window = Duration.ofMillis(bulkWindow);
+        this.lastClientProofs = bulk ? new BatchingLookup<>(this::getLastClientProofs, io, window, bulkMaxSize) : null;
+        this.rns = bulk ? new BatchingLookup<>(this::getRns, io, window, bulkMaxSize) : null;
+        this.clientLists = bulk ? new BatchingLookup<>(this::getClients, io, window, bulkMaxSize) : null;
+        replicas.healthCheck(this::answers, healthCheckInterval);
+    }
+
+    /**
+     * Starts fetching, in the background, the parameters that a round of the given construction will need
+     * @param construction the construction of the round
+     * @param substationID an identifier for the substation in use
+     * @param fid an identifier for the computation
+     * @param executor runs the lookups
+     * @return the parameters, held with the round until it is verified
+     */
+    public RoundParameters prefetch(Construction construction, int substationID, int fid, Executor executor) {
+        boolean usesHash = construction != Construction.LINEAR;
+        boolean usesLinear = construction == Construction.LINEAR;
+        RoundKey round = new RoundKey(substationID, fid);
+        return new RoundParameters(
+                prefetched(this::getServers, true, null, round, executor),
+                prefetched(() -> getClients(substationID, fid), true, clientLists, round, executor),
+                prefetched(() -> getLastClientProof(substationID, fid), usesHash, lastClientProofs, round, executor),
+                prefetched(() -> getFieldBase(substationID), usesHash, null, round, executor),
+                prefetched(() -> getGenerator(substationID), usesHash, null, round, executor),
+                prefetched(() -> getRn(substationID, fid), usesLinear, rns, round, executor),
+                prefetched(() -> getLinearPublicData(substationID, fid), usesLinear, null, round, executor));
+    }
+
+    /**
+     * @param lookup the single lookup of the parameter
+     * @param used whether the round needs the parameter, otherwise it is only looked up if asked for
+     * @param batching coalesces the lookup with those of other rounds, or null to look it up on its own
+     */
+    private <T> RoundParameters.Prefetched<T> prefetched(Supplier<T> lookup, boolean used, BatchingLookup<RoundKey, T> batching, RoundKey round, Executor executor) {
+        if (!used)
+            return new RoundParameters.Prefetched<>(lookup, null);
+        if (batching != null)
+            return new RoundParameters.Prefetched<>(lookup, batching.get(round));
+        return new RoundParameters.Prefetched<>(lookup, CompletableFuture.supplyAsync(lookup, executor));
+    }
+
+    public void shutdown() {
+        Stream.of(lastClientProofs, rns, clientLists).filter(Objects::nonNull).forEach(BatchingLookup::close);
+    }
+
+    public List<Integer> getServers() {
+        return read(get("/api/server/list/ids"), new TypeReference<>() {
+        });
+    }
+
+    public BigInteger getFieldBase(int substationID) {
+        return new BigInteger(get("/api/setup/fieldBase/" + substationID));
+    }
+
+    public BigInteger getGenerator(int substationID) {
+        return new BigInteger(get("/api/setup/generator/" + substationID));
+    }
+
+    public BigInteger getLastClientProof(int substationID, int fid) {
+        return new BigInteger(get(String.format("/lastClient/%d/%d/computeLastTau", substationID, fid)));
+    }
+
+    public LinearPublicData getLinearPublicData(int substationID, int fid) {
+        return read(get(String.format("/api/linear-data/public/%d/%d", substationID, fid)), new TypeReference<>() {
+        });
+    }
+
+    public BigInteger getRn(int substationID, int fid) {
+        String body = get(String.format("/api/linear-data/rn/%d/%d", substationID, fid));
+        try{
+            return new BigInteger(body);
+        } catch (NumberFormatException e) {
+            log.error("Could not parse BigInteger from response: {}", body);
+            throw e;
+        }
+
+    }
+
+    public List<Integer> getClients(int substationID, int fid) {
+        return read(get("/api/client/list/" + substationID + "/" + fid), new TypeReference<>() {
+        });
+    }
+
+    /**
+     * Bulk variant of {@link #getLastClientProof(int, int)}
+     * @param rounds the rounds to look up
+     * @return the last client proof of each round
+     */
+    public Map<RoundKey, BigInteger> getLastClientProofs(List<RoundKey> rounds) {
+        return bulk("/api/bulk/lastClient/computeLastTau", rounds, new TypeReference<>() {
+        });
+    }
+
+    /**
+     * Bulk variant of {@link #getRn(int, int)}
+     * @param rounds the rounds to look up
+     * @return Rn of each round
+     */
+    public Map<RoundKey, BigInteger> getRns(List<RoundKey> rounds) {
+        return bulk("/api/bulk/linear-data/rn", rounds, new TypeReference<>() {
+        });
+    }
+
+    /**
+     * Bulk variant of {@link #getClients(int, int)}
+     * @param rounds the rounds to look up
+     * @return the client IDs of each round
+     */
+    public Map<RoundKey, List<Integer>> getClients(List<RoundKey> rounds) {
+        return bulk("/api/bulk/client/list", rounds, new TypeReference<>() {
+        });
+    }
+
+    /**
+     * Posts the rounds to a bulk endpoint, which answers with one value per round in the same order
+     */
+    private <V> Map<RoundKey, V> bulk(String path, List<RoundKey> rounds, TypeReference<List<V>> type) {
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(rounds);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Could not write the rounds " + rounds, e);
+        }
+        Function<String, HttpRequest> request = url -> HttpRequest.newBuilder(URI.create(url + path))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build();
+        List<V> values = read(send(path, () -> attempt(replicas.acquire(null), request)), type);
+        if (values.size() != rounds.size())
+            throw new IllegalStateException(String.format("Asked %s for %d rounds but got %d values", path, rounds.size(), values.size()));
+        Map<RoundKey, V> result = new HashMap<>();
+        for (int i = 0; i < rounds.size(); i++)
+            result.put(rounds.get(i), values.get(i));
+        return result;
+    }
+
+    /**
+     * Registers a listener that is called when the trusted third-party may be asked again after a call failed, whether
+     * or not its circuit opened
+     */
+    public void whenAvailable(Runnable listener) {
+        breaker.whenCallsPermitted(listener);
+    }
+
+    /**
+     * @return the state of the circuit, the number of hedged GETs and the calls of each replica
+     */
+    public Map<String, Object> statistics() {
+        Map<String, Object> statistics = new HashMap<>();
+        statistics.put("circuit", breaker.getState());
+        statistics.put("hedgedRequests", hedges.sum());
+        statistics.put("replicas", replicas.statistics());
+        return statistics;
+    }
+
+    /**
+     * GETs the path, hedged
+     * @return the body of the answer
+     */
+    private String get(String path) {
+        return send(path, hedged(url -> HttpRequest.newBuilder(URI.create(url + path)).timeout(timeout).GET().build()));
+    }
+
+    /**
+     * Sends the request through the circuit breaker and waits at most the timeout for the answer
+     * @param path what is asked, for the errors
+     * @param answer sends the request once it is asked for
+     */
+    private String send(String path, Supplier<CompletableFuture<HttpResponse<String>>> answer) {
+        if (!breaker.tryAcquire())
+            throw new UnavailableException("The circuit to the trusted third-party is open, did not ask " + path, null);
+        try {
+//            The request's own timeout ends each attempt, this one bounds a hedged GET whose second attempt started late
+            HttpResponse<String> response = answer.get().get(timeout.toNanos() + hedgeNanos, TimeUnit.NANOSECONDS);
+            if (response.statusCode() >= 500)
+                throw new IOException("Answered with status " + response.statusCode());
+            breaker.onSuccess();
+            if (response.statusCode() >= 400)
+                throw new IllegalStateException("The trusted third-party answered " + response.uri() + " with status " + response.statusCode());
+            return response.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            breaker.onFailure();
+            throw new UnavailableException("Interrupted while asking " + path, e);
+        } catch (ExecutionException | TimeoutException | IOException e) {
+            breaker.onFailure();
+            Throwable cause = e instanceof ExecutionException ? e.getCause() : e;
+            throw new UnavailableException("Could not ask " + path + ": " + cause, cause);
+        }
+    }
+
+    /**
+     * @param request builds the request for the base address of a replica
+     * @return sends the request, and to another replica if it has not been answered after the hedge delay. The first
+     * successful answer wins, an error or a failed attempt only settles the request once every attempt has ended.
+     */
+    private Supplier<CompletableFuture<HttpResponse<String>>> hedged(Function<String, HttpRequest> request) {
+        return () -> {
+            ReplicaBalancer.Replica primary = replicas.acquire(null);
+            CompletableFuture<HttpResponse<String>> first = attempt(primary, request);
+            if (hedgeNanos <= 0)
+                return first;
+            CompletableFuture<HttpResponse<String>> answer = new CompletableFuture<>();
+            AtomicInteger pending = new AtomicInteger(1);
+            BiConsumer<HttpResponse<String>, Throwable> settle = (response, failure) -> {
+                if (failure == null && response.statusCode() < 300)
+                    answer.complete(response);
+//                A fast error of one replica must not beat the answer of the other, the last attempt to end settles it
+                else if (pending.decrementAndGet() == 0) {
+                    if (failure == null)
+                        answer.complete(response);
+                    else
+                        answer.completeExceptionally(failure);
+                }
+            };
+            first.whenComplete(settle);
+            CompletableFuture.delayedExecutor(hedgeNanos, TimeUnit.NANOSECONDS).execute(() -> {
+                if (answer.isDone())
+                    return;
+                pending.incrementAndGet();
+                hedges.increment();
+                attempt(replicas.acquire(primary), request).whenComplete(settle);
+            });
+            return answer;
+        };
+    }
+
+    /**
+     * Sends the request to the replica and hands the replica back to the balancer once it answered
+     */
+    private CompletableFuture<HttpResponse<String>> attempt(ReplicaBalancer.Replica replica, Function<String, HttpRequest> request) {
+        CompletableFuture<HttpResponse<String>> response;
+        try {
+            response = httpClient.sendAsync(request.apply(replica.getUrl()), HttpResponse.BodyHandlers.ofString());
+        } catch (RuntimeException e) {
+            replicas.release(replica, false);
+            throw e;
+        }
+        return response.whenComplete((answer, failure) -> replicas.release(replica, failure == null && answer.statusCode() < 500));
+    }
+
+    /**
+     * The health check of a replica: it answers the list of servers
+     */
+    private boolean answers(ReplicaBalancer.Replica replica) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(replica.getUrl() + "/api/server/list/ids")).timeout(timeout).GET().build();
+        try {
+            return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static <T> T read(String body, TypeReference<T> type) {
+        try {
+            return objectMapper.readValue(body, type);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read the trusted third-party's answer " + body, e);
+        }
+    }
+}
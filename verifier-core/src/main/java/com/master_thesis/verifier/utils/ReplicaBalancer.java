@@ -0,0 +1,189 @@
+package com.master_thesis.verifier.utils;
+
+import ch.qos.logback.classic.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Spreads calls over the replicas of a service.
+ * Each call goes to the less busy of two random healthy replicas, counted by the calls still outstanding on them.
+ * A replica that fails a number of calls in a row is ejected for a while; health checks, when started, eject a
+ * replica that does not answer and take an ejected one back as soon as it answers again. When every replica is
+ * ejected the calls go to the one that is due back first rather than nowhere.
+ */
+public class ReplicaBalancer {
+
+    private final static Logger log = (Logger) LoggerFactory.getLogger(ReplicaBalancer.class);
+
+    private final List<Replica> replicas;
+    private final int ejectAfterFailures;
+    private final long ejectNanos;
+    private final ScheduledExecutorService timer;
+
+    public static class Replica {
+
+        private final String url;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final LongAdder calls = new LongAdder(), failures = new LongAdder();
+        private int failuresInARow, ejections;
+        private long ejectedUntil;
+
+        private Replica(String url) {
+            this.url = url;
+        }
+
+        public String getUrl() {
+            return url;
+        }
+
+        @Override
+        public String toString() {
+            return url;
+        }
+    }
+
+    /**
+     * @param urls the base addresses of the replicas
+     * @param ejectAfterFailures the number of failures in a row that ejects a replica, zero never ejects
+     * @param ejectFor how long an ejected replica gets no calls unless a health check finds it answering earlier
+     */
+    public ReplicaBalancer(List<String> urls, int ejectAfterFailures, Duration ejectFor) {
+        if (urls.isEmpty())
+            throw new IllegalArgumentException("At least one replica is needed");
+        this.replicas = urls.stream().map(String::trim).map(Replica::new).collect(Collectors.toUnmodifiableList());
+        this.ejectAfterFailures = ejectAfterFailures;
+        this.ejectNanos = ejectFor.toNanos();
+        this.timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "verifier-replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (replicas.size() > 1)
+            log.info("Balancing over the replicas {}", replicas);
+    }
+
+    /**
+     * Picks the replica for a call, which must be handed back with release
+     * @param avoid a replica the call should not go to, e.g. the one a hedged call already went to, or null
+     */
+    public Replica acquire(Replica avoid) {
+        long now = System.nanoTime();
+        List<Replica> candidates = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas)
+            if (replica != avoid && isHealthy(replica, now))
+                candidates.add(replica);
+        Replica chosen;
+        if (candidates.isEmpty()) {
+//            Nothing healthy to choose from, the replica that is due back first is the best guess
+            chosen = replicas.stream().filter(replica -> replica != avoid || replicas.size() == 1)
+                    .min(Comparator.comparingLong(replica -> ejectedUntil(replica))).orElseThrow();
+        } else if (candidates.size() == 1) {
+            chosen = candidates.get(0);
+        } else {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            int first = random.nextInt(candidates.size()), second = random.nextInt(candidates.size() - 1);
+            if (second >= first)
+                second++;
+            Replica a = candidates.get(first), b = candidates.get(second);
+            chosen = a.outstanding.get() <= b.outstanding.get() ? a : b;
+        }
+        chosen.outstanding.incrementAndGet();
+        chosen.calls.increment();
+        return chosen;
+    }
+
+    /**
+     * Hands back a replica after its call
+     * @param success false if the replica did not answer properly
+     */
+    public void release(Replica replica, boolean success) {
+        replica.outstanding.decrementAndGet();
+        record(replica, success);
+    }
+
+    /**
+     * Checks every replica in the background
+     * @param check true if the replica answers, it is called on the balancer's thread and should time out on its own
+     * @param interval the time between two checks of a replica, zero never checks
+     */
+    public void healthCheck(Predicate<Replica> check, Duration interval) {
+        if (interval.isZero() || interval.isNegative())
+            return;
+        timer.scheduleWithFixedDelay(() -> {
+            for (Replica replica : replicas) {
+                try {
+                    record(replica, check.test(replica));
+                } catch (RuntimeException e) {
+                    record(replica, false);
+                }
+            }
+        }, interval.toNanos(), interval.toNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * @return the calls, failures, outstanding calls and whether each replica is ejected
+     */
+    public List<Map<String, Object>> statistics() {
+        long now = System.nanoTime();
+        List<Map<String, Object>> statistics = new ArrayList<>();
+        for (Replica replica : replicas) {
+            Map<String, Object> replicaStatistics = new LinkedHashMap<>();
+            replicaStatistics.put("url", replica.url);
+            replicaStatistics.put("healthy", isHealthy(replica, now));
+            replicaStatistics.put("outstanding", replica.outstanding.get());
+            replicaStatistics.put("calls", replica.calls.sum());
+            replicaStatistics.put("failures", replica.failures.sum());
+            synchronized (replica) {
+                replicaStatistics.put("ejections", replica.ejections);
+            }
+            statistics.add(replicaStatistics);
+        }
+        return statistics;
+    }
+
+    public void shutdown() {
+        timer.shutdownNow();
+    }
+
+    private void record(Replica replica, boolean success) {
+        if (!success)
+            replica.failures.increment();
+        synchronized (replica) {
+            if (success) {
+                replica.failuresInARow = 0;
+                if (replica.ejectedUntil != 0) {
+                    replica.ejectedUntil = 0;
+                    log.info("Replica {} answers again", replica);
+                }
+                return;
+            }
+            if (ejectAfterFailures == 0 || ++replica.failuresInARow < ejectAfterFailures)
+                return;
+            replica.failuresInARow = 0;
+            replica.ejectedUntil = System.nanoTime() + ejectNanos;
+            replica.ejections++;
+        }
+        log.warn("Ejected replica {} for {} ms after {} failures in a row", replica, TimeUnit.NANOSECONDS.toMillis(ejectNanos), ejectAfterFailures);
+    }
+
+    private static boolean isHealthy(Replica replica, long now) {
+        long until = ejectedUntil(replica);
+        return until == 0 || until - now <= 0;
+    }
+
+    private static long ejectedUntil(Replica replica) {
+        synchronized (replica) {
+            return replica.ejectedUntil;
+        }
+    }
+}
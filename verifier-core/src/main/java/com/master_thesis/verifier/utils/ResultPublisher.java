@@ -0,0 +1,37 @@
+package com.master_thesis.verifier.utils;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.data.VerificationResult;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Hands the outcome of every verified round to the registered listeners.
+ * Listeners are called on the verification thread and should return quickly.
+ */
+public class ResultPublisher {
+
+    private final static Logger log = (Logger) LoggerFactory.getLogger(ResultPublisher.class);
+    private final List<Consumer<VerificationResult>> listeners = new CopyOnWriteArrayList<>();
+
+    public void subscribe(Consumer<VerificationResult> listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(Consumer<VerificationResult> listener) {
+        listeners.remove(listener);
+    }
+
+    public void publish(VerificationResult result) {
+        for (Consumer<VerificationResult> listener : listeners) {
+            try {
+                listener.accept(result);
+            } catch (RuntimeException e) {
+                log.error("Result listener failed for {}: {}", result, e.getMessage());
+            }
+        }
+    }
+}
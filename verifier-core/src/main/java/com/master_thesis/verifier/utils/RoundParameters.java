@@ -0,0 +1,150 @@
+package com.master_thesis.verifier.utils;
+
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.LinearPublicData;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * The public parameters of one (substationID, fid) round, fetched in the background from the first submission.
+ * A getter only blocks if its parameter is still on the way. Parameters the construction does not use are never
+ * prefetched, but are looked up when asked for. A failed prefetch is retried once by the caller.
+ */
+public class RoundParameters {
+
+    private final static Logger log = (Logger) LoggerFactory.getLogger(RoundParameters.class);
+
+    private final Prefetched<List<Integer>> servers, clients;
+    private final Prefetched<BigInteger> lastClientProof, fieldBase, generator, rn;
+    private final Prefetched<LinearPublicData> linearPublicData;
+
+    RoundParameters(Prefetched<List<Integer>> servers, Prefetched<List<Integer>> clients,
+                    Prefetched<BigInteger> lastClientProof, Prefetched<BigInteger> fieldBase, Prefetched<BigInteger> generator,
+                    Prefetched<BigInteger> rn, Prefetched<LinearPublicData> linearPublicData) {
+        this.servers = servers;
+        this.clients = clients;
+        this.lastClientProof = lastClientProof;
+        this.fieldBase = fieldBase;
+        this.generator = generator;
+        this.rn = rn;
+        this.linearPublicData = linearPublicData;
+    }
+
+    /**
+     * @return parameters that were supplied up front, e.g. from a file, a parameter given as null fails when it is read
+     */
+    public static RoundParameters of(List<Integer> servers, List<Integer> clients, BigInteger lastClientProof,
+                                     BigInteger fieldBase, BigInteger generator, BigInteger rn,
+                                     LinearPublicData linearPublicData) {
+        return new RoundParameters(supplied("servers", servers), supplied("clients", clients),
+                supplied("lastClientProof", lastClientProof), supplied("fieldBase", fieldBase),
+                supplied("generator", generator), supplied("rn", rn), supplied("linearPublicData", linearPublicData));
+    }
+
+    private static <T> Prefetched<T> supplied(String name, T value) {
+        if (value == null)
+            return new Prefetched<>(() -> {
+                throw new IllegalStateException("The round parameter " + name + " was not supplied");
+            }, null);
+        return new Prefetched<>(() -> value, CompletableFuture.completedFuture(value));
+    }
+
+    public List<Integer> getServers() {
+        return servers.get();
+    }
+
+    public List<Integer> getClients() {
+        return clients.get();
+    }
+
+    public BigInteger getLastClientProof() {
+        return lastClientProof.get();
+    }
+
+    public BigInteger getFieldBase() {
+        return fieldBase.get();
+    }
+
+    public BigInteger getGenerator() {
+        return generator.get();
+    }
+
+    public BigInteger getRn() {
+        return rn.get();
+    }
+
+    public LinearPublicData getLinearPublicData() {
+        return linearPublicData.get();
+    }
+
+    /**
+     * Waits for every parameter the construction's verification reads, so the getters no longer block afterwards
+     * @return this
+     */
+    public RoundParameters resolve(Construction construction) {
+        if (construction == Construction.LINEAR) {
+            getLinearPublicData();
+            getRn();
+        } else {
+            getLastClientProof();
+            getFieldBase();
+            getGenerator();
+        }
+        return this;
+    }
+
+    /**
+     * @return completes once every parameter the construction's verification reads has arrived or failed, so that a
+     * round can wait for them without holding a thread. A failed parameter is retried by resolve.
+     */
+    public CompletableFuture<Void> whenResolved(Construction construction) {
+        Stream<Prefetched<?>> used = construction == Construction.LINEAR
+                ? Stream.of(linearPublicData, rn)
+                : Stream.of(lastClientProof, fieldBase, generator);
+        return CompletableFuture.allOf(used.map(Prefetched::settled).toArray(CompletableFuture[]::new));
+    }
+
+    static class Prefetched<T> {
+
+        private final Supplier<T> lookup;
+        private volatile CompletableFuture<T> value;
+
+        /**
+         * @param lookup looks up the parameter on the calling thread
+         * @param prefetched the parameter on its way, or null if it is not prefetched
+         */
+        Prefetched(Supplier<T> lookup, CompletableFuture<T> prefetched) {
+            this.lookup = lookup;
+            this.value = prefetched;
+        }
+
+        T get() {
+            CompletableFuture<T> current = value;
+            if (current != null) {
+                try {
+                    return current.join();
+                } catch (CompletionException e) {
+                    log.warn("Prefetching a round parameter failed, retrying: {}", e.getCause().toString());
+                }
+            }
+            T fetched = lookup.get();
+            value = CompletableFuture.completedFuture(fetched);
+            return fetched;
+        }
+
+        /**
+         * @return completes once the prefetch has succeeded or failed, at once if the parameter is not prefetched
+         */
+        CompletableFuture<?> settled() {
+            CompletableFuture<T> current = value;
+            return current == null ? CompletableFuture.completedFuture(null) : current.handle((fetched, e) -> null);
+        }
+    }
+}
@@ -0,0 +1,125 @@
+package com.master_thesis.verifier;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HomomorphicHashTest {
+
+    private static final BigInteger FIELD_BASE = BigInteger.valueOf(1_000_003);
+    private static final BigInteger GENERATOR = BigInteger.valueOf(2);
+
+    private final List<HashWindow> closed = new CopyOnWriteArrayList<>();
+
+    @Test
+    void windowClosesOnceItHoldsEveryFid() {
+        HomomorphicHash hash = windowed(3);
+        for (int fid = 3; fid < 6; fid++)
+            assertTrue(add(hash, fid, fid * 10));
+
+        assertEquals(1, closed.size());
+        assertTrue(closed.get(0).isValid());
+        assertEquals(3, closed.get(0).size());
+        closed.get(0).getRounds().forEach(round -> assertTrue(round.isValid()));
+    }
+
+    @Test
+    void laterWindowClosesAnIncompleteOne() {
+        HomomorphicHash hash = windowed(3);
+        add(hash, 0, 5);
+        add(hash, 1, 6);
+        add(hash, 4, 7);
+
+        assertEquals(1, closed.size());
+        assertEquals(0, closed.get(0).getIndex());
+        assertEquals(2, closed.get(0).size());
+//        The missing fid 2 arrived after its window was closed, so it has to be verified on its own
+        assertFalse(add(hash, 2, 8));
+    }
+
+    @Test
+    void roundsCheckedOnTheirOwnCountTowardsClosingTheWindow() {
+        HomomorphicHash hash = windowed(4);
+        add(hash, 0, 5);
+//        A sampled round and a round whose proofs differ are verified on their own, their fids are still seen
+        hash.checkedOnItsOwn(1, 1, FIELD_BASE, GENERATOR);
+        add(hash, 2, 6);
+        assertTrue(closed.isEmpty());
+        hash.checkedOnItsOwn(1, 3, FIELD_BASE, GENERATOR);
+
+        assertEquals(1, closed.size());
+        assertEquals(2, closed.get(0).size());
+        assertTrue(closed.get(0).isValid());
+    }
+
+    @Test
+    void windowWithoutDeferredRoundsIsNotPublished() {
+        HomomorphicHash hash = windowed(2);
+        hash.checkedOnItsOwn(1, 0, FIELD_BASE, GENERATOR);
+        hash.checkedOnItsOwn(1, 1, FIELD_BASE, GENERATOR);
+
+        assertTrue(closed.isEmpty());
+        assertFalse(add(hash, 1, 5));
+    }
+
+    @Test
+    void idleWindowIsClosedWithTheRoundsItHolds() throws InterruptedException {
+        HomomorphicHash hash = new HomomorphicHash(null, 60, 0, "", Duration.ofMillis(20));
+        hash.onWindowClosed(closed::add);
+        try {
+            add(hash, 0, 5);
+            add(hash, 1, 6);
+            for (int i = 0; i < 200 && closed.isEmpty(); i++)
+                Thread.sleep(10);
+        } finally {
+            hash.shutdown();
+        }
+
+        assertEquals(1, closed.size());
+        assertEquals(2, closed.get(0).size());
+//        The substation sent its last window, a straggler of it is verified on its own
+        assertFalse(add(hash, 2, 7));
+    }
+
+    @Test
+    void invalidWindowPinpointsTheInvalidRound() {
+        HomomorphicHash hash = windowed(2);
+        add(hash, 0, 5);
+//        The servers report a result of 8 for the clients' values summing to 7
+        List<BigInteger> clientProofs = List.of(hash.hash(BigInteger.valueOf(7), FIELD_BASE, GENERATOR));
+        assertTrue(hash.accumulate(1, 1, FIELD_BASE, GENERATOR, BigInteger.valueOf(8), clientProofs.get(0), clientProofs));
+
+        assertFalse(closed.get(0).isValid());
+        assertTrue(closed.get(0).getRounds().get(0).isValid());
+        assertFalse(closed.get(0).getRounds().get(1).isValid());
+    }
+
+    @Test
+    void mismatchingServerProofIsNotDeferred() {
+        HomomorphicHash hash = windowed(2);
+        List<BigInteger> clientProofs = List.of(hash.hash(BigInteger.valueOf(7), FIELD_BASE, GENERATOR));
+        assertFalse(hash.accumulate(1, 0, FIELD_BASE, GENERATOR, BigInteger.valueOf(7), BigInteger.TEN, clientProofs));
+    }
+
+    private HomomorphicHash windowed(int fids) {
+        HomomorphicHash hash = new HomomorphicHash(null, fids, 0, "");
+        hash.onWindowClosed(closed::add);
+        return hash;
+    }
+
+    /**
+     * Adds a valid round whose two clients' values sum to the result
+     */
+    private static boolean add(HomomorphicHash hash, int fid, int result) {
+        List<BigInteger> clientProofs = List.of(
+                hash.hash(BigInteger.valueOf(result - 1), FIELD_BASE, GENERATOR),
+                hash.hash(BigInteger.ONE, FIELD_BASE, GENERATOR));
+        BigInteger serverProof = hash.finalProof(clientProofs.stream(), FIELD_BASE);
+        return hash.accumulate(1, fid, FIELD_BASE, GENERATOR, BigInteger.valueOf(result), serverProof, clientProofs);
+    }
+}
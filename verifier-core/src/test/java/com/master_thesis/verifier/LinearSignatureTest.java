@@ -0,0 +1,109 @@
+package com.master_thesis.verifier;
+
+import com.master_thesis.verifier.data.LinearProofData;
+import com.master_thesis.verifier.data.LinearPublicData;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LinearSignatureTest {
+
+    private final Random random = new Random(42);
+    private final BigInteger p = BigInteger.probablePrime(256, random), q = BigInteger.probablePrime(256, random);
+    private final BigInteger nRoof = p.multiply(q);
+    private final BigInteger phi = p.subtract(BigInteger.ONE).multiply(q.subtract(BigInteger.ONE));
+    private final BigInteger g1 = BigInteger.valueOf(3), g2 = BigInteger.valueOf(5);
+    private final LinearSignature linearSignature = new LinearSignature();
+
+    @Test
+    void batchOfValidRoundsHolds() {
+        List<LinearSignature.Claim> claims = new ArrayList<>();
+        for (int fid = 0; fid < 10; fid++)
+            claims.add(claim(fid, BigInteger.valueOf(100 + fid), BigInteger.valueOf(100 + fid)));
+
+        boolean[] valid = linearSignature.verifyBatch(claims);
+
+        for (boolean roundValid : valid)
+            assertTrue(roundValid);
+    }
+
+    @Test
+    void batchPinpointsTheInvalidRounds() {
+        List<LinearSignature.Claim> claims = new ArrayList<>();
+        for (int fid = 0; fid < 10; fid++) {
+//            Rounds 3 and 7 claim a result other than the one the proof was made for
+            BigInteger claimed = BigInteger.valueOf(fid == 3 || fid == 7 ? 1 : 100 + fid);
+            claims.add(claim(fid, BigInteger.valueOf(100 + fid), claimed));
+        }
+
+        boolean[] valid = linearSignature.verifyBatch(claims);
+
+        for (int fid = 0; fid < 10; fid++)
+            assertEquals(fid != 3 && fid != 7, valid[fid], "fid " + fid);
+    }
+
+    @Test
+    void batchFindsANegatedXTilde() {
+        for (int attempt = 0; attempt < 20; attempt++) {
+            List<LinearSignature.Claim> claims = new ArrayList<>();
+            for (int fid = 0; fid < 8; fid++)
+                claims.add(claim(fid, BigInteger.valueOf(100 + fid), BigInteger.valueOf(100 + fid)));
+//            -xTilde raised to the odd eN is -1 times the valid left-hand side, the single check refuses it
+            LinearProofData proof = proof(5, BigInteger.valueOf(105), g1, g2);
+            LinearProofData negated = new LinearProofData(proof.getS(), nRoof.subtract(proof.getXTilde()));
+            claims.set(5, new LinearSignature.Claim(BigInteger.valueOf(105), negated, publicData(5, g1, g2), BigInteger.ZERO));
+
+            boolean[] valid = linearSignature.verifyBatch(claims);
+
+            for (int fid = 0; fid < 8; fid++)
+                assertEquals(fid != 5, valid[fid], "fid " + fid);
+        }
+    }
+
+    @Test
+    void roundsWithOtherGeneratorsAreBatchedApart() {
+        List<LinearSignature.Claim> claims = List.of(claim(0, BigInteger.TEN, BigInteger.TEN), claim(1, BigInteger.TEN, BigInteger.TWO));
+//        A round with other generators is checked in a batch of its own
+        LinearSignature.Claim other = new LinearSignature.Claim(BigInteger.ONE, proof(2, BigInteger.ONE, g2, g1), publicData(2, g2, g1), BigInteger.ZERO);
+        List<LinearSignature.Claim> all = new ArrayList<>(claims);
+        all.add(other);
+
+        boolean[] valid = linearSignature.verifyBatch(all);
+
+        assertArrayEquals(new boolean[]{true, false, true}, valid);
+    }
+
+    /**
+     * A round whose proof is made for the actual result, while it claims the given result
+     */
+    private LinearSignature.Claim claim(int fid, BigInteger actual, BigInteger claimed) {
+        return new LinearSignature.Claim(claimed, proof(fid, actual, g1, g2), publicData(fid, g1, g2), BigInteger.ZERO);
+    }
+
+    /**
+     * xTilde is the eN-th root of g1^s * h * g2^result, so that xTilde^eN * g2^0 = g1^s * h * g2^result
+     */
+    private LinearProofData proof(int fid, BigInteger result, BigInteger g1, BigInteger g2) {
+        LinearPublicData publicData = publicData(fid, g1, g2);
+        BigInteger eN = publicData.getN().multiply(publicData.getFidPrime());
+        BigInteger s = BigInteger.valueOf(7 + fid);
+        BigInteger target = g1.modPow(s, nRoof).multiply(publicData.getH()[0]).multiply(g2.modPow(result, nRoof)).mod(nRoof);
+        return new LinearProofData(s, target.modPow(eN.modInverse(phi), nRoof));
+    }
+
+    private LinearPublicData publicData(int fid, BigInteger g1, BigInteger g2) {
+        LinearPublicData publicData = new LinearPublicData();
+        publicData.setN(BigInteger.valueOf(65537));
+        publicData.setNRoof(nRoof);
+        publicData.setFidPrime(BigInteger.valueOf(1009 + 4 * fid).nextProbablePrime());
+        publicData.setG1(g1);
+        publicData.setG2(g2);
+        publicData.setH(new BigInteger[]{BigInteger.valueOf(11 + fid)});
+        return publicData;
+    }
+}
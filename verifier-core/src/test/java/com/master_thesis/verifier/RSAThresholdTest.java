@@ -1,11 +1,20 @@
 package com.master_thesis.verifier;
 
+import com.master_thesis.verifier.data.RSAClientData;
+import com.master_thesis.verifier.data.RSAServerData;
+import com.master_thesis.verifier.utils.PublicParameters;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 class RSAThresholdTest {
 
@@ -143,6 +152,125 @@ class RSAThresholdTest {
         testVerifierScheme(det, sk, cValues, skShares, clientProof, rsaN, pk);
     }
 
+    @Test
+    void finalProofCombinesAllClients() {
+        BigInteger fieldBase = BigInteger.valueOf(1000003);
+        RSAThreshold rsaThreshold = rsaThreshold(fieldBase, 2);
+        BigInteger lastClientProof = BigInteger.valueOf(7);
+
+        Map<Integer, RSAServerData.ProofData> proofData = new HashMap<>();
+        BigInteger expected = lastClientProof;
+//        Client proofs co-prime with rsaN = 23 * 83
+        long[] clientProofs = {30, 43, 50, 61, 71, 97, 101, 103};
+        for (int client = 0; client < clientProofs.length; client++) {
+            BigInteger clientProof = BigInteger.valueOf(clientProofs[client]);
+            proofData.put(client, proofData(clientProof));
+            expected = expected.multiply(clientProof);
+        }
+
+        assertEquals(expected.mod(fieldBase), rsaThreshold.finalProof(proofData, 1, lastClientProof));
+    }
+
+    @Test
+    void finalProofFailsWhenAClientCannotBeReconstructed() {
+        RSAThreshold rsaThreshold = rsaThreshold(BigInteger.valueOf(1000003), 2);
+        Map<Integer, RSAServerData.ProofData> proofData = new HashMap<>();
+        proofData.put(1, proofData(BigInteger.valueOf(30)));
+//        A client that never reported its public key
+        RSAServerData.ProofData missingKey = proofData(BigInteger.valueOf(43));
+        missingKey.setPublicKey(null);
+        proofData.put(2, missingKey);
+
+        assertNull(rsaThreshold.finalProof(proofData, 1, BigInteger.ONE));
+    }
+
+    @Test
+    void accumulatorReachesItsQuorumOnce() {
+        RSAProofAccumulator proof = rsaThreshold(BigInteger.valueOf(1000003), 1).newProofAccumulator(1);
+        proof.add(rsaClientData(1));
+        proof.add(rsaServerData(10, BigInteger.valueOf(30)));
+
+        assertFalse(proof.claimQuorum(2, List.of(1)));
+        proof.add(rsaServerData(11, BigInteger.valueOf(30)));
+        assertFalse(proof.claimQuorum(2, List.of(1, 2)));
+        assertTrue(proof.claimQuorum(2, List.of(1)));
+        assertFalse(proof.claimQuorum(2, List.of(1)));
+    }
+
+    @Test
+    void accumulatorReportsServersWithDifferentProofData() {
+        RSAProofAccumulator proof = rsaThreshold(BigInteger.valueOf(1000003), 1).newProofAccumulator(1);
+        proof.add(rsaServerData(10, BigInteger.valueOf(30)));
+        proof.add(rsaServerData(11, BigInteger.valueOf(30)));
+        proof.add(rsaServerData(12, BigInteger.valueOf(43)));
+
+        assertEquals(Set.of(12), proof.getDisagreeing());
+    }
+
+    @Test
+    void accumulatorRejectsAnotherPublicKeyAfterTheProofStarted() {
+        RSAProofAccumulator proof = rsaThreshold(BigInteger.valueOf(1000003), 1).newProofAccumulator(1);
+        proof.add(rsaClientData(1));
+        proof.add(rsaServerData(10, BigInteger.valueOf(30)));
+
+        assertTrue(proof.accepts(rsaClientData(1)));
+        RSAClientData otherKey = rsaClientData(1);
+        otherKey.setPublicKey(BigInteger.valueOf(7));
+        assertFalse(proof.accepts(otherKey));
+        assertThrows(IllegalStateException.class, () -> proof.add(otherKey));
+    }
+
+    @Test
+    void accumulatorRethrowsAFieldBaseThatIsUnavailable() {
+        RSAProofAccumulator proof = rsaThreshold(BigInteger.valueOf(1000003), 1).newProofAccumulator(1, () -> {
+            throw new PublicParameters.UnavailableException("The trusted third-party is down", null);
+        });
+        proof.add(rsaClientData(1));
+        proof.add(rsaServerData(10, BigInteger.valueOf(30)));
+
+        assertThrows(PublicParameters.UnavailableException.class, () -> proof.finish(BigInteger.ONE));
+    }
+
+    private RSAServerData rsaServerData(int serverID, BigInteger clientProof) {
+        RSAServerData serverData = new RSAServerData();
+        serverData.setId(serverID);
+        serverData.setPartialResult(BigInteger.ONE);
+        serverData.setPartialProofs(Map.of(1, proofData(clientProof)));
+        return serverData;
+    }
+
+    private RSAClientData rsaClientData(int clientID) {
+        RSAClientData clientData = new RSAClientData() {
+        };
+        clientData.setId(clientID);
+        clientData.setPublicKey(BigInteger.valueOf(5));
+        return clientData;
+    }
+
+    private RSAThreshold rsaThreshold(BigInteger fieldBase, int parallelism) {
+        PublicParameters publicParameters = mock(PublicParameters.class);
+        when(publicParameters.getFieldBase(1)).thenReturn(fieldBase);
+        return new RSAThreshold(publicParameters, parallelism);
+    }
+
+    /**
+     * Uses the keys from verifierSchemeTest, where sigma^pk == clientProof
+     */
+    private RSAServerData.ProofData proofData(BigInteger clientProof) {
+        BigInteger rsaN = BigInteger.valueOf(1909);
+        BigInteger two = BigInteger.TWO;
+        RSAServerData.ProofData proofData = new RSAServerData.ProofData();
+        proofData.setRsaN(rsaN);
+        proofData.setRsaDeterminant(126);
+        proofData.setPublicKey(BigInteger.valueOf(5));
+        proofData.setClientProof(clientProof);
+        proofData.setRsaProofComponent(new BigInteger[]{
+                clientProof.modPow(BigInteger.valueOf(12 * 4380).multiply(two), rsaN),
+                clientProof.modPow(BigInteger.valueOf(-6 * 1179).multiply(two), rsaN)
+        });
+        return proofData;
+    }
+
     private void testVerifierScheme(BigInteger det, BigInteger sk, BigInteger[] cValues, BigInteger[] wValues, BigInteger clientProof, BigInteger rsaN, BigInteger pk) {
         BigInteger two = BigInteger.TWO;
         // Check that SUM: Cij*wj*2 is correct
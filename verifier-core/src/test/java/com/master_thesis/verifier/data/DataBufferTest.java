@@ -0,0 +1,209 @@
+package com.master_thesis.verifier.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.time.Duration;
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataBufferTest {
+
+    @Test
+    void rebuildsTheBufferedDataOfARound() {
+        DataBuffer buffer = new DataBuffer();
+        for (int id = 1; id <= 20; id++)
+            buffer.put(linearClient(7, 3, id));
+
+        DataBuffer.Fid round = buffer.getFid(7, 3);
+        assertEquals(Construction.LINEAR, round.getConstruction());
+        assertEquals(20, round.size());
+        assertTrue(round.containsAll(List.of(1, 10, 20)));
+        assertFalse(round.containsAll(List.of(1, 21)));
+
+        Map<Integer, LinearClientData> byId = round.values().stream().map(data -> (LinearClientData) data)
+                .collect(Collectors.toMap(ComputationData::getId, data -> data));
+        assertEquals(20, byId.size());
+        LinearClientData data = byId.get(13);
+        assertEquals(7, data.getSubstationID());
+        assertEquals(3, data.getFid());
+        assertEquals(BigInteger.valueOf(1300), data.getFidPrime());
+        assertEquals(BigInteger.valueOf(1301), data.getsShare());
+        assertEquals(BigInteger.valueOf(1302), data.getX());
+    }
+
+    @Test
+    void participantThatSendsAgainReplacesItsData() {
+        DataBuffer buffer = new DataBuffer();
+        buffer.put(hashServer(1, 1, 2, 5));
+        buffer.put(hashServer(1, 1, 2, 6));
+
+        List<ComputationData> values = buffer.getFid(1, 1).values();
+        assertEquals(1, values.size());
+        assertEquals(BigInteger.valueOf(6), ((HashServerData) values.get(0)).getPartialResult());
+    }
+
+    @Test
+    void rejectsDataOfAnotherTypeForARound() {
+        DataBuffer buffer = new DataBuffer();
+        buffer.put(hashServer(1, 1, 2, 5));
+        DPServerData other = new DPServerData();
+        other.setSubstationID(1);
+        other.setFid(1);
+        other.setId(3);
+
+        assertThrows(IllegalArgumentException.class, () -> buffer.put(other));
+    }
+
+    @Test
+    void keepsManyRoundsApartThroughPutsAndRemoves() {
+        DataBuffer buffer = new DataBuffer();
+        Set<RoundKey> expected = new HashSet<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 20_000; i++) {
+            int substationID = random.nextInt(64), fid = random.nextInt(64);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(new RoundKey(substationID, fid)), buffer.remove(substationID, fid) != null);
+            } else {
+                buffer.put(hashServer(substationID, fid, 1, i));
+                expected.add(new RoundKey(substationID, fid));
+            }
+        }
+
+        assertEquals(expected, new HashSet<>(buffer.rounds()));
+        assertEquals(expected.size(), buffer.size());
+        for (int substationID = 0; substationID < 64; substationID++)
+            for (int fid = 0; fid < 64; fid++)
+                assertEquals(expected.contains(new RoundKey(substationID, fid)), buffer.contains(substationID, fid));
+    }
+
+    @Test
+    void idleRoundIsSpilledAndPagedBackInWhenRead() {
+        SpillStore store = new SpillStore(Duration.ofNanos(1), 1024 * 1024);
+        DataBuffer buffer = new DataBuffer(store);
+        for (int id = 1; id <= 5; id++)
+            buffer.put(rsaServer(4, 2, id));
+        buffer.put(hashServer(4, 3, 1, 9));
+
+        assertEquals(1, buffer.spillIdle((substationID, fid) -> fid == 2));
+        assertTrue(buffer.getFid(4, 2).isSpilled());
+        assertFalse(buffer.getFid(4, 3).isSpilled());
+        assertTrue(store.getUsedBytes() > 0);
+//        Completeness is checked without paging the round in
+        assertTrue(buffer.getFid(4, 2).containsAll(List.of(1, 2, 3, 4, 5)));
+        assertTrue(buffer.getFid(4, 2).isSpilled());
+
+        List<ComputationData> values = buffer.getFid(4, 2).values();
+        assertFalse(buffer.getFid(4, 2).isSpilled());
+        assertEquals(0, store.getUsedBytes());
+        RSAServerData data = (RSAServerData) values.stream().filter(value -> value.getId() == 3).findFirst().orElseThrow();
+        assertEquals(BigInteger.valueOf(3), data.getPartialResult());
+        RSAServerData.ProofData proof = data.getPartialProofs().get(11);
+        assertEquals(BigInteger.valueOf(33), proof.getRsaN());
+        assertArrayEquals(new BigInteger[]{BigInteger.ONE, BigInteger.TWO}, proof.getRsaProofComponent());
+        assertEquals(0.5, proof.getRsaDeterminant(), 0);
+        assertNull(proof.getPublicKey());
+    }
+
+    @Test
+    void roundThatDoesNotFitTheSpillStoreStaysOnTheHeap() {
+        SpillStore store = new SpillStore(Duration.ofNanos(1), 8);
+        DataBuffer buffer = new DataBuffer(store);
+        buffer.put(linearClient(1, 1, 1));
+
+        assertEquals(0, buffer.spillIdle((substationID, fid) -> true));
+        assertFalse(buffer.getFid(1, 1).isSpilled());
+        assertEquals(0, store.getUsedBytes());
+    }
+
+    @Test
+    void dataForASpilledRoundPagesItIn() {
+        SpillStore store = new SpillStore(Duration.ofNanos(1), 1024 * 1024);
+        DataBuffer buffer = new DataBuffer(store);
+        buffer.put(linearClient(1, 1, 1));
+        assertEquals(1, buffer.spillIdle((substationID, fid) -> true));
+
+        buffer.put(linearClient(1, 1, 2));
+
+        assertFalse(buffer.getFid(1, 1).isSpilled());
+        assertEquals(0, store.getUsedBytes());
+        assertEquals(2, buffer.getFid(1, 1).values().size());
+    }
+
+    @Test
+    void dataOverTheBudgetIsRefusedUntilARoundIsRemoved() {
+        long perParticipant = PayloadLayout.of(HashServerData.class).bytes(hashServer(1, 1, 1, 5));
+        BufferBudget budget = new BufferBudget(3 * perParticipant, 0);
+        DataBuffer buffer = new DataBuffer(null, budget);
+        buffer.put(hashServer(1, 1, 1, 5));
+        buffer.put(hashServer(1, 1, 2, 5));
+        buffer.put(hashServer(1, 2, 1, 5));
+        assertEquals(3 * perParticipant, budget.getUsedBytes());
+
+        assertThrows(BufferBudget.ExceededException.class, () -> buffer.put(hashServer(1, 3, 1, 5)));
+        assertFalse(buffer.contains(1, 3));
+//        Sending the same data again costs nothing more
+        buffer.put(hashServer(1, 1, 2, 5));
+
+        buffer.remove(1, 1);
+        assertEquals(perParticipant, budget.getUsedBytes());
+        buffer.put(hashServer(1, 3, 1, 5));
+        assertTrue(buffer.contains(1, 3));
+    }
+
+    @Test
+    void substationCannotTakeMoreThanItsShareOfTheBudget() {
+        long perParticipant = PayloadLayout.of(HashServerData.class).bytes(hashServer(1, 1, 1, 5));
+        BufferBudget budget = new BufferBudget(0, 2 * perParticipant);
+        DataBuffer buffer = new DataBuffer(null, budget);
+        buffer.put(hashServer(1, 1, 1, 5));
+        buffer.put(hashServer(1, 1, 2, 5));
+
+        assertThrows(BufferBudget.ExceededException.class, () -> buffer.put(hashServer(1, 1, 3, 5)));
+        buffer.put(hashServer(2, 1, 1, 5));
+        assertEquals(1, buffer.getFid(2, 1).size());
+        assertEquals(2, buffer.getFid(1, 1).size());
+    }
+
+    private static RSAServerData rsaServer(int substationID, int fid, int id) {
+        RSAServerData data = new RSAServerData();
+        data.setSubstationID(substationID);
+        data.setFid(fid);
+        data.setId(id);
+        data.setPartialResult(BigInteger.valueOf(id));
+        Map<Integer, RSAServerData.ProofData> proofs = new HashMap<>();
+        for (int client = 11; client <= 12; client++) {
+            RSAServerData.ProofData proof = new RSAServerData.ProofData();
+            proof.setRsaN(BigInteger.valueOf(client * id));
+            proof.setRsaProofComponent(new BigInteger[]{BigInteger.ONE, BigInteger.TWO});
+            proof.setRsaDeterminant(0.5);
+            proof.setClientProof(BigInteger.TEN);
+            proofs.put(client, proof);
+        }
+        data.setPartialProofs(proofs);
+        return data;
+    }
+
+    private static LinearClientData linearClient(int substationID, int fid, int id) {
+        LinearClientData data = new LinearClientData();
+        data.setSubstationID(substationID);
+        data.setFid(fid);
+        data.setId(id);
+        data.setFidPrime(BigInteger.valueOf(id * 100L));
+        data.setsShare(BigInteger.valueOf(id * 100L + 1));
+        data.setX(BigInteger.valueOf(id * 100L + 2));
+        return data;
+    }
+
+    private static HashServerData hashServer(int substationID, int fid, int id, long partialResult) {
+        HashServerData data = new HashServerData();
+        data.setSubstationID(substationID);
+        data.setFid(fid);
+        data.setId(id);
+        data.setPartialResult(BigInteger.valueOf(partialResult));
+        data.setPartialProof(BigInteger.ONE);
+        return data;
+    }
+}
@@ -0,0 +1,120 @@
+package com.master_thesis.verifier.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RecordFileTest {
+
+    @Test
+    void readsBackWhatWasWritten() throws IOException {
+        Path file = Files.createTempFile("records", ".bin");
+        try {
+            write(file, false);
+            assertRecords(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void readsCompressedFiles() throws IOException {
+        Path file = Files.createTempFile("records", ".bin.gz");
+        try {
+            write(file, true);
+            assertRecords(file);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    void refusesFilesThatAreNoRecordFiles() throws IOException {
+        Path file = Files.createTempFile("records", ".bin");
+        try {
+            Files.write(file, new byte[]{1, 2, 3, 4, 5, 6});
+            assertThrows(IOException.class, () -> RecordFile.open(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void write(Path file, boolean compressed) throws IOException {
+        OutputStream stream = Files.newOutputStream(file);
+        try (DataOutputStream out = new DataOutputStream(compressed ? new GZIPOutputStream(stream) : stream)) {
+            RecordFile.writeHeader(out);
+            RecordFile.write(out, new SubmissionRecord(1000, hashServer()));
+            RecordFile.write(out, new SubmissionRecord(1001, rsaServer()));
+            RecordFile.write(out, new SubmissionRecord(1002, dpClient()));
+        }
+    }
+
+    private static void assertRecords(Path file) throws IOException {
+        List<SubmissionRecord> records = new ArrayList<>();
+        try (RecordFile.Reader reader = RecordFile.open(file)) {
+            for (SubmissionRecord record = reader.next(); record != null; record = reader.next())
+                records.add(record);
+        }
+        assertEquals(3, records.size());
+
+        assertEquals(SubmissionType.HASH_SERVER, records.get(0).getType());
+        assertEquals(1000, records.get(0).getTimestampMillis());
+        HashServerData hash = (HashServerData) records.get(0).getData();
+        assertEquals(4, hash.getSubstationID());
+        assertEquals(9, hash.getFid());
+        assertEquals(2, hash.getId());
+        assertEquals(BigInteger.valueOf(123456789), hash.getPartialResult());
+        assertNull(hash.getPartialProof());
+
+        assertTrue(records.get(1).isFromServer());
+        RSAServerData.ProofData proof = ((RSAServerData) records.get(1).getData()).getPartialProofs().get(11);
+        assertEquals(BigInteger.valueOf(77), proof.getRsaN());
+        assertEquals(BigInteger.TWO, proof.getRsaProofComponent()[1]);
+        assertEquals(0.5, proof.getRsaDeterminant());
+
+        assertFalse(records.get(2).isFromServer());
+        assertEquals(BigInteger.TEN.negate(), ((DPClientData) records.get(2).getData()).getProofComponent());
+    }
+
+    private static HashServerData hashServer() {
+        HashServerData data = new HashServerData();
+        data.setSubstationID(4);
+        data.setFid(9);
+        data.setId(2);
+        data.setPartialResult(BigInteger.valueOf(123456789));
+        return data;
+    }
+
+    private static RSAServerData rsaServer() {
+        RSAServerData data = new RSAServerData();
+        data.setSubstationID(4);
+        data.setFid(9);
+        data.setId(3);
+        RSAServerData.ProofData proof = new RSAServerData.ProofData();
+        proof.setRsaN(BigInteger.valueOf(77));
+        proof.setRsaProofComponent(new BigInteger[]{BigInteger.ONE, BigInteger.TWO});
+        proof.setRsaDeterminant(0.5);
+        data.setPartialProofs(Map.of(11, proof));
+        return data;
+    }
+
+    private static DPClientData dpClient() {
+        DPClientData data = new DPClientData();
+        data.setSubstationID(4);
+        data.setFid(9);
+        data.setId(12);
+        data.setProofComponent(BigInteger.TEN.negate());
+        return data;
+    }
+}
@@ -0,0 +1,71 @@
+package com.master_thesis.verifier.data;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoundStatesTest {
+
+    @Test
+    void keepsOnlyTheNewestVerifiedRoundsOfASubstation() {
+        RoundStates states = new RoundStates(8);
+        for (int fid = 1; fid <= 100; fid++) {
+            assertTrue(states.claim(1, fid));
+            states.verified(1, fid);
+        }
+
+        assertTrue(states.size() <= 8 + 2, "held " + states.size());
+        assertTrue(states.getWatermark(1) >= 100 - 8 - 2);
+//        The pruned rounds still count as verified, so their late submissions are rejected
+        for (int fid = 1; fid <= 100; fid++)
+            assertEquals(RoundState.VERIFIED, states.get(1, fid));
+        assertFalse(states.claim(1, 1));
+        assertNull(states.get(1, 101));
+        assertNull(states.get(2, 1));
+    }
+
+    @Test
+    void theWatermarkDoesNotPassARoundInFlight() {
+        RoundStates states = new RoundStates(4);
+        assertTrue(states.claim(1, 3));
+        assertTrue(states.replace(1, 3, RoundState.VERIFYING, RoundState.DEFERRED));
+        for (int fid = 1; fid <= 50; fid++) {
+            if (fid != 3 && states.claim(1, fid))
+                states.verified(1, fid);
+        }
+
+        assertEquals(2, states.getWatermark(1));
+        assertEquals(RoundState.DEFERRED, states.get(1, 3));
+
+        assertTrue(states.replace(1, 3, RoundState.DEFERRED, RoundState.VERIFYING));
+        assertTrue(states.verified(1, 3) > 3);
+        assertEquals(RoundState.VERIFIED, states.get(1, 3));
+    }
+
+    @Test
+    void theWatermarkPassesARoundThatIsStillCollecting() {
+        RoundStates states = new RoundStates(4);
+        int watermark = RoundStates.UNCHANGED;
+        for (int fid = 2; fid <= 20; fid++) {
+            states.claim(1, fid);
+            int moved = states.verified(1, fid);
+            if (moved != RoundStates.UNCHANGED)
+                watermark = moved;
+        }
+
+//        Round 1 never completed, it is now behind the watermark and its data is to be released by the caller
+        assertTrue(watermark >= 1);
+        assertEquals(RoundState.VERIFIED, states.get(1, 1));
+        assertFalse(states.claim(1, 1));
+    }
+
+    @Test
+    void zeroRetainedKeepsEveryRound() {
+        RoundStates states = new RoundStates(0);
+        for (int fid = 1; fid <= 100; fid++) {
+            states.claim(1, fid);
+            assertEquals(RoundStates.UNCHANGED, states.verified(1, fid));
+        }
+        assertEquals(100, states.size());
+    }
+}
@@ -0,0 +1,25 @@
+package com.master_thesis.verifier.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuditLogTest {
+
+    @Test
+    void numbersAreWrittenInHex() {
+        assertEquals("0xff", AuditLog.hex(BigInteger.valueOf(255)).toString());
+        assertEquals("-0x10", AuditLog.hex(BigInteger.valueOf(-16)).toString());
+        assertEquals("null", AuditLog.hex(null).toString());
+    }
+
+    @Test
+    void sampleRateIsAShare() {
+        double rate = AuditLog.getSampleRate();
+        assertThrows(IllegalArgumentException.class, () -> AuditLog.setSampleRate(1.5));
+        assertThrows(IllegalArgumentException.class, () -> AuditLog.setSampleRate(-0.1));
+        assertEquals(rate, AuditLog.getSampleRate());
+    }
+}
@@ -0,0 +1,62 @@
+package com.master_thesis.verifier.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchingLookupTest {
+
+    private final List<List<Integer>> bulkCalls = new CopyOnWriteArrayList<>();
+    private final Function<List<Integer>, Map<Integer, String>> bulkLookup = keys -> {
+        bulkCalls.add(keys);
+        return keys.stream().filter(key -> key >= 0).collect(Collectors.toMap(key -> key, key -> "value" + key));
+    };
+
+    @Test
+    void concurrentLookupsShareOneBulkCall() throws Exception {
+        try (BatchingLookup<Integer, String> lookup = new BatchingLookup<>(bulkLookup, Runnable::run, Duration.ofMillis(50), 100)) {
+            List<CompletableFuture<String>> values = IntStream.range(0, 10).mapToObj(lookup::get).collect(Collectors.toList());
+//            A duplicate key joins the lookup already waiting
+            CompletableFuture<String> duplicate = lookup.get(3);
+
+            for (int i = 0; i < values.size(); i++)
+                assertEquals("value" + i, values.get(i).get(1, TimeUnit.SECONDS));
+            assertSame(values.get(3), duplicate);
+            assertEquals(1, bulkCalls.size());
+            assertEquals(10, bulkCalls.get(0).size());
+        }
+    }
+
+    @Test
+    void fullBatchIsSentWithoutWaitingForTheWindow() throws Exception {
+        try (BatchingLookup<Integer, String> lookup = new BatchingLookup<>(bulkLookup, Runnable::run, Duration.ofMinutes(1), 4)) {
+            List<CompletableFuture<String>> values = IntStream.range(0, 8).mapToObj(lookup::get).collect(Collectors.toList());
+
+            for (CompletableFuture<String> value : values)
+                assertTrue(value.isDone());
+            assertEquals(List.of(List.of(0, 1, 2, 3), List.of(4, 5, 6, 7)), bulkCalls);
+        }
+    }
+
+    @Test
+    void missingValueOnlyFailsItsOwnLookup() throws Exception {
+        try (BatchingLookup<Integer, String> lookup = new BatchingLookup<>(bulkLookup, Runnable::run, Duration.ofMillis(10), 100)) {
+            CompletableFuture<String> missing = lookup.get(-1);
+            CompletableFuture<String> present = lookup.get(1);
+
+            assertEquals("value1", present.get(1, TimeUnit.SECONDS));
+            assertThrows(ExecutionException.class, () -> missing.get(1, TimeUnit.SECONDS));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.master_thesis.verifier.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CircuitBreakerTest {
+
+    @Test
+    void opensAfterFailuresInARow() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 3, Duration.ofMinutes(1));
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+//        The success resets the count, so two more failures do not open the circuit
+        breaker.onFailure();
+        breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        breaker.shutdown();
+    }
+
+    @Test
+    void letsOneTrialThroughAfterTheOpenTime() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofMillis(20));
+        CountDownLatch permitted = new CountDownLatch(2);
+        breaker.whenCallsPermitted(permitted::countDown);
+        breaker.onFailure();
+        assertFalse(breaker.tryAcquire());
+        TimeUnit.MILLISECONDS.sleep(40);
+
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onSuccess();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+//        Once when the trial was let through and once when the circuit closed
+        assertTrue(permitted.await(1, TimeUnit.SECONDS));
+        breaker.shutdown();
+    }
+
+    @Test
+    void failedTrialOpensTheCircuitAgain() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("test", 1, Duration.ofMillis(20));
+        breaker.onFailure();
+        TimeUnit.MILLISECONDS.sleep(40);
+        assertTrue(breaker.tryAcquire());
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+        breaker.shutdown();
+    }
+
+    @Test
+    void tellsTheListenersToRetryAfterAFailureBelowTheThreshold() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("test", 5, Duration.ofMinutes(1), Duration.ofMillis(20));
+        CountDownLatch permitted = new CountDownLatch(1);
+        breaker.whenCallsPermitted(permitted::countDown);
+        breaker.onFailure();
+
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(permitted.await(1, TimeUnit.SECONDS));
+        breaker.shutdown();
+    }
+
+    @Test
+    void tellsTheListenersWhenACallSucceedsAfterFailures() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker("test", 5, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        CountDownLatch permitted = new CountDownLatch(1);
+        breaker.whenCallsPermitted(permitted::countDown);
+        breaker.onSuccess();
+        assertFalse(permitted.await(50, TimeUnit.MILLISECONDS));
+
+        breaker.onFailure();
+        breaker.onSuccess();
+        assertTrue(permitted.await(1, TimeUnit.SECONDS));
+        breaker.shutdown();
+    }
+
+    @Test
+    void zeroThresholdNeverOpens() {
+        CircuitBreaker breaker = new CircuitBreaker("test", 0, Duration.ZERO);
+        for (int i = 0; i < 10; i++)
+            breaker.onFailure();
+        assertTrue(breaker.tryAcquire());
+        breaker.shutdown();
+    }
+}
@@ -0,0 +1,79 @@
+package com.master_thesis.verifier.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaBalancerTest {
+
+    @Test
+    void busyReplicaGetsNoCallsWhileOthersAreIdle() {
+        ReplicaBalancer balancer = new ReplicaBalancer(List.of("http://a", "http://b"), 3, Duration.ofMinutes(1));
+//        The first call is never handed back, so its replica stays busy
+        ReplicaBalancer.Replica busy = balancer.acquire(null);
+        for (int i = 0; i < 50; i++) {
+            ReplicaBalancer.Replica replica = balancer.acquire(null);
+            assertNotSame(busy, replica);
+            balancer.release(replica, true);
+        }
+        balancer.shutdown();
+    }
+
+    @Test
+    void callsAreSpreadOverTheReplicas() {
+        ReplicaBalancer balancer = new ReplicaBalancer(List.of("http://a", "http://b", "http://c"), 3, Duration.ofMinutes(1));
+        Map<String, Integer> calls = new HashMap<>();
+        for (int i = 0; i < 300; i++) {
+            ReplicaBalancer.Replica replica = balancer.acquire(null);
+            calls.merge(replica.getUrl(), 1, Integer::sum);
+            balancer.release(replica, true);
+        }
+
+        assertEquals(3, calls.size());
+        calls.values().forEach(count -> assertTrue(count > 50, "calls " + calls));
+        balancer.shutdown();
+    }
+
+    @Test
+    void failingReplicaIsEjected() {
+        ReplicaBalancer balancer = new ReplicaBalancer(List.of("http://a", "http://b"), 1, Duration.ofMinutes(1));
+        ReplicaBalancer.Replica failing = balancer.acquire(null);
+        balancer.release(failing, false);
+
+        for (int i = 0; i < 50; i++) {
+            ReplicaBalancer.Replica replica = balancer.acquire(null);
+            assertNotSame(failing, replica);
+            balancer.release(replica, true);
+        }
+        assertEquals(1, balancer.statistics().stream().filter(replica -> !(Boolean) replica.get("healthy")).count());
+        balancer.shutdown();
+    }
+
+    @Test
+    void allEjectedStillPicksAReplica() {
+        ReplicaBalancer balancer = new ReplicaBalancer(List.of("http://a"), 1, Duration.ofMinutes(1));
+        ReplicaBalancer.Replica replica = balancer.acquire(null);
+        balancer.release(replica, false);
+
+        assertSame(replica, balancer.acquire(null));
+        balancer.shutdown();
+    }
+
+    @Test
+    void hedgedCallAvoidsTheFirstReplica() {
+        ReplicaBalancer balancer = new ReplicaBalancer(List.of("http://a", "http://b", "http://c"), 3, Duration.ofMinutes(1));
+        for (int i = 0; i < 50; i++) {
+            ReplicaBalancer.Replica first = balancer.acquire(null);
+            ReplicaBalancer.Replica second = balancer.acquire(first);
+            assertNotSame(first, second);
+            balancer.release(first, true);
+            balancer.release(second, true);
+        }
+        balancer.shutdown();
+    }
+}
@@ -0,0 +1,53 @@
+package com.master_thesis.verifier.utils;
+
+import com.master_thesis.verifier.data.Construction;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoundParametersTest {
+
+    @Test
+    void isResolvedOnceTheParametersOfItsConstructionArrived() {
+        CompletableFuture<BigInteger> lastClientProof = new CompletableFuture<>();
+        CompletableFuture<BigInteger> fieldBase = new CompletableFuture<>();
+        RoundParameters parameters = parameters(lastClientProof, fieldBase);
+
+        CompletableFuture<Void> resolved = parameters.whenResolved(Construction.HASH);
+        lastClientProof.complete(BigInteger.TWO);
+        assertFalse(resolved.isDone());
+
+        fieldBase.complete(BigInteger.TEN);
+        assertTrue(resolved.isDone());
+//        Rn and the linear public data are not prefetched for a HASH round, so a LINEAR check does not wait for them
+        assertTrue(parameters.whenResolved(Construction.LINEAR).isDone());
+    }
+
+    @Test
+    void aFailedPrefetchResolvesTheRoundAndIsLookedUpAgain() {
+        CompletableFuture<BigInteger> fieldBase = new CompletableFuture<>();
+        RoundParameters parameters = parameters(CompletableFuture.completedFuture(BigInteger.TWO), fieldBase);
+
+        CompletableFuture<Void> resolved = parameters.whenResolved(Construction.HASH);
+        fieldBase.completeExceptionally(new PublicParameters.UnavailableException("timed out", null));
+
+        assertTrue(resolved.isDone());
+        assertFalse(resolved.isCompletedExceptionally());
+        assertEquals(BigInteger.ONE, parameters.resolve(Construction.HASH).getFieldBase());
+    }
+
+    private static RoundParameters parameters(CompletableFuture<BigInteger> lastClientProof, CompletableFuture<BigInteger> fieldBase) {
+        return new RoundParameters(
+                new RoundParameters.Prefetched<>(() -> List.of(1, 2), CompletableFuture.completedFuture(List.of(1, 2))),
+                new RoundParameters.Prefetched<>(() -> List.of(11), CompletableFuture.completedFuture(List.of(11))),
+                new RoundParameters.Prefetched<>(() -> BigInteger.TWO, lastClientProof),
+                new RoundParameters.Prefetched<>(() -> BigInteger.ONE, fieldBase),
+                new RoundParameters.Prefetched<>(() -> BigInteger.ONE, CompletableFuture.completedFuture(BigInteger.ONE)),
+                new RoundParameters.Prefetched<>(() -> BigInteger.ONE, null),
+                new RoundParameters.Prefetched<>(() -> null, null));
+    }
+}
@@ -0,0 +1,244 @@
+package com.master_thesis.verifier.edge;
+
+import ch.qos.logback.classic.Logger;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.DifferentialPrivacy;
+import com.master_thesis.verifier.HomomorphicHash;
+import com.master_thesis.verifier.LinearSignature;
+import com.master_thesis.verifier.RSAThreshold;
+import com.master_thesis.verifier.core.*;
+import com.master_thesis.verifier.data.*;
+import com.master_thesis.verifier.utils.AuditLog;
+import com.master_thesis.verifier.utils.CircuitBreaker;
+import com.master_thesis.verifier.utils.PublicParameters;
+import com.master_thesis.verifier.utils.ReplicaBalancer;
+import com.master_thesis.verifier.utils.ResultPublisher;
+import com.master_thesis.verifier.utils.RoundParameters;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A verifier for small edge hosts, without Spring: the JDK's HttpServer receives the same submissions as the web
+ * application's /api endpoints and the verifiers of verifier-core check the complete rounds on a fixed pool of threads.
+ * There is no cluster, pipeline, scheduler or result API, the outcomes are only logged.
+ * <p>
+ * Configured with system properties: verifier.port (3000), verifier.trusted-party.url (http://localhost:4000, comma
+ * separated for several replicas), verifier.threads (the number of cores), verifier.rounds.retained (1024) and
+ * verifier.audit.sample-rate (0.01).
+ */
+public class EdgeLauncher {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(EdgeLauncher.class);
+
+    private final ObjectMapper objectMapper;
+    private final Map<String, SubmissionType> endpoints;
+    private final DataBuffer serverBuffer, clientBuffer;
+    private final Lock bufferLock;
+    private final Map<RoundKey, RoundParameters> roundParameters;
+    private final RoundStates roundStates;
+    private final Map<Construction, Verifier> verifiers;
+    private final PublicParameters publicParameters;
+    private final ResultPublisher resultPublisher;
+    private final ExecutorService io, compute;
+
+    /**
+     * @param retainedRounds the number of verified rounds whose state is kept per substation, see {@link RoundStates}
+     */
+    public EdgeLauncher(String trustedPartyUrl, int computeThreads, int retainedRounds) {
+        this.objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        this.endpoints = new HashMap<>();
+        for (SubmissionType type : SubmissionType.values())
+            endpoints.put(type.getPath(), type);
+        this.serverBuffer = new DataBuffer();
+        this.clientBuffer = new DataBuffer();
+        this.bufferLock = new ReentrantLock();
+        this.roundParameters = new ConcurrentHashMap<>();
+        this.roundStates = new RoundStates(retainedRounds);
+        this.io = Executors.newCachedThreadPool();
+        this.compute = Executors.newFixedThreadPool(computeThreads);
+        this.publicParameters = new PublicParameters(new ReplicaBalancer(List.of(trustedPartyUrl.split(",")), 3, Duration.ofSeconds(10)),
+                false, 0, 1, io, Duration.ofSeconds(5), Duration.ZERO, new CircuitBreaker("the trusted third-party", 0, Duration.ZERO), Duration.ZERO);
+        this.resultPublisher = new ResultPublisher();
+        this.verifiers = new EnumMap<>(Construction.class);
+        List.of(HomomorphicHashVerifier.forHash(new HomomorphicHash(publicParameters)),
+                HomomorphicHashVerifier.forDifferentialPrivacy(new DifferentialPrivacy(publicParameters)),
+                new RSAThresholdVerifier(new RSAThreshold(publicParameters, 0)),
+                new LinearSignatureVerifier(new LinearSignature()))
+                .forEach(verifier -> verifiers.put(verifier.getConstruction(), verifier));
+        resultPublisher.subscribe(result -> log.info("Verified {}", result));
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = Integer.getInteger("verifier.port", 3000);
+        String trustedPartyUrl = System.getProperty("verifier.trusted-party.url", "http://localhost:4000");
+        int computeThreads = Integer.getInteger("verifier.threads", Runtime.getRuntime().availableProcessors());
+        int retainedRounds = Integer.getInteger("verifier.rounds.retained", 1024);
+        AuditLog.setSampleRate(Double.parseDouble(System.getProperty("verifier.audit.sample-rate", "0.01")));
+        new EdgeLauncher(trustedPartyUrl, computeThreads, retainedRounds).start(port);
+    }
+
+    public HttpServer start(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.createContext("/api/", this::handle);
+        server.setExecutor(io);
+        server.start();
+        log.info("Edge verifier listening on port {}", port);
+        return server;
+    }
+
+    /**
+     * @return the publisher of the outcomes, to subscribe to them besides the log
+     */
+    public ResultPublisher getResultPublisher() {
+        return resultPublisher;
+    }
+
+    /**
+     * Stops the threads of the launcher, the HttpServer returned by start is stopped by the caller
+     */
+    public void shutdown() {
+        compute.shutdownNow();
+        io.shutdownNow();
+        publicParameters.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String path = exchange.getRequestURI().getPath();
+            SubmissionType type = endpoints.get(path);
+            if (type == null) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            ComputationData data;
+            try (InputStream body = exchange.getRequestBody()) {
+                data = objectMapper.readValue(body, type.getType());
+            } catch (IOException e) {
+                log.debug("Rejected a malformed submission to {}: {}", path, e.getMessage());
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+            exchange.sendResponseHeaders(receive(data, type.isFromServer()), -1);
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Buffers the data and verifies its round once it is complete
+     * @return the status of the response: 200, 409 if the round no longer accepts data, or 400 if the data's type does
+     * not match the round's buffered data
+     */
+    private int receive(ComputationData data, boolean fromServer) {
+        RoundKey round = new RoundKey(data.getSubstationID(), data.getFid());
+        boolean complete;
+        bufferLock.lock();
+        try {
+            if (roundStates.contains(round.getSubstationID(), round.getFid()))
+                return 409;
+            try {
+                (fromServer ? serverBuffer : clientBuffer).put(data);
+            } catch (IllegalArgumentException e) {
+                log.debug("Rejected {}: {}", data, e.getMessage());
+                return 400;
+            }
+//            The first buffered submission of a round starts fetching the parameters the round will need, a rejected
+//            one fetches nothing
+            roundParameters.computeIfAbsent(round, key -> publicParameters.prefetch(data.getConstruction(), data.getSubstationID(), data.getFid(), io));
+            complete = isComplete(round) && roundStates.claim(round.getSubstationID(), round.getFid());
+        } finally {
+            bufferLock.unlock();
+        }
+//        The compute threads only take the round once its parameters arrived, they never wait on the network
+        if (complete)
+            roundParameters.get(round).whenResolved(data.getConstruction()).thenRun(() -> compute.execute(() -> verify(round)));
+        return 200;
+    }
+
+    private boolean isComplete(RoundKey round) {
+        int substationID = round.getSubstationID(), fid = round.getFid();
+        if (!serverBuffer.contains(substationID, fid) || !clientBuffer.contains(substationID, fid))
+            return false;
+        RoundParameters parameters = roundParameters.get(round);
+        return serverBuffer.getFid(substationID, fid).containsAll(parameters.getServers())
+                && clientBuffer.getFid(substationID, fid).containsAll(parameters.getClients());
+    }
+
+    private void verify(RoundKey key) {
+        int substationID = key.getSubstationID(), fid = key.getFid();
+        Construction construction = null;
+        try {
+            List<ComputationData> serverData, clientData;
+//            The buffers are not thread safe, the round's data is copied under the lock and verified outside of it
+            bufferLock.lock();
+            try {
+                DataBuffer.Fid bufferServerData = serverBuffer.getFid(substationID, fid);
+                construction = bufferServerData.getConstruction();
+                serverData = bufferServerData.values();
+                clientData = clientBuffer.getFid(substationID, fid).values();
+            } finally {
+                bufferLock.unlock();
+            }
+            long started = System.nanoTime();
+            RoundParameters parameters = roundParameters.get(key).resolve(construction);
+            Round round = new Round(substationID, fid, construction, serverData, clientData, parameters, null);
+            VerificationResult result = verifiers.get(construction).verify(round, Stages.DIRECT);
+            resultPublisher.publish(result.withTimings(0, System.nanoTime() - started));
+        } catch (RuntimeException e) {
+//            The edge launcher does not park rounds, a consumer learns that this one will not be verified
+            log.error("Verification of fid {} of substation {} failed", fid, substationID, e);
+            resultPublisher.publish(VerificationResult.failed(construction, substationID, fid, e.toString()));
+        } finally {
+            bufferLock.lock();
+            try {
+                serverBuffer.remove(substationID, fid);
+                clientBuffer.remove(substationID, fid);
+                roundParameters.remove(key);
+                int watermark = roundStates.verified(substationID, fid);
+                if (watermark != RoundStates.UNCHANGED)
+                    abandonUpTo(substationID, watermark);
+            } finally {
+                bufferLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Releases the rounds of a substation that are still collecting at or below its watermark, called with the buffer
+     * lock held
+     */
+    private void abandonUpTo(int substationID, int watermark) {
+        Set<RoundKey> abandoned = new HashSet<>(serverBuffer.rounds());
+        abandoned.addAll(clientBuffer.rounds());
+        abandoned.removeIf(round -> round.getSubstationID() != substationID || round.getFid() > watermark);
+        for (RoundKey round : abandoned) {
+            serverBuffer.remove(substationID, round.getFid());
+            clientBuffer.remove(substationID, round.getFid());
+            roundParameters.remove(round);
+        }
+        if (!abandoned.isEmpty())
+            log.info("Abandoned {} incomplete rounds of substation {} at or below fid {}", abandoned.size(), substationID, watermark);
+    }
+}
@@ -0,0 +1,177 @@
+package com.master_thesis.verifier.edge;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.data.VerificationResult;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EdgeLauncherTest {
+
+    private static final int SUBSTATION = 1;
+    private static final BigInteger FIELD_BASE = BigInteger.valueOf(1_000_003);
+    private static final BigInteger GENERATOR = BigInteger.valueOf(2);
+    /**
+     * The values of clients 11 and 12, and the value behind the last client proof the trusted third-party holds
+     */
+    private static final int FIRST_VALUE = 3, SECOND_VALUE = 4, LAST_VALUE = 5;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient httpClient = HttpClient.newHttpClient();
+    private final Map<Integer, CompletableFuture<VerificationResult>> outcomes = new ConcurrentHashMap<>();
+    private HttpServer trustedParty, edge;
+    private EdgeLauncher launcher;
+
+    @BeforeEach
+    void start() throws IOException {
+        trustedParty = HttpServer.create(new InetSocketAddress("localhost", 0), 16);
+        trustedParty.createContext("/api/server/list/ids", exchange -> answer(exchange, "[1,2]"));
+        trustedParty.createContext("/api/client/list/", exchange -> answer(exchange, "[11,12]"));
+        trustedParty.createContext("/lastClient/", exchange -> answer(exchange, hash(LAST_VALUE).toString()));
+//        Substation 2's field base cannot be read, its rounds cannot be verified
+        trustedParty.createContext("/api/setup/fieldBase/", exchange -> answer(exchange,
+                exchange.getRequestURI().getPath().endsWith("/2") ? "not a number" : FIELD_BASE.toString()));
+        trustedParty.createContext("/api/setup/generator/", exchange -> answer(exchange, GENERATOR.toString()));
+        trustedParty.start();
+
+        launcher = new EdgeLauncher("http://localhost:" + trustedParty.getAddress().getPort(), 2, 16);
+        launcher.getResultPublisher().subscribe(result -> outcome(result.getFid()).complete(result));
+        edge = launcher.start(0);
+    }
+
+    @AfterEach
+    void stop() {
+        edge.stop(0);
+        launcher.shutdown();
+        trustedParty.stop(0);
+    }
+
+    @Test
+    void verifiesACompleteRoundAndRejectsLateSubmissions() throws Exception {
+        int total = FIRST_VALUE + SECOND_VALUE + LAST_VALUE;
+        postRound(1, total);
+
+        VerificationResult result = outcome(1).get(10, TimeUnit.SECONDS);
+        assertTrue(result.isValid());
+        assertEquals(BigInteger.valueOf(total), result.getResult());
+        assertEquals(409, post("/api/client/hash-data", client(1, 11, FIRST_VALUE)));
+        assertEquals(409, post("/api/server/hash-data", server(1, 2, 0, BigInteger.ONE)));
+    }
+
+    @Test
+    void findsARoundWhoseServersReportAWrongResult() throws Exception {
+        postRound(2, FIRST_VALUE + SECOND_VALUE + LAST_VALUE + 1);
+
+        assertFalse(outcome(2).get(10, TimeUnit.SECONDS).isValid());
+    }
+
+    @Test
+    void publishesARoundThatCouldNotBeVerifiedAsFailed() throws Exception {
+        postRound(2, 4, FIRST_VALUE + SECOND_VALUE + LAST_VALUE);
+
+        VerificationResult result = outcome(4).get(10, TimeUnit.SECONDS);
+        assertFalse(result.isValid());
+        assertEquals(2, result.getSubstationID());
+        assertNotNull(result.getError());
+        assertEquals(409, post("/api/client/hash-data", client(2, 4, 11, FIRST_VALUE)));
+    }
+
+    @Test
+    void rejectsMalformedAndMismatchedSubmissions() throws Exception {
+        assertEquals(400, post("/api/server/hash-data", "{\"fid\": \"not a number\""));
+        assertEquals(200, post("/api/server/hash-data", server(3, 1, 1, BigInteger.ONE)));
+//        The round holds HASH server data, DP data for it does not fit
+        assertEquals(400, post("/api/server/dp-data", server(3, 2, 1, BigInteger.ONE)));
+        assertEquals(404, post("/api/server/unknown", server(3, 2, 1, BigInteger.ONE)));
+        assertFalse(outcome(3).isDone());
+    }
+
+    /**
+     * Posts the clients' proof components and the servers' partial results and proofs of a round
+     * @param result the sum the servers report, which is the sum of the clients' values if they are honest
+     */
+    private void postRound(int fid, int result) throws Exception {
+        postRound(SUBSTATION, fid, result);
+    }
+
+    private void postRound(int substationID, int fid, int result) throws Exception {
+        assertEquals(200, post("/api/client/hash-data", client(substationID, fid, 11, FIRST_VALUE)));
+        assertEquals(200, post("/api/client/hash-data", client(substationID, fid, 12, SECOND_VALUE)));
+        BigInteger proof = hash(FIRST_VALUE).multiply(hash(SECOND_VALUE)).multiply(hash(LAST_VALUE)).mod(FIELD_BASE);
+        assertEquals(200, post("/api/server/hash-data", server(substationID, fid, 1, result - 1, proof)));
+        assertEquals(200, post("/api/server/hash-data", server(substationID, fid, 2, 1, BigInteger.ONE)));
+    }
+
+    private String client(int fid, int id, int value) throws IOException {
+        return client(SUBSTATION, fid, id, value);
+    }
+
+    private String client(int substationID, int fid, int id, int value) throws IOException {
+        Map<String, Object> data = submission(substationID, fid, id);
+        data.put("proofComponent", hash(value));
+        return objectMapper.writeValueAsString(data);
+    }
+
+    private String server(int fid, int id, int partialResult, BigInteger partialProof) throws IOException {
+        return server(SUBSTATION, fid, id, partialResult, partialProof);
+    }
+
+    private String server(int substationID, int fid, int id, int partialResult, BigInteger partialProof) throws IOException {
+        Map<String, Object> data = submission(substationID, fid, id);
+        data.put("partialResult", partialResult);
+        data.put("partialProof", partialProof);
+        return objectMapper.writeValueAsString(data);
+    }
+
+    private static Map<String, Object> submission(int substationID, int fid, int id) {
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("fid", fid);
+        data.put("substationID", substationID);
+        data.put("id", id);
+        return data;
+    }
+
+    private int post(String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + edge.getAddress().getPort() + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private CompletableFuture<VerificationResult> outcome(int fid) {
+        return outcomes.computeIfAbsent(fid, key -> new CompletableFuture<>());
+    }
+
+    private static BigInteger hash(int value) {
+        return GENERATOR.modPow(BigInteger.valueOf(value), FIELD_BASE);
+    }
+
+    private static void answer(HttpExchange exchange, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(200, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        exchange.close();
+    }
+}
@@ -0,0 +1,139 @@
+package com.master_thesis.verifier.offline;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.master_thesis.verifier.DifferentialPrivacy;
+import com.master_thesis.verifier.HomomorphicHash;
+import com.master_thesis.verifier.LinearSignature;
+import com.master_thesis.verifier.RSAThreshold;
+import com.master_thesis.verifier.core.*;
+import com.master_thesis.verifier.data.Construction;
+import com.master_thesis.verifier.data.RecordFile;
+import com.master_thesis.verifier.data.RoundKey;
+import com.master_thesis.verifier.data.SubmissionRecord;
+import com.master_thesis.verifier.data.VerificationResult;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Re-verifies recorded submissions without a server: the record files are read one after the other, grouped into
+ * rounds and every complete round is verified on a pool of one thread per core, with the public parameters taken
+ * from a local file.
+ * <pre>
+ * BulkVerification --parameters=params.json --output=results.bin [--threads=N] [--open-rounds=100000] records...
+ * </pre>
+ * When the pool falls behind, the reading thread verifies rounds itself, so reading never runs ahead of the cores.
+ */
+public class BulkVerification {
+
+    private static final Logger log = (Logger) LoggerFactory.getLogger(BulkVerification.class);
+
+    private final Map<Construction, Verifier> verifiers;
+    private final ResultFile results;
+    private final ThreadPoolExecutor pool;
+    private final LongAdder valid = new LongAdder(), invalid = new LongAdder(), incomplete = new LongAdder(), failed = new LongAdder();
+
+    public BulkVerification(ResultFile results, int threads) {
+        this.results = results;
+        this.pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(threads * 4),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.verifiers = new EnumMap<>(Construction.class);
+//        The parameters come with each round, the constructions never look them up themselves
+        List.of(HomomorphicHashVerifier.forHash(new HomomorphicHash(null)),
+                HomomorphicHashVerifier.forDifferentialPrivacy(new DifferentialPrivacy(null)),
+                new RSAThresholdVerifier(new RSAThreshold(null, threads)),
+                new LinearSignatureVerifier(new LinearSignature()))
+                .forEach(verifier -> verifiers.put(verifier.getConstruction(), verifier));
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path parameters = null, output = null;
+        int threads = Runtime.getRuntime().availableProcessors(), openRounds = 100_000;
+        List<Path> records = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--parameters="))
+                parameters = Path.of(arg.substring("--parameters=".length()));
+            else if (arg.startsWith("--output="))
+                output = Path.of(arg.substring("--output=".length()));
+            else if (arg.startsWith("--threads="))
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            else if (arg.startsWith("--open-rounds="))
+                openRounds = Integer.parseInt(arg.substring("--open-rounds=".length()));
+            else
+                records.add(Path.of(arg));
+        }
+        if (parameters == null || output == null || records.isEmpty()) {
+            System.err.println("Usage: BulkVerification --parameters=<json> --output=<file> [--threads=N] [--open-rounds=N] <record files>...");
+            System.exit(2);
+        }
+//        A log line per round would make the log the bottleneck, only problems and the summary are logged
+        ((Logger) LoggerFactory.getLogger("com.master_thesis.verifier")).setLevel(Level.WARN);
+        log.setLevel(Level.INFO);
+        try (ResultFile results = new ResultFile(output)) {
+            new BulkVerification(results, threads).run(LocalParameters.read(parameters), openRounds, records);
+        }
+    }
+
+    public void run(LocalParameters parameters, int openRounds, List<Path> files) throws IOException, InterruptedException {
+        long started = System.nanoTime(), read = 0;
+        RoundAssembler assembler = new RoundAssembler(parameters, openRounds, round -> pool.execute(() -> verify(round)), this::giveUp);
+        for (Path file : files) {
+            try (RecordFile.Reader reader = RecordFile.open(file)) {
+                for (SubmissionRecord record = reader.next(); record != null; record = reader.next()) {
+                    assembler.add(record);
+                    read++;
+                }
+            }
+            log.info("Read {}, {} submissions so far", file, read);
+        }
+        assembler.finish();
+        pool.shutdown();
+        pool.awaitTermination(Long.MAX_VALUE, TimeUnit.DAYS);
+
+        double seconds = (System.nanoTime() - started) / 1e9;
+        long verified = valid.sum() + invalid.sum();
+        log.info("Verified {} rounds in {} s ({} rounds/s): valid:{} invalid:{} incomplete:{} failed:{}, skipped {} late and {} submissions without parameters",
+                verified, Math.round(seconds * 10) / 10.0, Math.round(verified / seconds), valid.sum(), invalid.sum(),
+                incomplete.sum(), failed.sum(), assembler.getLate(), assembler.getUnknown());
+    }
+
+    private void verify(Round round) {
+        VerificationResult result;
+        try {
+            result = verifiers.get(round.getConstruction()).verify(round, Stages.DIRECT);
+        } catch (RuntimeException e) {
+            log.warn("Verification of fid {} of substation {} failed: {}", round.getFid(), round.getSubstationID(), e.toString());
+            failed.increment();
+            write(new RoundKey(round.getSubstationID(), round.getFid()), ResultFile.FAILED);
+            return;
+        }
+        (result.isValid() ? valid : invalid).increment();
+        try {
+            results.write(result);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void giveUp(RoundKey round) {
+        incomplete.increment();
+        write(round, ResultFile.INCOMPLETE);
+    }
+
+    private void write(RoundKey round, byte status) {
+        try {
+            results.write(round, status);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
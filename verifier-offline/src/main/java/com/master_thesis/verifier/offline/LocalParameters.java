@@ -0,0 +1,137 @@
+package com.master_thesis.verifier.offline;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.data.LinearPublicData;
+import com.master_thesis.verifier.data.RoundKey;
+import com.master_thesis.verifier.utils.RoundParameters;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The public parameters of the recorded rounds, read from a JSON file instead of being looked up at the trusted
+ * third-party:
+ * <pre>
+ * {
+ *   "substations": {"1": {"fieldBase": ..., "generator": ..., "servers": [...], "clients": [...]}},
+ *   "rounds": [{"substationID": 1, "fid": 3, "lastClientProof": ..., "rn": ..., "linearPublicData": {...}}]
+ * }
+ * </pre>
+ * The servers and clients of a substation apply to all its rounds, a round may list its own instead.
+ */
+public class LocalParameters {
+
+    private final Map<Integer, Substation> substations;
+    private final Map<RoundKey, RoundEntry> rounds;
+
+    private LocalParameters(ParameterFile file) {
+        this.substations = file.substations != null ? file.substations : Map.of();
+        this.rounds = new HashMap<>();
+        if (file.rounds != null)
+            file.rounds.forEach(round -> rounds.put(new RoundKey(round.substationID, round.fid), round));
+    }
+
+    public static LocalParameters read(Path file) throws IOException {
+        ObjectMapper objectMapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        try (InputStream in = Files.newInputStream(file)) {
+            return new LocalParameters(objectMapper.readValue(in, ParameterFile.class));
+        }
+    }
+
+    /**
+     * @return the parameters of the round, or null if neither the round nor its substation is in the file
+     */
+    public RoundParameters get(int substationID, int fid) {
+        Substation substation = substations.get(substationID);
+        RoundEntry round = rounds.get(new RoundKey(substationID, fid));
+        if (substation == null && round == null)
+            return null;
+        if (substation == null)
+            substation = new Substation();
+        if (round == null)
+            round = new RoundEntry();
+        return RoundParameters.of(
+                round.servers != null ? round.servers : substation.servers,
+                round.clients != null ? round.clients : substation.clients,
+                round.lastClientProof, substation.fieldBase, substation.generator, round.rn, round.linearPublicData);
+    }
+
+    static class ParameterFile {
+
+        private Map<Integer, Substation> substations;
+        private List<RoundEntry> rounds;
+
+        public void setSubstations(Map<Integer, Substation> substations) {
+            this.substations = substations;
+        }
+
+        public void setRounds(List<RoundEntry> rounds) {
+            this.rounds = rounds;
+        }
+    }
+
+    static class Substation {
+
+        private BigInteger fieldBase, generator;
+        private List<Integer> servers, clients;
+
+        public void setFieldBase(BigInteger fieldBase) {
+            this.fieldBase = fieldBase;
+        }
+
+        public void setGenerator(BigInteger generator) {
+            this.generator = generator;
+        }
+
+        public void setServers(List<Integer> servers) {
+            this.servers = servers;
+        }
+
+        public void setClients(List<Integer> clients) {
+            this.clients = clients;
+        }
+    }
+
+    static class RoundEntry {
+
+        private int substationID, fid;
+        private List<Integer> servers, clients;
+        private BigInteger lastClientProof, rn;
+        private LinearPublicData linearPublicData;
+
+        public void setSubstationID(int substationID) {
+            this.substationID = substationID;
+        }
+
+        public void setFid(int fid) {
+            this.fid = fid;
+        }
+
+        public void setServers(List<Integer> servers) {
+            this.servers = servers;
+        }
+
+        public void setClients(List<Integer> clients) {
+            this.clients = clients;
+        }
+
+        public void setLastClientProof(BigInteger lastClientProof) {
+            this.lastClientProof = lastClientProof;
+        }
+
+        public void setRn(BigInteger rn) {
+            this.rn = rn;
+        }
+
+        public void setLinearPublicData(LinearPublicData linearPublicData) {
+            this.linearPublicData = linearPublicData;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.master_thesis.verifier.offline;
+
+import com.master_thesis.verifier.data.RoundKey;
+import com.master_thesis.verifier.data.VerificationResult;
+
+import java.io.*;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes the outcome of every round of a bulk verification. After a header, each round is its construction's ordinal
+ * (-1 if the round was not verified), the substation, the fid, its status and the result as a length and two's
+ * complement bytes, with length -1 for no result.
+ */
+public class ResultFile implements Closeable {
+
+    public static final byte INVALID = 0, VALID = 1, INCOMPLETE = 2, FAILED = 3;
+
+    private static final int MAGIC = 0x56524553;
+    private static final short VERSION = 1;
+
+    private final DataOutputStream out;
+
+    public ResultFile(Path file) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+    }
+
+    public synchronized void write(VerificationResult result) throws IOException {
+        write(result.getConstruction().ordinal(), result.getSubstationID(), result.getFid(), result.isValid() ? VALID : INVALID, result.getResult());
+    }
+
+    /**
+     * Records a round that could not be verified
+     * @param status INCOMPLETE or FAILED
+     */
+    public synchronized void write(RoundKey round, byte status) throws IOException {
+        write(-1, round.getSubstationID(), round.getFid(), status, null);
+    }
+
+    private void write(int construction, int substationID, int fid, byte status, BigInteger result) throws IOException {
+        out.writeByte(construction);
+        out.writeInt(substationID);
+        out.writeInt(fid);
+        out.writeByte(status);
+        if (result == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = result.toByteArray();
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
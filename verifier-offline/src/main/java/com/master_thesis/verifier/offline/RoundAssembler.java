@@ -0,0 +1,131 @@
+package com.master_thesis.verifier.offline;
+
+import com.master_thesis.verifier.core.Round;
+import com.master_thesis.verifier.data.ComputationData;
+import com.master_thesis.verifier.data.RoundKey;
+import com.master_thesis.verifier.data.SubmissionRecord;
+import com.master_thesis.verifier.utils.RoundParameters;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * Groups a stream of recorded submissions into rounds. A round is handed on as soon as every server and client of its
+ * parameters has been read, so only the rounds that are still collecting are held.
+ * Recordings are roughly in time order, a round that stays open while more than maxOpenRounds newer rounds were
+ * opened will not complete any more and is given up, as are the rounds still open at the end.
+ * <p>
+ * Every round has one outcome: a submission for a round that was handed on or given up is counted as late and never
+ * opens the round again. The newest maxOpenRounds closed rounds are remembered by key, the older ones by the highest
+ * fid of their substation, so a round that was not opened before that many newer rounds closed is taken as late too.
+ */
+public class RoundAssembler {
+
+    private final LocalParameters parameters;
+    private final Consumer<Round> complete;
+    private final Consumer<RoundKey> incomplete;
+    private final LinkedHashMap<RoundKey, OpenRound> open;
+    private final Set<RoundKey> recentlyClosed;
+    private final Map<Integer, Integer> closedUpTo = new HashMap<>();
+    private long late, unknown;
+
+    /**
+     * @param complete receives every complete round, on the reading thread
+     * @param incomplete receives the rounds that were given up
+     */
+    public RoundAssembler(LocalParameters parameters, int maxOpenRounds, Consumer<Round> complete, Consumer<RoundKey> incomplete) {
+        this.parameters = parameters;
+        this.complete = complete;
+        this.incomplete = incomplete;
+        this.open = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RoundKey, OpenRound> eldest) {
+                if (size() <= maxOpenRounds)
+                    return false;
+                recentlyClosed.add(eldest.getKey());
+                incomplete.accept(eldest.getKey());
+                return true;
+            }
+        };
+//        Remembers as many closed rounds as there may be open ones, to tell late submissions from new rounds
+        this.recentlyClosed = Collections.newSetFromMap(new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<RoundKey, Boolean> eldest) {
+                if (size() <= maxOpenRounds)
+                    return false;
+                closedUpTo.merge(eldest.getKey().getSubstationID(), eldest.getKey().getFid(), Math::max);
+                return true;
+            }
+        });
+    }
+
+    public void add(SubmissionRecord record) {
+        ComputationData data = record.getData();
+        RoundKey key = new RoundKey(data.getSubstationID(), data.getFid());
+        OpenRound round = open.get(key);
+        if (round == null) {
+            if (isClosed(key)) {
+                late++;
+                return;
+            }
+            RoundParameters roundParameters = parameters.get(data.getSubstationID(), data.getFid());
+            if (roundParameters == null) {
+                unknown++;
+                return;
+            }
+            round = new OpenRound(roundParameters);
+            open.put(key, round);
+        }
+//        A participant that sent again replaces its earlier data, as in the live buffers
+        (record.isFromServer() ? round.servers : round.clients).put(data.getId(), data);
+        if (round.isComplete()) {
+            open.remove(key);
+            recentlyClosed.add(key);
+            complete.accept(new Round(key.getSubstationID(), key.getFid(), data.getConstruction(),
+                    new ArrayList<>(round.servers.values()), new ArrayList<>(round.clients.values()), round.parameters, null));
+        }
+    }
+
+    /**
+     * Gives up the rounds that are still open
+     */
+    public void finish() {
+        open.keySet().forEach(incomplete);
+        open.clear();
+    }
+
+    /**
+     * @return the number of submissions for rounds that had already been handed on or given up
+     */
+    public long getLate() {
+        return late;
+    }
+
+    /**
+     * @return the number of submissions for rounds without parameters
+     */
+    public long getUnknown() {
+        return unknown;
+    }
+
+    private boolean isClosed(RoundKey key) {
+        if (recentlyClosed.contains(key))
+            return true;
+        Integer upTo = closedUpTo.get(key.getSubstationID());
+        return upTo != null && key.getFid() <= upTo;
+    }
+
+    private static class OpenRound {
+
+        private final RoundParameters parameters;
+        private final Map<Integer, ComputationData> servers = new HashMap<>(), clients = new HashMap<>();
+
+        private OpenRound(RoundParameters parameters) {
+            this.parameters = parameters;
+        }
+
+        private boolean isComplete() {
+            return servers.keySet().containsAll(parameters.getServers()) && clients.keySet().containsAll(parameters.getClients());
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.master_thesis.verifier.offline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.data.ComputationData;
+import com.master_thesis.verifier.data.HashClientData;
+import com.master_thesis.verifier.data.HashServerData;
+import com.master_thesis.verifier.data.RecordFile;
+import com.master_thesis.verifier.data.SubmissionRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BulkVerificationTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final BigInteger FIELD_BASE = BigInteger.valueOf(1_000_003);
+    private static final BigInteger GENERATOR = BigInteger.valueOf(2);
+    /**
+     * The values of clients 11 and 12, the last client's value 5 is behind the lastClientProof in parameters.json
+     */
+    private static final int FIRST_VALUE = 3, SECOND_VALUE = 4, LAST_VALUE = 5;
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("bulk-verification");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Test
+    void writesTheOutcomeOfEveryRecordedRound() throws Exception {
+        Path records = directory.resolve("records.bin");
+        int total = FIRST_VALUE + SECOND_VALUE + LAST_VALUE;
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(records))) {
+            RecordFile.writeHeader(out);
+            writeRound(out, 1, total);
+            writeRound(out, 2, total + 1);
+//            Round 3 misses a client, a late resend of round 1 and a round without parameters are skipped
+            write(out, server(3, 1, total - 1, BigInteger.ONE));
+            write(out, server(3, 2, 1, BigInteger.ONE));
+            write(out, client(3, 11, FIRST_VALUE));
+            write(out, client(1, 12, SECOND_VALUE));
+            write(out, client(4, 11, FIRST_VALUE));
+        }
+
+        Path output = directory.resolve("results.bin");
+        LocalParameters parameters = LocalParameters.read(Path.of(BulkVerificationTest.class.getResource("/parameters.json").toURI()));
+        try (ResultFile results = new ResultFile(output)) {
+            new BulkVerification(results, 2).run(parameters, 10, List.of(records));
+        }
+
+        Map<Integer, Outcome> outcomes = read(output);
+        assertEquals(3, outcomes.size());
+        assertEquals(ResultFile.VALID, outcomes.get(1).status);
+        assertEquals(BigInteger.valueOf(total), outcomes.get(1).result);
+        assertEquals(ResultFile.INVALID, outcomes.get(2).status);
+        assertEquals(ResultFile.INCOMPLETE, outcomes.get(3).status);
+        assertEquals(-1, outcomes.get(3).construction);
+        assertNull(outcomes.get(3).result);
+    }
+
+    private static void writeRound(DataOutputStream out, int fid, int result) throws IOException {
+        BigInteger proof = hash(FIRST_VALUE).multiply(hash(SECOND_VALUE)).multiply(hash(LAST_VALUE)).mod(FIELD_BASE);
+        write(out, server(fid, 1, result - 1, proof));
+        write(out, client(fid, 11, FIRST_VALUE));
+        write(out, server(fid, 2, 1, BigInteger.ONE));
+        write(out, client(fid, 12, SECOND_VALUE));
+    }
+
+    private static void write(DataOutputStream out, ComputationData data) throws IOException {
+        RecordFile.write(out, new SubmissionRecord(data.getFid(), data));
+    }
+
+    private static HashServerData server(int fid, int id, int partialResult, BigInteger partialProof) {
+        return objectMapper.convertValue(Map.of("substationID", 1, "fid", fid, "id", id,
+                "partialResult", partialResult, "partialProof", partialProof), HashServerData.class);
+    }
+
+    private static HashClientData client(int fid, int id, int value) {
+        return objectMapper.convertValue(Map.of("substationID", fid == 4 ? 2 : 1, "fid", fid, "id", id,
+                "proofComponent", hash(value)), HashClientData.class);
+    }
+
+    private static BigInteger hash(int value) {
+        return GENERATOR.modPow(BigInteger.valueOf(value), FIELD_BASE);
+    }
+
+    private static Map<Integer, Outcome> read(Path file) throws IOException {
+        Map<Integer, Outcome> outcomes = new TreeMap<>();
+        try (DataInputStream in = new DataInputStream(Files.newInputStream(file))) {
+            in.readInt();
+            in.readShort();
+            while (true) {
+                Outcome outcome = new Outcome();
+                try {
+                    outcome.construction = in.readByte();
+                } catch (EOFException end) {
+                    return outcomes;
+                }
+                assertEquals(1, in.readInt());
+                int fid = in.readInt();
+                outcome.status = in.readByte();
+                int length = in.readInt();
+                if (length >= 0) {
+                    byte[] bytes = new byte[length];
+                    in.readFully(bytes);
+                    outcome.result = new BigInteger(bytes);
+                }
+                assertNull(outcomes.put(fid, outcome), "Round " + fid + " has one outcome");
+            }
+        }
+    }
+
+    private static class Outcome {
+        private int construction;
+        private byte status;
+        private BigInteger result;
+    }
+}
@@ -0,0 +1,140 @@
+package com.master_thesis.verifier.offline;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.master_thesis.verifier.core.Round;
+import com.master_thesis.verifier.data.HashClientData;
+import com.master_thesis.verifier.data.HashServerData;
+import com.master_thesis.verifier.data.RoundKey;
+import com.master_thesis.verifier.data.SubmissionRecord;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RoundAssemblerTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final List<Round> complete = new ArrayList<>();
+    private final List<RoundKey> incomplete = new ArrayList<>();
+    private LocalParameters parameters;
+
+    @BeforeEach
+    void readParameters() throws Exception {
+        parameters = LocalParameters.read(Path.of(RoundAssemblerTest.class.getResource("/parameters.json").toURI()));
+    }
+
+    @Test
+    void handsOnEachRoundOnceAllItsParticipantsWereRead() {
+        RoundAssembler assembler = assembler(10);
+        addRound(assembler, 1);
+        assertEquals(List.of(1), fids());
+        Round round = complete.get(0);
+        assertEquals(2, round.getServerData(HashServerData.class).size());
+        assertEquals(2, round.getClientData(HashClientData.class).size());
+        assertEquals(List.of(11, 12), round.getParameters().getClients());
+    }
+
+    @Test
+    void handsOnInterleavedRoundsInTheOrderTheyComplete() {
+        RoundAssembler assembler = assembler(10);
+        assembler.add(server(2, 1));
+        assembler.add(server(3, 1));
+        assembler.add(client(2, 11));
+        assembler.add(server(3, 2));
+        assembler.add(client(3, 11));
+        assembler.add(client(3, 12));
+        assembler.add(server(2, 2));
+        assertEquals(List.of(3), fids());
+        assembler.add(client(2, 12));
+        assertEquals(List.of(3, 2), fids());
+        assembler.finish();
+        assertTrue(incomplete.isEmpty());
+    }
+
+    @Test
+    void givesUpTheOldestRoundPastTheOpenRounds() {
+        RoundAssembler assembler = assembler(2);
+        assembler.add(server(1, 1));
+        assembler.add(server(2, 1));
+        assertTrue(incomplete.isEmpty());
+        assembler.add(server(3, 1));
+        assertEquals(List.of(new RoundKey(1, 1)), incomplete);
+        assembler.finish();
+        assertEquals(List.of(new RoundKey(1, 1), new RoundKey(1, 2), new RoundKey(1, 3)), incomplete);
+        assertTrue(complete.isEmpty());
+    }
+
+    @Test
+    void countsLateSubmissionsAndSubmissionsWithoutParameters() {
+        RoundAssembler assembler = assembler(10);
+        addRound(assembler, 1);
+        assembler.add(client(1, 11));
+        HashServerData unknown = (HashServerData) server(1, 1).getData();
+        unknown.setSubstationID(2);
+        assembler.add(new SubmissionRecord(0, unknown));
+        assembler.finish();
+        assertEquals(1, assembler.getLate());
+        assertEquals(1, assembler.getUnknown());
+        assertEquals(List.of(1), fids());
+        assertTrue(incomplete.isEmpty());
+    }
+
+    @Test
+    void neverReopensARoundThatWasGivenUp() {
+        RoundAssembler assembler = assembler(1);
+        assembler.add(server(1, 1));
+        assembler.add(server(2, 1));
+        assertEquals(List.of(new RoundKey(1, 1)), incomplete);
+        addRound(assembler, 1);
+        assertEquals(4, assembler.getLate());
+        assertTrue(complete.isEmpty());
+    }
+
+    @Test
+    void neverReopensACompletedRoundThatIsNoLongerRemembered() {
+        RoundAssembler assembler = assembler(1);
+        addRound(assembler, 1);
+        addRound(assembler, 2);
+        addRound(assembler, 3);
+//        Only round 3 is remembered by its key, round 1 is below the highest fid that was forgotten
+        assembler.add(client(1, 12));
+        assembler.finish();
+        assertEquals(1, assembler.getLate());
+        assertEquals(List.of(1, 2, 3), fids());
+        assertTrue(incomplete.isEmpty());
+    }
+
+    private RoundAssembler assembler(int maxOpenRounds) {
+        return new RoundAssembler(parameters, maxOpenRounds, complete::add, incomplete::add);
+    }
+
+    private List<Integer> fids() {
+        return complete.stream().map(Round::getFid).collect(Collectors.toList());
+    }
+
+    private static void addRound(RoundAssembler assembler, int fid) {
+        assembler.add(server(fid, 1));
+        assembler.add(server(fid, 2));
+        assembler.add(client(fid, 11));
+        assembler.add(client(fid, 12));
+    }
+
+    private static SubmissionRecord server(int fid, int id) {
+        HashServerData data = objectMapper.convertValue(Map.of("substationID", 1, "fid", fid, "id", id,
+                "partialResult", 1, "partialProof", 1), HashServerData.class);
+        return new SubmissionRecord(fid, data);
+    }
+
+    private static SubmissionRecord client(int fid, int id) {
+        HashClientData data = objectMapper.convertValue(Map.of("substationID", 1, "fid", fid, "id", id,
+                "proofComponent", 1), HashClientData.class);
+        return new SubmissionRecord(fid, data);
+    }
+}